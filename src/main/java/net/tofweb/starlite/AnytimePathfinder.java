@@ -0,0 +1,213 @@
+package net.tofweb.starlite;
+
+import java.util.function.Supplier;
+
+/**
+ * Finds a path within a time budget, starting with an inflated heuristic
+ * weight and lowering it toward 1 as time allows, so a usable Path comes back
+ * quickly and later calls refine it toward the optimal one.
+ *
+ * The weight is the CellSpace's heuristic weight; lowering it keeps the
+ * search state, so each refinement only expands the Cells the greedier search
+ * skipped. A Path found at weight w costs at most w times the optimal cost,
+ * given a Heuristic which never overestimates.
+ *
+ * The weight multiplies whatever the CellSpace's Heuristic estimates. If that
+ * Heuristic is itself a WeightedHeuristic, the two weights multiply, the
+ * search never gets below the WeightedHeuristic's weight, and getWeight
+ * reports the product as the bound; use an unweighted Heuristic to let the
+ * search reach the optimal Path.
+ *
+ * Moving the start Cell or changing costs keeps the weight reached so far; call
+ * restart to begin again from the initial weight after large changes.
+ *
+ * @version .9
+ * @since .9
+ */
+public class AnytimePathfinder {
+
+	/**
+	 * The initial heuristic weight used when none is specified.
+	 */
+	public static final double DEFAULT_INITIAL_WEIGHT = 2.5;
+
+	/**
+	 * The amount the weight is lowered by after each converged search when
+	 * none is specified.
+	 */
+	public static final double DEFAULT_WEIGHT_STEP = 0.5;
+
+	private final BlockManager blockManager;
+	private final Pathfinder pathfinder;
+	private final double initialWeight;
+	private final double weightStep;
+	private double targetWeight;
+	private double weight = Double.POSITIVE_INFINITY;
+	private boolean isStepLimitReached = false;
+
+	/**
+	 * Creates an AnytimePathfinder with the specified BlockManager and the
+	 * default weights.
+	 *
+	 * @param blockManager
+	 */
+	public AnytimePathfinder(BlockManager blockManager) {
+		this(blockManager, DEFAULT_INITIAL_WEIGHT, DEFAULT_WEIGHT_STEP);
+	}
+
+	/**
+	 * Creates an AnytimePathfinder with the specified BlockManager, starting at
+	 * the specified heuristic weight and lowering it by the specified step.
+	 *
+	 * @param blockManager
+	 * @param initialWeight
+	 *            at least 1
+	 * @param weightStep
+	 *            greater than 0
+	 */
+	public AnytimePathfinder(BlockManager blockManager, double initialWeight, double weightStep) {
+		super();
+
+		if (!(initialWeight >= 1.0) || Double.isInfinite(initialWeight)) {
+			throw new IllegalArgumentException("Heuristic weight must be finite and at least 1, not " + initialWeight);
+		}
+
+		if (!(weightStep > 0.0) || Double.isInfinite(weightStep)) {
+			throw new IllegalArgumentException("Weight step must be finite and greater than 0, not " + weightStep);
+		}
+
+		this.blockManager = blockManager;
+		this.pathfinder = new Pathfinder(blockManager);
+		this.initialWeight = initialWeight;
+		this.weightStep = weightStep;
+		this.targetWeight = initialWeight;
+	}
+
+	/**
+	 * Find and return the best path to the goal that can be found before the
+	 * specified time has passed.
+	 *
+	 * The search first converges at the weight it was working on when the
+	 * last call ran out of time, then lowers the weight and searches again
+	 * until the weight reaches 1 or the time runs out. The Path from the last
+	 * converged search is returned, and getWeight tells how far from optimal
+	 * it may be. If not even the first search converges in time, an
+	 * incomplete, empty Path is returned, and the next call carries on where
+	 * this one stopped. If instead the search reaches the CellSpace's
+	 * maxSteps, isStepLimitReached becomes true and, if no search converged,
+	 * the incomplete Path a Pathfinder returns from an unfinished search is
+	 * returned.
+	 *
+	 * Each search may overrun the deadline by a few dozen expansions, and a
+	 * converged search always lowers the weight once more, so every call
+	 * makes progress, even one given no time at all.
+	 *
+	 * While a Flight Recorder recording enables it, a PathPlanningEvent is
+	 * committed for every call, as for Pathfinder.findPath.
+	 *
+	 * @param timeoutNanos
+	 * @return Path The discovered Path
+	 */
+	public Path findPath(final long timeoutNanos) {
+		return pathfinder.findPath(new Supplier<Path>() {
+			@Override
+			public Path get() {
+				return plan(timeoutNanos);
+			}
+		});
+	}
+
+	/**
+	 * Move the start Cell to the specified Cell and find the best path to the
+	 * goal that can be found before the specified time has passed.
+	 *
+	 * @param newStart
+	 * @param timeoutNanos
+	 * @return Path The discovered Path
+	 */
+	public Path replan(Cell newStart, long timeoutNanos) {
+		blockManager.getSpace().setStartCell(newStart.getX(), newStart.getY(), newStart.getZ());
+
+		return findPath(timeoutNanos);
+	}
+
+	/**
+	 * Get true if the last call stopped because the search reached the
+	 * CellSpace's maxSteps before its time ran out, rather than reaching
+	 * weight 1 or running out of time.
+	 *
+	 * @return
+	 */
+	public boolean isStepLimitReached() {
+		return isStepLimitReached;
+	}
+
+	/**
+	 * Go back to the initial weight, so the next call finds a Path quickly
+	 * again, for example after the map has changed a great deal.
+	 */
+	public void restart() {
+		targetWeight = initialWeight;
+		weight = Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Get the heuristic weight of the search the last returned Path came from,
+	 * times the weight of the CellSpace's Heuristic if it is a
+	 * WeightedHeuristic. That Path costs at most this many times the optimal
+	 * cost. Infinite if no search has converged yet.
+	 *
+	 * @return
+	 */
+	public double getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Get true once the last returned Path came from a search at overall
+	 * weight 1, and so is optimal.
+	 *
+	 * @return
+	 */
+	public boolean isOptimal() {
+		return weight == 1.0;
+	}
+
+	private Path plan(long timeoutNanos) {
+		long deadline = System.nanoTime() + timeoutNanos;
+		CellSpace space = blockManager.getSpace();
+
+		space.setHeuristicWeight(targetWeight);
+		Path path = null;
+		weight = Double.POSITIVE_INFINITY;
+		isStepLimitReached = false;
+
+		while (space.computeShortestPath(deadline)) {
+			path = pathfinder.extract(space);
+			weight = targetWeight * heuristicWeight(space);
+
+			if (targetWeight == 1.0) {
+				return path;
+			}
+
+			targetWeight = Math.max(1.0, targetWeight - weightStep);
+			space.setHeuristicWeight(targetWeight);
+		}
+
+		// Stopped before the clock ran out, so by maxSteps
+		isStepLimitReached = System.nanoTime() - deadline < 0;
+
+		if (path == null) {
+			path = isStepLimitReached ? pathfinder.extract(space) : new Path();
+		}
+
+		return path;
+	}
+
+	private static double heuristicWeight(CellSpace space) {
+		Heuristic heuristic = space.getHeuristic();
+
+		return heuristic instanceof WeightedHeuristic ? ((WeightedHeuristic) heuristic).getWeight() : 1.0;
+	}
+
+}
@@ -0,0 +1,233 @@
+package net.tofweb.starlite;
+
+/**
+ * A BlockManager which keeps blocked Cells in a sparse bit volume rather than
+ * as Cell costs.
+ *
+ * Space is divided into chunks of 16 x 16 x 16 Cells, one bit per Cell. A
+ * chunk is made the first time any of its Cells is blocked and is found
+ * through a primitive long keyed map, with the last chunk looked at cached.
+ * Since the search looks at Cells next to each other, isBlocked is usually a
+ * shift and a mask into a long[].
+ *
+ * Each row of 16 Cells along x lies within one word, so blockRegion and
+ * unblockRegion set or clear a row at a time. The start and goal Cells are
+ * never blocked.
+ *
+ * @version .9
+ * @since .9
+ */
+public class BitsetBlockManager extends BlockManager {
+
+	/**
+	 * The number of Cells along each edge of a chunk.
+	 */
+	public static final int CHUNK_EDGE = 16;
+
+	private static final int CHUNK_SHIFT = 4;
+	private static final int CHUNK_MASK = CHUNK_EDGE - 1;
+	private static final int WORDS_PER_CHUNK = CHUNK_EDGE * CHUNK_EDGE * CHUNK_EDGE / 64;
+
+	private LongIntHashMap chunkIndex = new LongIntHashMap();
+	private long[] words = new long[WORDS_PER_CHUNK * 16];
+	private int chunkCount = 0;
+	private long blockedCount = 0;
+	private long lastChunkKey = Long.MIN_VALUE;
+	private int lastChunk = LongIntHashMap.NO_VALUE;
+
+	/**
+	 * Return a BitsetBlockManager which manages the specified CellSpace.
+	 *
+	 * @param space
+	 */
+	public BitsetBlockManager(CellSpace space) {
+		super(space);
+	}
+
+	/**
+	 * Mark the specified Cell as impassable.
+	 *
+	 * @param blockedCell
+	 */
+	public void blockCell(Cell blockedCell) {
+		blockRegion(blockedCell.getX(), blockedCell.getY(), blockedCell.getZ(), blockedCell.getX(),
+				blockedCell.getY(), blockedCell.getZ());
+	}
+
+	/**
+	 * Mark the specified Cell as passable again.
+	 *
+	 * @param unblockedCell
+	 */
+	public void unblockCell(Cell unblockedCell) {
+		unblockRegion(unblockedCell.getX(), unblockedCell.getY(), unblockedCell.getZ(), unblockedCell.getX(),
+				unblockedCell.getY(), unblockedCell.getZ());
+	}
+
+	/**
+	 * Mark every Cell in the specified box, bounds included, as impassable,
+	 * except the start and goal Cells.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 */
+	public void blockRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		setRegion(minX, minY, minZ, maxX, maxY, maxZ, true);
+
+		// Put back the start and goal Cells if the box covered them
+		clearIfInside(space.getStartCell(), minX, minY, minZ, maxX, maxY, maxZ);
+		clearIfInside(space.getGoalCell(), minX, minY, minZ, maxX, maxY, maxZ);
+
+		space.updateRegion(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Mark every Cell in the specified box, bounds included, as passable.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 */
+	public void unblockRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		setRegion(minX, minY, minZ, maxX, maxY, maxZ, false);
+		space.updateRegion(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Get the number of blocked Cells.
+	 *
+	 * @return
+	 */
+	public long getBlockedCount() {
+		return blockedCount;
+	}
+
+	/**
+	 * Get the number of chunks made so far.
+	 *
+	 * @return
+	 */
+	public int getChunkCount() {
+		return chunkCount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.tofweb.starlite.BlockManager#isBlocked(net.tofweb.starlite.Cell)
+	 */
+	public boolean isBlocked(Cell cell) {
+		if (cell == null) {
+			return false;
+		}
+
+		return isBlocked(cell.getX(), cell.getY(), cell.getZ());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.tofweb.starlite.BlockManager#isBlocked(int, int, int)
+	 */
+	@Override
+	public boolean isBlocked(int x, int y, int z) {
+		if (!CellId.isPackable(x, y, z)) {
+			return false;
+		}
+
+		int chunk = findChunk(x, y, z);
+
+		if (chunk == LongIntHashMap.NO_VALUE) {
+			return false;
+		}
+
+		int cell = cellIndex(x, y, z);
+
+		return (words[chunk * WORDS_PER_CHUNK + (cell >>> 6)] & (1L << cell)) != 0;
+	}
+
+	private void setRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, boolean isBlocked) {
+		if (!CellId.isPackable(minX, minY, minZ) || !CellId.isPackable(maxX, maxY, maxZ)) {
+			throw new IllegalArgumentException("Region out of bounds: (" + minX + ", " + minY + ", " + minZ
+					+ ") to (" + maxX + ", " + maxY + ", " + maxZ + ")");
+		}
+
+		for (int z = minZ; z <= maxZ; z++) {
+			for (int y = minY; y <= maxY; y++) {
+				// A row of a chunk lies within one word
+				int x = minX;
+				while (x <= maxX) {
+					int rowEnd = Math.min(maxX, x | CHUNK_MASK);
+					int chunk = isBlocked ? makeChunk(x, y, z) : findChunk(x, y, z);
+
+					if (chunk != LongIntHashMap.NO_VALUE) {
+						int cell = cellIndex(x, y, z);
+						int word = chunk * WORDS_PER_CHUNK + (cell >>> 6);
+						long mask = ((1L << (rowEnd - x + 1)) - 1) << (cell & 63);
+
+						if (isBlocked) {
+							blockedCount += Long.bitCount(mask & ~words[word]);
+							words[word] |= mask;
+						} else {
+							blockedCount -= Long.bitCount(mask & words[word]);
+							words[word] &= ~mask;
+						}
+					}
+
+					x = rowEnd + 1;
+				}
+			}
+		}
+	}
+
+	private void clearIfInside(Cell cell, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		if (cell != null && cell.getX() >= minX && cell.getX() <= maxX && cell.getY() >= minY
+				&& cell.getY() <= maxY && cell.getZ() >= minZ && cell.getZ() <= maxZ) {
+			setRegion(cell.getX(), cell.getY(), cell.getZ(), cell.getX(), cell.getY(), cell.getZ(), false);
+		}
+	}
+
+	private int findChunk(int x, int y, int z) {
+		long chunkKey = CellId.pack(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, z >> CHUNK_SHIFT);
+
+		if (chunkKey != lastChunkKey) {
+			lastChunkKey = chunkKey;
+			lastChunk = chunkIndex.get(chunkKey);
+		}
+
+		return lastChunk;
+	}
+
+	private int makeChunk(int x, int y, int z) {
+		int chunk = findChunk(x, y, z);
+
+		if (chunk != LongIntHashMap.NO_VALUE) {
+			return chunk;
+		}
+
+		chunk = chunkCount++;
+
+		if ((long) chunkCount * WORDS_PER_CHUNK > words.length) {
+			long[] grown = new long[words.length * 2];
+			System.arraycopy(words, 0, grown, 0, words.length);
+			words = grown;
+		}
+
+		chunkIndex.put(lastChunkKey, chunk);
+		lastChunk = chunk;
+
+		return chunk;
+	}
+
+	private int cellIndex(int x, int y, int z) {
+		return (x & CHUNK_MASK) | ((y & CHUNK_MASK) << CHUNK_SHIFT) | ((z & CHUNK_MASK) << (CHUNK_SHIFT * 2));
+	}
+
+}
@@ -15,13 +15,18 @@ public abstract class BlockManager {
 	/**
 	 * Returns an implementation of BlockManager. All BlockManagers should take
 	 * a CellSpace as a parameter, as the BlockManager will determine which
-	 * Cells in the CellSpace are blocked.
+	 * Cells in the CellSpace are blocked. The BlockManager registers itself
+	 * with the CellSpace so the search can avoid blocked Cells.
 	 * 
 	 * @param space
 	 */
 	public BlockManager(CellSpace space) {
 		super();
 		this.space = space;
+
+		if (space != null) {
+			space.setBlockManager(this);
+		}
 	}
 
 	/**
@@ -32,6 +37,55 @@ public abstract class BlockManager {
 	 */
 	public abstract boolean isBlocked(Cell cell);
 
+	/**
+	 * True if the Cell at the specified coordinates is impassable by the
+	 * PathFinder. False otherwise.
+	 * 
+	 * The search calls this for every neighbor it looks at, so concrete
+	 * implementations should override it with a check which does not build a
+	 * Cell.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public boolean isBlocked(int x, int y, int z) {
+		Cell cell = new Cell();
+		cell.setX(x);
+		cell.setY(y);
+		cell.setZ(z);
+
+		return isBlocked(cell);
+	}
+
+	/**
+	 * Get the cost the BlockManager gives entering the Cell at the specified
+	 * coordinates. The search multiplies it with the CellSpace's own cost for
+	 * the Cell, so a BlockManager reading costs from elsewhere, such as a
+	 * voxel file, can weight the search without copying them into the
+	 * CellSpace. Cell.DEFAULT_COST, which changes nothing, by default; a
+	 * negative cost makes the Cell impassable, like a blocked one.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public double getCost(int x, int y, int z) {
+		return Cell.DEFAULT_COST;
+	}
+
+	/**
+	 * Apply obstacle changes made since the last call, telling the CellSpace
+	 * which Cells changed. CellSpace.computeShortestPath calls this on the
+	 * searching thread before it searches, so BlockManagers which accept
+	 * changes from other threads can hold them until the search can take
+	 * them. Does nothing by default.
+	 */
+	public void applyUpdates() {
+	}
+
 	/**
 	 * Get the CellSpace managed by this BlockManager.
 	 * 
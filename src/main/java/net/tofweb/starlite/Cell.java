@@ -8,7 +8,7 @@ package net.tofweb.starlite;
  */
 public class Cell {
 
-	public static final Double BILLIONTH = 0.000001;
+	public static final double BILLIONTH = 0.000001;
 	public static final double DEFAULT_COST = 1.0;
 
 	private int x = 0;
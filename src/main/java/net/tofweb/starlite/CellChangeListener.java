@@ -0,0 +1,27 @@
+package net.tofweb.starlite;
+
+/**
+ * Told whenever a CellSpace is told that Cells were blocked, unblocked or
+ * changed cost, whether or not its own search has started, so structures
+ * built from the CellSpace can follow the change.
+ *
+ * @see CellSpace#addCellChangeListener(CellChangeListener)
+ * @version .9
+ * @since .9
+ */
+public interface CellChangeListener {
+
+	/**
+	 * Called when the Cells in the specified box, bounds included, were
+	 * blocked, unblocked or changed cost.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 */
+	void cellsChanged(int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
+
+}
@@ -0,0 +1,67 @@
+package net.tofweb.starlite;
+
+/**
+ * Packs the x, y, z coordinates of a Cell into a single long so Cells can be
+ * stored and compared without creating Cell objects. Each coordinate is held
+ * in 21 signed bits, so coordinates must lie in the range [-1048576,
+ * 1048575].
+ *
+ * @version .9
+ * @since .9
+ */
+public final class CellId {
+
+	/**
+	 * The smallest coordinate which can be packed.
+	 */
+	public static final int MIN_COORDINATE = -(1 << 20);
+
+	/**
+	 * The largest coordinate which can be packed.
+	 */
+	public static final int MAX_COORDINATE = (1 << 20) - 1;
+
+	private static final long MASK = (1L << 21) - 1;
+
+	private CellId() {
+		super();
+	}
+
+	/**
+	 * Pack the specified coordinates into a Cell id.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public static long pack(int x, int y, int z) {
+		return ((long) x << 42) | ((y & MASK) << 21) | (z & MASK);
+	}
+
+	public static int getX(long cellId) {
+		return (int) (cellId >> 42);
+	}
+
+	public static int getY(long cellId) {
+		return (int) ((cellId << 22) >> 43);
+	}
+
+	public static int getZ(long cellId) {
+		return (int) ((cellId << 43) >> 43);
+	}
+
+	/**
+	 * True if the specified coordinates can be packed without loss.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public static boolean isPackable(int x, int y, int z) {
+		return x >= MIN_COORDINATE && x <= MAX_COORDINATE && y >= MIN_COORDINATE && y <= MAX_COORDINATE
+				&& z >= MIN_COORDINATE && z <= MAX_COORDINATE;
+	}
+
+}
@@ -1,21 +1,114 @@
 package net.tofweb.starlite;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.function.LongConsumer;
 
 /**
  * Holds all Cells; the start Cell, the blocked Cells, other Cells, and the goal
  * Cell.
- * 
+ *
+ * The CellSpace also holds the D* Lite search state. The search runs backwards
+ * from the goal Cell, so once a Cell is consistent its g value is the cost of
+ * the cheapest path from that Cell to the goal.
+ *
+ * Internally the search addresses Cells by long ids rather than Cell objects.
+ * This CellSpace packs coordinates into ids with CellId and keeps each Cell's
+ * values in a HashMap, which suits unbounded worlds. Subclasses change how
+ * Cell values are stored by overriding the id based accessors.
+ *
+ * Neighbors are enumerated by id, either into a caller supplied buffer or
+ * through a NeighborConsumer. Neither allocates nor makes Cells, so reading
+ * the CellSpace never changes it. Which Cells are neighbors is decided by the
+ * CellSpace's Neighborhood, six face connected Cells by default. Cells are
+ * keyed by the CellSpace's Heuristic estimate from the start Cell, the
+ * Euclidean distance by default. Raising the heuristic weight above 1 makes
+ * the search greedier, trading a bounded loss of optimality for fewer
+ * expansions; AnytimePathfinder lowers it again as time allows.
+ *
+ * A CellSpace holds the state of one search and must only be used by one
+ * thread at a time, as even reads reuse internal buffers. Many searches can
+ * share obstacles by giving each its own CellSpace and a
+ * SharedObstacleBlockManager over one SharedObstacleMap.
+ *
+ * Searches are measured while a SearchMetrics or a SearchListener is
+ * attached, and cost nothing extra otherwise.
+ *
+ * Moving into a Cell costs the length of the move times the Cell's cost, so
+ * Cell costs model terrain such as mud, stairs or congestion. A negative cost
+ * makes a Cell impassable. The Heuristics assume moves cost at least their
+ * length, so costs below Cell.DEFAULT_COST trade optimality for speed.
+ *
  * @version .9
  * @since .9
  */
 public class CellSpace {
 
+	/**
+	 * The default number of Cell expansions computeShortestPath may perform
+	 * before giving up.
+	 */
+	public static final int DEFAULT_MAX_STEPS = 80000;
+
+	/**
+	 * The most neighbors any Cell can have. Neighbor buffers passed to
+	 * getSuccessors and getPredecessors must be at least this long.
+	 */
+	public static final int MAX_NEIGHBORS = Neighborhood.MAX_SIZE;
+
+	/**
+	 * The first four bytes of every snapshot; "SLSN".
+	 */
+	public static final int SNAPSHOT_MAGIC = 0x534C534E;
+
+	/**
+	 * The snapshot format version written and read by this class.
+	 */
+	public static final int SNAPSHOT_VERSION = 1;
+
+	/**
+	 * The length of a snapshot's header, in bytes.
+	 */
+	public static final int SNAPSHOT_HEADER_BYTES = 56;
+
+	// The clock is read once every 32 steps
+	private static final int DEADLINE_CHECK_MASK = 31;
+
+	private static final int SNAPSHOT_HAS_START = 1;
+	private static final int SNAPSHOT_HAS_GOAL = 2;
+	private static final int SNAPSHOT_IS_SEARCH_STARTED = 4;
+	private static final int SNAPSHOT_IS_CORNER_CUTTING_ALLOWED = 8;
+
 	private HashMap<Cell, CellInfo> cellHash = new HashMap<Cell, CellInfo>();
+	private Cell probe = new Cell();
+	private OpenList openList = new OpenList();
 	private double kM = 0.0;
 	private Cell startCell;
 	private Cell goalCell;
+	private long startId;
+	private long goalId;
+	private long[] predecessorBuffer = new long[MAX_NEIGHBORS];
+	private Neighborhood neighborhood = Neighborhood.SIX;
+	private Heuristic heuristic = Heuristic.EUCLIDEAN;
+	private double heuristicWeight = 1.0;
+	private BlockManager blockManager;
+	private int maxSteps = DEFAULT_MAX_STEPS;
+	private boolean isSearchStarted = false;
+	private SearchMetrics searchMetrics;
+	private SearchListener searchListener;
+	private final List<CellChangeListener> changeListeners = new ArrayList<CellChangeListener>();
+	private boolean isMeasured = false;
+	private long expansionCount = 0;
+	private long madeCellCount = 0;
 
 	/**
 	 * Returns an empty CellSpace
@@ -26,7 +119,7 @@ public class CellSpace {
 
 	/**
 	 * Returns the specified Cell's CellInfo
-	 * 
+	 *
 	 * @param cell
 	 * @return
 	 */
@@ -36,7 +129,7 @@ public class CellSpace {
 
 	/**
 	 * Update the specified Cell's cost using the specified double.
-	 * 
+	 *
 	 * @param cell
 	 * @param cost
 	 */
@@ -45,16 +138,183 @@ public class CellSpace {
 			return;
 		}
 
-		cellHash.get(cell).setCost(cost);
+		updateCosts(Collections.singleton(cell), cost);
+	}
+
+	/**
+	 * Update the cost of every specified Cell using the specified double.
+	 *
+	 * If the search has already started, the changed Cells and their
+	 * predecessors are brought back into the open list so the next call to
+	 * computeShortestPath repairs the existing search rather than starting
+	 * over.
+	 *
+	 * @param cells
+	 * @param cost
+	 */
+	public void updateCosts(Collection<Cell> cells, double cost) {
+		for (Cell cell : cells) {
+			makeNewCell(cell);
+			setCost(getId(cell), cost);
+		}
+
+		updateCells(cells);
+	}
+
+	/**
+	 * Set the cost of every Cell in the specified box, bounds included, to the
+	 * specified double. Cells outside the CellSpace's bounds are skipped.
+	 *
+	 * Unlike updateCosts, no Cell objects are built, and the search is told
+	 * about the change once for the whole box.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @param cost
+	 */
+	public void updateRegionCost(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, double cost) {
+		for (int z = minZ; z <= maxZ; z++) {
+			for (int y = minY; y <= maxY; y++) {
+				for (int x = minX; x <= maxX; x++) {
+					if (isInBounds(x, y, z)) {
+						long cellId = getId(x, y, z);
+						make(cellId);
+						setCost(cellId, cost);
+					}
+				}
+			}
+		}
+
+		updateRegion(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Load the costs of a box of Cells, such as a terrain map, from the
+	 * specified array. The array holds sizeX * sizeY * sizeZ costs, x varying
+	 * fastest and z slowest. Cells outside the CellSpace's bounds are skipped.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 * @param costs
+	 */
+	public void loadCosts(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, float[] costs) {
+		if (sizeX < 0 || sizeY < 0 || sizeZ < 0 || (long) sizeX * sizeY * sizeZ > costs.length) {
+			throw new IllegalArgumentException("Expected " + sizeX + " x " + sizeY + " x " + sizeZ + " costs, not "
+					+ costs.length);
+		}
+
+		int index = 0;
+		for (int z = minZ; z < minZ + sizeZ; z++) {
+			for (int y = minY; y < minY + sizeY; y++) {
+				for (int x = minX; x < minX + sizeX; x++, index++) {
+					if (isInBounds(x, y, z)) {
+						long cellId = getId(x, y, z);
+						make(cellId);
+						setCost(cellId, costs[index]);
+					}
+				}
+			}
+		}
+
+		updateRegion(minX, minY, minZ, minX + sizeX - 1, minY + sizeY - 1, minZ + sizeZ - 1);
+	}
+
+	/**
+	 * Tell the search that the cost of moving into or out of the specified
+	 * Cells has changed, for example because a BlockManager has blocked them.
+	 * The changed Cells and their predecessors are brought back into the open
+	 * list.
+	 *
+	 * @param cells
+	 */
+	public void updateCells(Collection<Cell> cells) {
+		if (!changeListeners.isEmpty()) {
+			for (Cell cell : cells) {
+				fireCellsChanged(cell.getX(), cell.getY(), cell.getZ(), cell.getX(), cell.getY(), cell.getZ());
+			}
+		}
+
+		if (!isSearchStarted) {
+			return;
+		}
+
+		for (Cell cell : cells) {
+			if (!isInBounds(cell.getX(), cell.getY(), cell.getZ())) {
+				continue;
+			}
+
+			long cellId = getId(cell);
+			updateVertex(cellId);
+			updatePredecessors(cellId);
+		}
+	}
+
+	/**
+	 * Tell the search that the cost of moving into or out of the Cells in the
+	 * specified box, bounds included, has changed. The Cells in the box and
+	 * every Cell next to it are brought back into the open list, which also
+	 * covers diagonal moves past the corners of the changed Cells.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 */
+	public void updateRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		fireCellsChanged(minX, minY, minZ, maxX, maxY, maxZ);
+
+		if (!isSearchStarted) {
+			return;
+		}
+
+		// Entering a changed Cell is a move from a Cell at most one step away
+		for (int z = minZ - 1; z <= maxZ + 1; z++) {
+			for (int y = minY - 1; y <= maxY + 1; y++) {
+				for (int x = minX - 1; x <= maxX + 1; x++) {
+					if (isInBounds(x, y, z)) {
+						updateVertex(getId(x, y, z));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Throw away the search state, keeping Cell costs, so the next call to
+	 * computeShortestPath searches from scratch. Use this when too much has
+	 * changed for repairing the search to pay off.
+	 */
+	public void resetSearch() {
+		clearSearchValues();
+
+		if (goalCell != null) {
+			setG(goalId, 0.0);
+			setRhs(goalId, 0.0);
+		}
+
+		openList.clear();
+		kM = 0.0;
+		isSearchStarted = false;
 	}
 
 	/**
 	 * Get the g value of the specified Cell.
-	 * 
+	 *
 	 * The g value, as specified by
 	 * <a href="http://idm-lab.org/bib/abstracts/papers/aaai02b.pdf">Sven
-	 * Koenig</a>, is the cost of the path from the start Cell to this Cell.
-	 * 
+	 * Koenig</a>, is the cost of the path from this Cell to the goal Cell. A
+	 * Cell the search has not reached has an infinite g value.
+	 *
 	 * @param cell
 	 * @return
 	 */
@@ -63,18 +323,16 @@ public class CellSpace {
 			return 0.0;
 		}
 
-		CellInfo info = cellHash.get(cell);
-
-		if (info == null) {
-			return 0.0;
+		if (!isInBounds(cell.getX(), cell.getY(), cell.getZ())) {
+			return Double.POSITIVE_INFINITY;
 		}
 
-		return info.getG();
+		return getG(getId(cell));
 	}
 
 	/**
 	 * Build a Cell in the CellSpace using the specified x, y, z coordinates.
-	 * 
+	 *
 	 * @param x
 	 * @param y
 	 * @param z
@@ -87,7 +345,7 @@ public class CellSpace {
 	/**
 	 * Build a Cell in the CellSpace using the specified x, y, and z coordinates
 	 * plus the specified Costs.
-	 * 
+	 *
 	 * @param x
 	 * @param y
 	 * @param z
@@ -105,40 +363,40 @@ public class CellSpace {
 	}
 
 	/**
-	 * Build a Cell in the CellSpace which is a copy of the specified Cell
-	 * 
+	 * Build a Cell in the CellSpace which is a copy of the specified Cell. A
+	 * new Cell has not been reached by the search, so its g and rhs values are
+	 * infinite. If the Cell carries a key and the start Cell is set, the key
+	 * is recalculated.
+	 *
 	 * @param cell
 	 * @return
 	 */
 	public Cell makeNewCell(Cell cell) {
-		if (cellHash.get(cell) != null) {
-			return cell;
+		if (!isInBounds(cell.getX(), cell.getY(), cell.getZ())) {
+			throw new IllegalArgumentException("Cell out of bounds: " + cell);
 		}
 
-		CellInfo cellInfo = new CellInfo();
+		long cellId = getId(cell);
 
-		if (goalCell == null) {
-			throw new RuntimeException("Goal cell not set");
+		if (!isMade(cellId)) {
+			make(cellId);
 		}
 
-		double costToGoal = Geometry.euclideanDistance(cell, goalCell);
-		cellInfo.setRhs(costToGoal);
-		cellInfo.setG(costToGoal);
-		cellHash.put(cell, cellInfo);
-
-		Costs key = cell.getKey();
-		if (key != null && !key.equals(new Costs(-1.0, -1.0))) {
-			updateVertex(cell);
+		if (cell.getKey() != null && startCell != null) {
+			cell.setKey(calculateKey(cellId));
 		}
 
-		calculateKey(cell);
-
 		return cell;
 	}
 
 	/**
 	 * Set this CellSpace's start Cell.
-	 * 
+	 *
+	 * Since the search runs backwards from the goal, moving the start Cell
+	 * keeps the existing search state. The key modifier kM is raised by the
+	 * distance moved, so the keys already in the open list remain lower
+	 * bounds.
+	 *
 	 * @param x
 	 * @param y
 	 * @param z
@@ -148,20 +406,19 @@ public class CellSpace {
 		cell.setX(x);
 		cell.setY(y);
 		cell.setZ(z);
-		this.startCell = cell;
 
-		CellInfo startCellInfo = new CellInfo();
-		double totalPathCost = Geometry.euclideanDistance(startCell, goalCell);
-		startCellInfo.setRhs(totalPathCost);
-		startCellInfo.setG(totalPathCost);
-		cellHash.put(startCell, startCellInfo);
+		if (isSearchStarted) {
+			kM += heuristicWeight
+					* heuristic.distance(x - startCell.getX(), y - startCell.getY(), z - startCell.getZ());
+		}
 
-		this.startCell = calculateKey(startCell);
+		this.startCell = makeNewCell(cell);
+		this.startId = getId(cell);
 	}
 
 	/**
 	 * Get this CellSpace's start Cell
-	 * 
+	 *
 	 * @return
 	 */
 	public Cell getStartCell() {
@@ -169,8 +426,8 @@ public class CellSpace {
 	}
 
 	/**
-	 * Set this CellSpace's goal Cell.
-	 * 
+	 * Set this CellSpace's goal Cell. Moving the goal Cell restarts the search.
+	 *
 	 * @param x
 	 * @param y
 	 * @param z
@@ -181,150 +438,1108 @@ public class CellSpace {
 		cell.setY(y);
 		cell.setZ(z);
 
-		this.goalCell = cell;
-		this.cellHash.put(goalCell, new CellInfo());
+		this.goalCell = makeNewCell(cell);
+		this.goalId = getId(cell);
+		resetSearch();
 	}
 
 	/**
 	 * Get this CellSpace's goal Cell.
-	 * 
+	 *
 	 * @return
 	 */
 	public Cell getGoalCell() {
 		return goalCell;
 	}
 
-	protected boolean isClose(double var1, double var2) {
-		if (var1 == Double.POSITIVE_INFINITY && var2 == Double.POSITIVE_INFINITY) {
-			return true;
+	/**
+	 * Get the BlockManager which determines which Cells in this CellSpace are
+	 * blocked.
+	 *
+	 * @return
+	 */
+	public BlockManager getBlockManager() {
+		return blockManager;
+	}
+
+	/**
+	 * Set the BlockManager which determines which Cells in this CellSpace are
+	 * blocked. A BlockManager registers itself with its CellSpace when it is
+	 * created.
+	 *
+	 * @param blockManager
+	 */
+	public void setBlockManager(BlockManager blockManager) {
+		this.blockManager = blockManager;
+	}
+
+	/**
+	 * Get the Neighborhood which decides which Cells a Cell can move to.
+	 *
+	 * @return
+	 */
+	public Neighborhood getNeighborhood() {
+		return neighborhood;
+	}
+
+	/**
+	 * Set the Neighborhood which decides which Cells a Cell can move to.
+	 * Changing the Neighborhood restarts the search.
+	 *
+	 * @param neighborhood
+	 */
+	public void setNeighborhood(Neighborhood neighborhood) {
+		this.neighborhood = neighborhood;
+		resetSearch();
+	}
+
+	/**
+	 * Get the Heuristic which estimates the cost between a Cell and the start
+	 * Cell.
+	 *
+	 * @return
+	 */
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	/**
+	 * Set the Heuristic which estimates the cost between a Cell and the start
+	 * Cell. Changing the Heuristic restarts the search.
+	 *
+	 * @param heuristic
+	 */
+	public void setHeuristic(Heuristic heuristic) {
+		if (heuristic == null) {
+			throw new IllegalArgumentException("A CellSpace needs a Heuristic");
 		}
 
-		return (Math.abs(var1 - var2) < 0.00001);
+		this.heuristic = heuristic;
+		resetSearch();
 	}
 
-	private void updateVertex(Cell cell) {
-		LinkedList<Cell> successors = new LinkedList<Cell>();
+	/**
+	 * Get the weight the Heuristic's estimates are multiplied by in the keys.
+	 *
+	 * @return
+	 */
+	public double getHeuristicWeight() {
+		return heuristicWeight;
+	}
 
-		if (!cell.equals(getGoalCell())) {
-			successors = getSuccessors(cell);
-			double tmp = Double.POSITIVE_INFINITY;
-			double tmp2;
+	/**
+	 * Set the weight the Heuristic's estimates are multiplied by in the keys.
+	 * Once the search converges, the start Cell's g value is at most weight
+	 * times the optimal cost, given a Heuristic which never overestimates.
+	 *
+	 * Unlike setHeuristic, changing the weight keeps the search state; the
+	 * Cells in the open list are given new keys, so the next call to
+	 * computeShortestPath carries on from the work already done.
+	 *
+	 * The weight multiplies whatever the Heuristic returns, so with a
+	 * WeightedHeuristic the two weights multiply, and the bound on the start
+	 * Cell's g value is their product. A WeightedHeuristic fixes its weight
+	 * for the life of the search; this weight can be lowered as the search
+	 * goes, as AnytimePathfinder does.
+	 *
+	 * @param heuristicWeight
+	 *            at least 1
+	 */
+	public void setHeuristicWeight(double heuristicWeight) {
+		if (!(heuristicWeight >= 1.0) || Double.isInfinite(heuristicWeight)) {
+			throw new IllegalArgumentException(
+					"Heuristic weight must be finite and at least 1, not " + heuristicWeight);
+		}
 
-			for (Cell successor : successors) {
-				tmp2 = getG(successor) + Geometry.euclideanDistance(cell, successor);
-				if (tmp2 < tmp) {
-					tmp = tmp2;
-				}
+		if (heuristicWeight == this.heuristicWeight) {
+			return;
+		}
+
+		this.heuristicWeight = heuristicWeight;
+
+		if (startCell != null && !openList.isEmpty()) {
+			// Every key is recomputed from the current start, so the
+			// accumulated start moves no longer need to be added
+			kM = 0.0;
+
+			// Copied first, as changing keys reorders the heap
+			long[] queued = new long[openList.size()];
+			for (int i = 0; i < queued.length; i++) {
+				queued[i] = openList.get(i);
 			}
 
-			if (!isClose(getRHS(cell), tmp)) {
-				setRHS(cell, tmp);
+			for (long cellId : queued) {
+				queue(cellId);
 			}
 		}
+	}
+
+	/**
+	 * Get the number of Cell expansions computeShortestPath may perform before
+	 * giving up.
+	 *
+	 * @return
+	 */
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+
+	public void setMaxSteps(int maxSteps) {
+		this.maxSteps = maxSteps;
+	}
+
+	/**
+	 * Get the SearchMetrics this CellSpace adds its searches to, or null.
+	 *
+	 * @return
+	 */
+	public SearchMetrics getSearchMetrics() {
+		return searchMetrics;
+	}
+
+	/**
+	 * Set the SearchMetrics this CellSpace adds its searches and Path
+	 * extractions to. Several CellSpaces may share one SearchMetrics. Null
+	 * stops adding.
+	 *
+	 * @param searchMetrics
+	 */
+	public void setSearchMetrics(SearchMetrics searchMetrics) {
+		this.searchMetrics = searchMetrics;
+		this.isMeasured = searchMetrics != null || searchListener != null;
+	}
+
+	/**
+	 * Get the SearchListener told about this CellSpace's searches, or null.
+	 *
+	 * @return
+	 */
+	public SearchListener getSearchListener() {
+		return searchListener;
+	}
+
+	/**
+	 * Set the SearchListener told about this CellSpace's searches and Path
+	 * extractions. Null stops telling.
+	 *
+	 * @param searchListener
+	 */
+	public void setSearchListener(SearchListener searchListener) {
+		this.searchListener = searchListener;
+		this.isMeasured = searchMetrics != null || searchListener != null;
+	}
 
-		if (!isClose(getG(cell), getRHS(cell))) {
-			insertCell(cell);
+	/**
+	 * Add a CellChangeListener told whenever updateCells or updateRegion is
+	 * called, and so whenever a BlockManager blocks or unblocks Cells or Cell
+	 * costs change.
+	 *
+	 * @param listener
+	 */
+	public void addCellChangeListener(CellChangeListener listener) {
+		changeListeners.add(listener);
+	}
+
+	/**
+	 * Stop telling the specified CellChangeListener about changes.
+	 *
+	 * @param listener
+	 */
+	public void removeCellChangeListener(CellChangeListener listener) {
+		changeListeners.remove(listener);
+	}
+
+	private void fireCellsChanged(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		for (int i = 0; i < changeListeners.size(); i++) {
+			changeListeners.get(i).cellsChanged(minX, minY, minZ, maxX, maxY, maxZ);
 		}
 	}
 
-	private void setRHS(Cell state, double rhs) {
-		makeNewCell(state);
-		cellHash.get(state).setRhs(rhs);
+	/**
+	 * Run the D* Lite search until the start Cell is consistent.
+	 *
+	 * Only locally inconsistent Cells are expanded, so a search which has
+	 * already converged returns immediately. The search gives up after
+	 * maxSteps expansions, which keeps a start Cell that cannot reach the goal
+	 * from searching an unbounded CellSpace forever.
+	 *
+	 * @return true if the search converged, false if it ran out of steps
+	 */
+	public boolean computeShortestPath() {
+		return computeShortestPath(false, 0);
+	}
+
+	/**
+	 * Run the D* Lite search until the start Cell is consistent, or until
+	 * System.nanoTime() passes the specified deadline. The clock is read
+	 * every few dozen expansions, so the search may overrun the deadline by
+	 * that many expansions. A search which ran out of time carries on from
+	 * where it stopped on the next call.
+	 *
+	 * @param deadlineNanos
+	 *            a System.nanoTime() value
+	 * @return true if the search converged, false if it ran out of steps or
+	 *         time
+	 */
+	public boolean computeShortestPath(long deadlineNanos) {
+		return computeShortestPath(true, deadlineNanos);
 	}
 
-	private double getRHS(Cell state) {
+	private boolean computeShortestPath(boolean hasDeadline, long deadlineNanos) {
+		if (!isMeasured) {
+			return search(hasDeadline, deadlineNanos);
+		}
+
+		long startNanos = System.nanoTime();
+		boolean isReplan = isSearchStarted;
+		long startExpansions = expansionCount;
+		long startPushes = openList.getPushCount();
+		long startPops = openList.getPopCount();
+		long startMadeCells = madeCellCount;
+		openList.resetPeakSize();
+
+		boolean isComplete = search(hasDeadline, deadlineNanos);
+
+		SearchMetrics search = new SearchMetrics();
+		search.recordSearch(isReplan, isComplete, expansionCount - startExpansions,
+				openList.getPushCount() - startPushes, openList.getPopCount() - startPops, openList.getPeakSize(),
+				madeCellCount - startMadeCells, System.nanoTime() - startNanos);
+		report(search, true);
+
+		return isComplete;
+	}
+
+	/**
+	 * True if a SearchMetrics or SearchListener is attached.
+	 *
+	 * @return
+	 */
+	boolean isMeasured() {
+		return isMeasured;
+	}
+
+	/**
+	 * Report a Path extraction of the specified number of Cells which took
+	 * the specified time.
+	 *
+	 * @param cells
+	 * @param nanos
+	 */
+	void recordExtraction(long cells, long nanos) {
+		if (!isMeasured) {
+			return;
+		}
+
+		SearchMetrics extraction = new SearchMetrics();
+		extraction.recordExtraction(cells, nanos);
+		report(extraction, false);
+	}
+
+	/**
+	 * True if the search has started, so the next call to computeShortestPath
+	 * repairs it.
+	 *
+	 * @return
+	 */
+	boolean isSearchStarted() {
+		return isSearchStarted;
+	}
+
+	/**
+	 * Get the number of Cells expanded by every search so far.
+	 *
+	 * @return
+	 */
+	long getExpansionCount() {
+		return expansionCount;
+	}
+
+	/**
+	 * Get the number of Cells added to the open list by every search so far.
+	 *
+	 * @return
+	 */
+	long getPushCount() {
+		return openList.getPushCount();
+	}
+
+	private boolean search(boolean hasDeadline, long deadlineNanos) {
 		if (goalCell == null) {
 			throw new RuntimeException("Goal cell not set");
 		}
 
-		if (state == goalCell) {
-			return 0;
+		if (startCell == null) {
+			throw new RuntimeException("Start cell not set");
 		}
 
-		if (cellHash.get(state) == null) {
-			return Geometry.euclideanDistance(state, goalCell);
+		// A safe point for obstacle changes made by other threads
+		if (blockManager != null) {
+			blockManager.applyUpdates();
 		}
 
-		return cellHash.get(state).getRhs();
+		if (!isSearchStarted) {
+			isSearchStarted = true;
+			updatePredecessors(goalId);
+		}
+
+		int steps = 0;
+		while (!openList.isEmpty() && (isTopKeyBelow(startId) || !isClose(getRhs(startId), getG(startId)))) {
+
+			if (steps++ >= maxSteps) {
+				return false;
+			}
+
+			if (hasDeadline && (steps & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() - deadlineNanos >= 0) {
+				return false;
+			}
+
+			long cellId = openList.peek();
+
+			if (isTopKeyBelow(cellId)) {
+				queue(cellId);
+			} else if (getG(cellId) > getRhs(cellId)) {
+				expansionCount++;
+				setG(cellId, getRhs(cellId));
+				openList.remove(cellId);
+				updatePredecessors(cellId);
+			} else {
+				expansionCount++;
+				setG(cellId, Double.POSITIVE_INFINITY);
+				updateVertex(cellId);
+				updatePredecessors(cellId);
+			}
+		}
+
+		return true;
 	}
 
-	private void insertCell(Cell cell) {
-		cell = calculateKey(cell);
+	private void report(SearchMetrics metrics, boolean isSearch) {
+		if (searchMetrics != null) {
+			searchMetrics.add(metrics);
+		}
+
+		if (searchListener != null) {
+			if (isSearch) {
+				searchListener.searchCompleted(metrics);
+			} else {
+				searchListener.pathExtracted(metrics);
+			}
+		}
 	}
 
-	// TODO Refactor with predeccesors.
-	public LinkedList<Cell> getSuccessors(Cell state) {
-		LinkedList<Cell> successors = new LinkedList<Cell>();
-		Cell tempState;
+	/**
+	 * Write the search state to the specified channel, so a later process can
+	 * read it with readSnapshot rather than searching from scratch.
+	 *
+	 * A snapshot is a header of big endian values; SNAPSHOT_MAGIC,
+	 * SNAPSHOT_VERSION, flags, the Neighborhood's axes, the start and goal
+	 * coordinates, kM and the number of Cells. Then come the Cells column by
+	 * column; every x, every y, every z, every g, every rhs and every cost.
+	 * Only Cells the search has reached or whose cost is not the default are
+	 * written. The open list is not written, as it holds exactly the Cells
+	 * whose g and rhs values differ.
+	 *
+	 * The BlockManager, Heuristic and heuristic weight are not part of the
+	 * snapshot.
+	 *
+	 * @param channel
+	 * @throws IOException
+	 */
+	public void writeSnapshot(WritableByteChannel channel) throws IOException {
+		IdCollector collector = new IdCollector();
+		forEachMadeCell(collector);
+
+		long[] ids = collector.ids;
+		int count = collector.count;
+
+		int flags = 0;
+		flags |= startCell != null ? SNAPSHOT_HAS_START : 0;
+		flags |= goalCell != null ? SNAPSHOT_HAS_GOAL : 0;
+		flags |= isSearchStarted ? SNAPSHOT_IS_SEARCH_STARTED : 0;
+		flags |= neighborhood.isCornerCuttingAllowed() ? SNAPSHOT_IS_CORNER_CUTTING_ALLOWED : 0;
+
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(flags).putInt(neighborhood.getMaxAxes());
+		buffer.putInt(startCell != null ? startCell.getX() : 0).putInt(startCell != null ? startCell.getY() : 0)
+				.putInt(startCell != null ? startCell.getZ() : 0);
+		buffer.putInt(goalCell != null ? goalCell.getX() : 0).putInt(goalCell != null ? goalCell.getY() : 0)
+				.putInt(goalCell != null ? goalCell.getZ() : 0);
+		buffer.putDouble(kM).putLong(count);
+
+		for (int i = 0; i < count; i++) {
+			drain(channel, buffer, 4).putInt(getX(ids[i]));
+		}
+
+		for (int i = 0; i < count; i++) {
+			drain(channel, buffer, 4).putInt(getY(ids[i]));
+		}
+
+		for (int i = 0; i < count; i++) {
+			drain(channel, buffer, 4).putInt(getZ(ids[i]));
+		}
+
+		for (int i = 0; i < count; i++) {
+			drain(channel, buffer, 8).putDouble(getG(ids[i]));
+		}
+
+		for (int i = 0; i < count; i++) {
+			drain(channel, buffer, 8).putDouble(getRhs(ids[i]));
+		}
+
+		for (int i = 0; i < count; i++) {
+			drain(channel, buffer, 4).putFloat((float) getCost(ids[i]));
+		}
+
+		drain(channel, buffer, buffer.capacity());
+	}
+
+	/**
+	 * Replace the search state with the snapshot in the specified channel. A
+	 * FileChannel is memory mapped rather than copied.
+	 *
+	 * @see #readSnapshot(ByteBuffer)
+	 * @param channel
+	 * @throws IOException
+	 */
+	public void readSnapshot(ReadableByteChannel channel) throws IOException {
+		if (channel instanceof FileChannel) {
+			FileChannel fileChannel = (FileChannel) channel;
+			long position = fileChannel.position();
+			readSnapshot(fileChannel.map(FileChannel.MapMode.READ_ONLY, position, fileChannel.size() - position));
+			return;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		while (channel.read(buffer) >= 0) {
+			if (!buffer.hasRemaining()) {
+				ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+
+		buffer.flip();
+		readSnapshot(buffer);
+	}
+
+	/**
+	 * Replace the search state with the snapshot in the specified buffer,
+	 * such as a MappedByteBuffer. Cell values are read in place, column by
+	 * column, and the open list is rebuilt from the Cells whose g and rhs
+	 * values differ. Cells the snapshot does not mention keep their costs.
+	 *
+	 * @param snapshot
+	 * @throws IOException
+	 *             if the buffer does not hold a snapshot, or holds Cells
+	 *             outside this CellSpace's bounds
+	 */
+	public void readSnapshot(ByteBuffer snapshot) throws IOException {
+		ByteBuffer buffer = snapshot.duplicate();
+
+		if (buffer.remaining() < SNAPSHOT_HEADER_BYTES || buffer.getInt() != SNAPSHOT_MAGIC) {
+			throw new IOException("Not a CellSpace snapshot");
+		}
+
+		int version = buffer.getInt();
+		if (version != SNAPSHOT_VERSION) {
+			throw new IOException("Unsupported CellSpace snapshot version " + version);
+		}
+
+		int flags = buffer.getInt();
+		int maxAxes = buffer.getInt();
+		int startX = buffer.getInt();
+		int startY = buffer.getInt();
+		int startZ = buffer.getInt();
+		int goalX = buffer.getInt();
+		int goalY = buffer.getInt();
+		int goalZ = buffer.getInt();
+		double snapshotKM = buffer.getDouble();
+		long count = buffer.getLong();
+
+		if (maxAxes < 1 || maxAxes > 3 || count < 0 || count > Integer.MAX_VALUE
+				|| buffer.remaining() < count * 32) {
+			throw new IOException("Corrupt CellSpace snapshot");
+		}
+
+		int base = buffer.position();
+		int xColumn = base;
+		int yColumn = xColumn + (int) count * 4;
+		int zColumn = yColumn + (int) count * 4;
+		int gColumn = zColumn + (int) count * 4;
+		int rhsColumn = gColumn + (int) count * 8;
+		int costColumn = rhsColumn + (int) count * 8;
+
+		for (int i = 0; i < count; i++) {
+			int x = buffer.getInt(xColumn + i * 4);
+			int y = buffer.getInt(yColumn + i * 4);
+			int z = buffer.getInt(zColumn + i * 4);
+
+			if (!isInBounds(x, y, z)) {
+				throw new IOException("Snapshot Cell (" + x + ", " + y + ", " + z + ") out of bounds");
+			}
+		}
+
+		this.neighborhood = new Neighborhood(maxAxes, (flags & SNAPSHOT_IS_CORNER_CUTTING_ALLOWED) != 0);
+		this.startCell = null;
+
+		if ((flags & SNAPSHOT_HAS_GOAL) != 0) {
+			setGoalCell(goalX, goalY, goalZ);
+		} else {
+			this.goalCell = null;
+			resetSearch();
+		}
+
+		if ((flags & SNAPSHOT_HAS_START) != 0) {
+			setStartCell(startX, startY, startZ);
+		}
+
+		for (int i = 0; i < count; i++) {
+			long cellId = getId(buffer.getInt(xColumn + i * 4), buffer.getInt(yColumn + i * 4),
+					buffer.getInt(zColumn + i * 4));
+			make(cellId);
+			setG(cellId, buffer.getDouble(gColumn + i * 8));
+			setRhs(cellId, buffer.getDouble(rhsColumn + i * 8));
+			setCost(cellId, buffer.getFloat(costColumn + i * 4));
+		}
+
+		this.kM = snapshotKM;
+		this.isSearchStarted = (flags & SNAPSHOT_IS_SEARCH_STARTED) != 0;
+
+		if (startCell != null) {
+			for (int i = 0; i < count; i++) {
+				long cellId = getId(buffer.getInt(xColumn + i * 4), buffer.getInt(yColumn + i * 4),
+						buffer.getInt(zColumn + i * 4));
+
+				if (!isClose(getG(cellId), getRhs(cellId))) {
+					queue(cellId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the cost of moving from one Cell to a neighboring Cell; the length
+	 * of the move times the cost of the Cell moved into. Moving into or out of
+	 * a blocked Cell costs infinity.
+	 *
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public double cost(Cell from, Cell to) {
+		return cost(getId(from), getId(to));
+	}
+
+	/**
+	 * Get the cost of moving from the Cell with one id to the neighboring Cell
+	 * with another; the length of the move times the cost of the Cell moved
+	 * into, and times the cost the BlockManager gives that Cell. Moving into
+	 * or out of a blocked Cell, past the corner of a blocked Cell when the
+	 * Neighborhood forbids corner cutting, or between Cells which are not
+	 * neighbors, costs infinity.
+	 *
+	 * @param fromId
+	 * @param toId
+	 * @return
+	 */
+	public double cost(long fromId, long toId) {
+		int x = getX(fromId);
+		int y = getY(fromId);
+		int z = getZ(fromId);
+		int move = neighborhood.indexOf(getX(toId) - x, getY(toId) - y, getZ(toId) - z);
+
+		if (move < 0 || isBlocked(fromId)) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		return moveCost(x, y, z, move, toId);
+	}
+
+	/**
+	 * Write the ids of the Cells the Cell with the specified id can move to
+	 * into the specified buffer, which must hold at least MAX_NEIGHBORS ids.
+	 * Cells outside the CellSpace are skipped.
+	 *
+	 * @param cellId
+	 * @param neighbors
+	 * @return the number of ids written
+	 */
+	public int getSuccessors(long cellId, long[] neighbors) {
+		int x = getX(cellId);
+		int y = getY(cellId);
+		int z = getZ(cellId);
+		int count = 0;
+
+		for (int move = 0; move < neighborhood.size(); move++) {
+			int neighborX = x + neighborhood.getOffsetX(move);
+			int neighborY = y + neighborhood.getOffsetY(move);
+			int neighborZ = z + neighborhood.getOffsetZ(move);
+
+			if (isInBounds(neighborX, neighborY, neighborZ)) {
+				neighbors[count++] = getId(neighborX, neighborY, neighborZ);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Write the ids of the Cells which can move to the Cell with the specified
+	 * id into the specified buffer, which must hold at least MAX_NEIGHBORS ids.
+	 * Cells outside the CellSpace are skipped.
+	 *
+	 * @param cellId
+	 * @param neighbors
+	 * @return the number of ids written
+	 */
+	public int getPredecessors(long cellId, long[] neighbors) {
+		// Moves are symmetric
+		return getSuccessors(cellId, neighbors);
+	}
+
+	/**
+	 * Pass the id of every Cell the Cell with the specified id can move to, to
+	 * the specified NeighborConsumer.
+	 *
+	 * @param cellId
+	 * @param consumer
+	 */
+	public void forEachSuccessor(long cellId, NeighborConsumer consumer) {
+		int x = getX(cellId);
+		int y = getY(cellId);
+		int z = getZ(cellId);
+
+		for (int move = 0; move < neighborhood.size(); move++) {
+			int neighborX = x + neighborhood.getOffsetX(move);
+			int neighborY = y + neighborhood.getOffsetY(move);
+			int neighborZ = z + neighborhood.getOffsetZ(move);
+
+			if (isInBounds(neighborX, neighborY, neighborZ)) {
+				consumer.accept(getId(neighborX, neighborY, neighborZ));
+			}
+		}
+	}
+
+	/**
+	 * Pass the id of every Cell which can move to the Cell with the specified
+	 * id, to the specified NeighborConsumer.
+	 *
+	 * @param cellId
+	 * @param consumer
+	 */
+	public void forEachPredecessor(long cellId, NeighborConsumer consumer) {
+		forEachSuccessor(cellId, consumer);
+	}
+
+	protected boolean isClose(double var1, double var2) {
+		if (var1 == Double.POSITIVE_INFINITY && var2 == Double.POSITIVE_INFINITY) {
+			return true;
+		}
+
+		return (Math.abs(var1 - var2) < 0.00001);
+	}
+
+	/**
+	 * True if the specified coordinates lie inside this CellSpace. Cells
+	 * outside the CellSpace are never made and are never neighbors.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public boolean isInBounds(int x, int y, int z) {
+		return CellId.isPackable(x, y, z);
+	}
+
+	/**
+	 * Get the id of the in bounds Cell at the specified coordinates.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public long getId(int x, int y, int z) {
+		return CellId.pack(x, y, z);
+	}
+
+	public int getX(long cellId) {
+		return CellId.getX(cellId);
+	}
+
+	public int getY(long cellId) {
+		return CellId.getY(cellId);
+	}
+
+	public int getZ(long cellId) {
+		return CellId.getZ(cellId);
+	}
+
+	/**
+	 * True if the Cell with the specified id has been made.
+	 *
+	 * @param cellId
+	 * @return
+	 */
+	public boolean isMade(long cellId) {
+		return lookup(cellId) != null;
+	}
+
+	/**
+	 * Get the number of Cells this CellSpace holds values for. A CellSpace
+	 * holds every Cell it has made, even after its search is reset.
+	 *
+	 * @return
+	 */
+	public long getStoredCellCount() {
+		return cellHash.size();
+	}
+
+	/**
+	 * Make the Cell with the specified id, with infinite g and rhs values and
+	 * the default cost.
+	 *
+	 * @param cellId
+	 */
+	protected void make(long cellId) {
+		Cell cell = new Cell();
+		cell.setX(getX(cellId));
+		cell.setY(getY(cellId));
+		cell.setZ(getZ(cellId));
+
+		CellInfo cellInfo = new CellInfo();
+		cellInfo.setRhs(Double.POSITIVE_INFINITY);
+		cellInfo.setG(Double.POSITIVE_INFINITY);
+		cellHash.put(cell, cellInfo);
+	}
+
+	/**
+	 * Get the g value of the Cell with the specified id, or infinity if the
+	 * Cell has not been made.
+	 *
+	 * @param cellId
+	 * @return
+	 */
+	public double getG(long cellId) {
+		CellInfo info = lookup(cellId);
+		return info == null ? Double.POSITIVE_INFINITY : info.getG();
+	}
+
+	/**
+	 * Set the g value of the Cell with the specified id, making it if needed.
+	 *
+	 * @param cellId
+	 * @param g
+	 */
+	protected void setG(long cellId, double g) {
+		makeInfo(cellId).setG(g);
+	}
+
+	/**
+	 * Get the rhs value of the Cell with the specified id, or infinity if the
+	 * Cell has not been made.
+	 *
+	 * @param cellId
+	 * @return
+	 */
+	public double getRhs(long cellId) {
+		CellInfo info = lookup(cellId);
+		return info == null ? Double.POSITIVE_INFINITY : info.getRhs();
+	}
+
+	/**
+	 * Set the rhs value of the Cell with the specified id, making it if needed.
+	 *
+	 * @param cellId
+	 * @param rhs
+	 */
+	protected void setRhs(long cellId, double rhs) {
+		makeInfo(cellId).setRhs(rhs);
+	}
+
+	/**
+	 * Get the cost of the Cell with the specified id, or the default cost if
+	 * the Cell has not been made.
+	 *
+	 * @param cellId
+	 * @return
+	 */
+	public double getCost(long cellId) {
+		CellInfo info = lookup(cellId);
+		return info == null ? Cell.DEFAULT_COST : info.getCost();
+	}
+
+	/**
+	 * Set the cost of the Cell with the specified id, making it if needed.
+	 *
+	 * @param cellId
+	 * @param cost
+	 */
+	protected void setCost(long cellId, double cost) {
+		makeInfo(cellId).setCost(cost);
+	}
+
+	/**
+	 * Set the g and rhs values of every made Cell to infinity, keeping their
+	 * costs.
+	 */
+	protected void clearSearchValues() {
+		for (CellInfo info : cellHash.values()) {
+			info.setG(Double.POSITIVE_INFINITY);
+			info.setRhs(Double.POSITIVE_INFINITY);
+		}
+	}
+
+	/**
+	 * Pass the id of every made Cell to the specified consumer.
+	 *
+	 * @param consumer
+	 */
+	protected void forEachMadeCell(LongConsumer consumer) {
+		for (Cell cell : cellHash.keySet()) {
+			consumer.accept(getId(cell));
+		}
+	}
+
+	private CellInfo lookup(long cellId) {
+		probe.setX(getX(cellId));
+		probe.setY(getY(cellId));
+		probe.setZ(getZ(cellId));
+
+		return cellHash.get(probe);
+	}
+
+	private CellInfo makeInfo(long cellId) {
+		CellInfo info = lookup(cellId);
+
+		if (info == null) {
+			make(cellId);
+			info = lookup(cellId);
+		}
+
+		return info;
+	}
+
+	/**
+	 * Get the id of the specified in bounds Cell.
+	 *
+	 * @param cell
+	 * @return
+	 */
+	public long getId(Cell cell) {
+		return getId(cell.getX(), cell.getY(), cell.getZ());
+	}
 
-		// Generate the successors, starting at the immediate right and moving
-		// in a clockwise manner
-		tempState = makeNewCell(state.getX() + 1, state.getY(), state.getZ(), new Costs(-1.0, -1.0));
-		successors.addFirst(tempState);
+	/**
+	 * Build a Cell object for the specified id. The Cell is not made.
+	 *
+	 * @param cellId
+	 * @return
+	 */
+	public Cell toCell(long cellId) {
+		Cell cell = new Cell();
+		cell.setX(getX(cellId));
+		cell.setY(getY(cellId));
+		cell.setZ(getZ(cellId));
 
-		tempState = makeNewCell(state.getX(), state.getY() + 1, state.getZ(), new Costs(-1.0, -1.0));
-		successors.addFirst(tempState);
+		return cell;
+	}
 
-		tempState = makeNewCell(state.getX() - 1, state.getY(), state.getZ(), new Costs(-1.0, -1.0));
-		successors.addFirst(tempState);
+	private boolean isBlocked(long cellId) {
+		return blockManager != null && blockManager.isBlocked(getX(cellId), getY(cellId), getZ(cellId));
+	}
 
-		tempState = makeNewCell(state.getX(), state.getY() - 1, state.getZ(), new Costs(-1.0, -1.0));
-		successors.addFirst(tempState);
+	private double moveCost(int x, int y, int z, int move, long toId) {
+		double cost = getCost(toId);
 
-		// Up one z level
-		tempState = makeNewCell(state.getX(), state.getY(), state.getZ() + 1, new Costs(-1.0, -1.0));
-		successors.addFirst(tempState);
+		if (cost < 0 || isBlocked(toId) || neighborhood.isCornerCut(blockManager, x, y, z, move)) {
+			return Double.POSITIVE_INFINITY;
+		}
 
-		// Down one z level
-		tempState = makeNewCell(state.getX(), state.getY(), state.getZ() - 1, new Costs(-1.0, -1.0));
-		successors.addFirst(tempState);
+		if (blockManager != null) {
+			double blockCost = blockManager.getCost(getX(toId), getY(toId), getZ(toId));
+
+			if (blockCost < 0) {
+				return Double.POSITIVE_INFINITY;
+			}
+
+			cost *= blockCost;
+		}
+
+		return neighborhood.getStepCost(move) * cost;
+	}
+
+	private void updateVertex(long cellId) {
+		if (cellId != goalId) {
+			double tmp = Double.POSITIVE_INFINITY;
+			double tmp2;
+
+			if (!isBlocked(cellId)) {
+				int x = getX(cellId);
+				int y = getY(cellId);
+				int z = getZ(cellId);
+
+				for (int move = 0; move < neighborhood.size(); move++) {
+					int successorX = x + neighborhood.getOffsetX(move);
+					int successorY = y + neighborhood.getOffsetY(move);
+					int successorZ = z + neighborhood.getOffsetZ(move);
+
+					if (!isInBounds(successorX, successorY, successorZ)) {
+						continue;
+					}
+
+					long successor = getId(successorX, successorY, successorZ);
+					double g = getG(successor);
+
+					// Only reached successors can lower the rhs value
+					if (g == Double.POSITIVE_INFINITY) {
+						continue;
+					}
+
+					tmp2 = moveCost(x, y, z, move, successor) + g;
+					if (tmp2 < tmp) {
+						tmp = tmp2;
+					}
+				}
+			}
+
+			// Unreached Cells are left unmade
+			if (tmp != Double.POSITIVE_INFINITY) {
+				if (isMeasured && !isMade(cellId)) {
+					madeCellCount++;
+				}
+
+				setRhs(cellId, tmp);
+			} else if (isMade(cellId)) {
+				setRhs(cellId, tmp);
+			}
+		}
+
+		if (!isClose(getG(cellId), getRhs(cellId))) {
+			queue(cellId);
+		} else {
+			openList.remove(cellId);
+		}
+	}
+
+	private void updatePredecessors(long cellId) {
+		// Held in their own buffer, as updateVertex reuses the successor buffer
+		int count = getPredecessors(cellId, predecessorBuffer);
+		for (int i = 0; i < count; i++) {
+			updateVertex(predecessorBuffer[i]);
+		}
+	}
+
+	/**
+	 * Get the Cells the specified Cell can move to. The Cells are not made.
+	 *
+	 * @param state
+	 * @return
+	 */
+	public LinkedList<Cell> getSuccessors(Cell state) {
+		LinkedList<Cell> successors = new LinkedList<Cell>();
+		long[] neighbors = new long[MAX_NEIGHBORS];
+
+		int count = getSuccessors(getId(state), neighbors);
+		for (int i = 0; i < count; i++) {
+			successors.add(toCell(neighbors[i]));
+		}
 
 		return successors;
 	}
 
+	/**
+	 * Get the Cells which can move to the specified Cell. The Cells are not
+	 * made.
+	 *
+	 * @param state
+	 * @return
+	 */
 	public LinkedList<Cell> getPredecessors(Cell state) {
 		LinkedList<Cell> predecessors = new LinkedList<Cell>();
-		Cell tempState;
+		long[] neighbors = new long[MAX_NEIGHBORS];
 
-		tempState = makeNewCell(state.getX() + 1, state.getY(), state.getZ(), new Costs(-1.0, -1.0));
-		predecessors.addFirst(tempState);
+		int count = getPredecessors(getId(state), neighbors);
+		for (int i = 0; i < count; i++) {
+			predecessors.add(toCell(neighbors[i]));
+		}
 
-		tempState = makeNewCell(state.getX(), state.getY() + 1, state.getZ(), new Costs(-1.0, -1.0));
-		predecessors.addFirst(tempState);
+		return predecessors;
+	}
 
-		tempState = makeNewCell(state.getX() - 1, state.getY(), state.getZ(), new Costs(-1.0, -1.0));
-		predecessors.addFirst(tempState);
+	private Costs calculateKey(long cellId) {
+		double cost = Math.min(getRhs(cellId), getG(cellId));
 
-		tempState = makeNewCell(state.getX(), state.getY() - 1, state.getZ(), new Costs(-1.0, -1.0));
-		predecessors.addFirst(tempState);
+		return new Costs(costPlusHeuristic(cellId, cost), cost);
+	}
 
-		tempState = makeNewCell(state.getX(), state.getY(), state.getZ() + 1, new Costs(-1.0, -1.0));
-		predecessors.addFirst(tempState);
+	/**
+	 * Queue the specified Cell with its current key, computed as two
+	 * primitives so no Costs is built.
+	 */
+	private void queue(long cellId) {
+		double cost = Math.min(getRhs(cellId), getG(cellId));
+		openList.insert(cellId, costPlusHeuristic(cellId, cost), cost);
+	}
 
-		tempState = makeNewCell(state.getX(), state.getY(), state.getZ() - 1, new Costs(-1.0, -1.0));
-		predecessors.addFirst(tempState);
+	/**
+	 * True if the smallest key in the open list is below the specified Cell's
+	 * current key.
+	 */
+	private boolean isTopKeyBelow(long cellId) {
+		double cost = Math.min(getRhs(cellId), getG(cellId));
 
-		return predecessors;
+		return Costs.compare(openList.topPrimaryKey(), openList.topSecondaryKey(), costPlusHeuristic(cellId, cost),
+				cost) < 0;
 	}
 
-	private Cell calculateKey(Cell state) {
-		Cell startCell = getStartCell();
-
+	private double costPlusHeuristic(long cellId, double cost) {
 		if (startCell == null) {
 			throw new RuntimeException("Start cell not set");
 		}
 
-		double cost = Math.min(getRHS(state), getG(state));
+		double estimate = heuristic.distance(getX(cellId) - getX(startId), getY(cellId) - getY(startId),
+				getZ(cellId) - getZ(startId));
 
-		Costs key = state.getKey();
+		return cost + heuristicWeight * estimate + kM;
+	}
 
-		if (key == null) {
-			key = new Costs(0.0, 0.0);
+	private static ByteBuffer drain(WritableByteChannel channel, ByteBuffer buffer, int needed) throws IOException {
+		if (buffer.remaining() < needed) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
 		}
 
-		key.setCostPlusHeuristic(cost + Geometry.euclideanDistance(state, startCell) + kM);
-		key.setCost(cost);
+		return buffer;
+	}
+
+	/**
+	 * Collects the ids of the Cells worth writing to a snapshot.
+	 */
+	private class IdCollector implements LongConsumer {
+
+		private long[] ids = new long[1024];
+		private int count = 0;
+
+		@Override
+		public void accept(long cellId) {
+			if (getG(cellId) == Double.POSITIVE_INFINITY && getRhs(cellId) == Double.POSITIVE_INFINITY
+					&& getCost(cellId) == Cell.DEFAULT_COST) {
+				return;
+			}
 
-		return state;
+			if (count == ids.length) {
+				long[] grown = new long[ids.length * 2];
+				System.arraycopy(ids, 0, grown, 0, count);
+				ids = grown;
+			}
+
+			ids[count++] = cellId;
+		}
 	}
 }
@@ -0,0 +1,166 @@
+package net.tofweb.starlite;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A path from the start Cell toward the goal Cell stored as packed
+ * coordinates, three ints per Cell, rather than as a list of Cell objects.
+ * Like a Path, it is complete if it reaches the goal Cell.
+ *
+ * Cells are only built when asked for through get or the iterator; the
+ * coordinate getters read the packed array directly.
+ *
+ * @see Pathfinder#findCompactPath()
+ * @version .9
+ * @since .9
+ */
+public class CompactPath implements Iterable<Cell> {
+
+	private int[] coordinates;
+	private int size = 0;
+	private boolean isComplete = false;
+
+	/**
+	 * Returns an empty, incomplete CompactPath.
+	 */
+	public CompactPath() {
+		this(16);
+	}
+
+	/**
+	 * Returns an empty, incomplete CompactPath with room for the specified
+	 * number of Cells before growing.
+	 *
+	 * @param capacity
+	 */
+	public CompactPath(int capacity) {
+		super();
+		this.coordinates = new int[Math.max(capacity, 1) * 3];
+	}
+
+	/**
+	 * Return true if the path concludes at the CellSpace's goal Cell.
+	 *
+	 * @return
+	 */
+	public boolean isComplete() {
+		return isComplete;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getX(int index) {
+		return coordinates[checkIndex(index) * 3];
+	}
+
+	public int getY(int index) {
+		return coordinates[checkIndex(index) * 3 + 1];
+	}
+
+	public int getZ(int index) {
+		return coordinates[checkIndex(index) * 3 + 2];
+	}
+
+	/**
+	 * Returns a new Cell at the coordinates of the specified step.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public Cell get(int index) {
+		int offset = checkIndex(index) * 3;
+
+		Cell cell = new Cell();
+		cell.setX(coordinates[offset]);
+		cell.setY(coordinates[offset + 1]);
+		cell.setZ(coordinates[offset + 2]);
+
+		return cell;
+	}
+
+	/**
+	 * Returns a Path of the same Cells, complete if this one is.
+	 *
+	 * @return
+	 */
+	public Path toPath() {
+		Path path = new Path();
+		for (int i = 0; i < size; i++) {
+			path.add(get(i));
+		}
+
+		path.setComplete(isComplete);
+
+		return path;
+	}
+
+	@Override
+	public Iterator<Cell> iterator() {
+		return new Iterator<Cell>() {
+
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public Cell next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+
+				return get(index++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("A CompactPath cannot be changed");
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("CompactPath [complete=").append(isComplete).append(", cells=");
+		for (int i = 0; i < size; i++) {
+			builder.append(i == 0 ? "" : " ").append('(').append(getX(i)).append(", ").append(getY(i)).append(", ")
+					.append(getZ(i)).append(')');
+		}
+
+		return builder.append(']').toString();
+	}
+
+	void add(int x, int y, int z) {
+		if (size * 3 == coordinates.length) {
+			coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+		}
+
+		coordinates[size * 3] = x;
+		coordinates[size * 3 + 1] = y;
+		coordinates[size * 3 + 2] = z;
+		size++;
+	}
+
+	void setComplete(boolean isComplete) {
+		this.isComplete = isComplete;
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " of a CompactPath of " + size + " Cells");
+		}
+
+		return index;
+	}
+
+}
@@ -0,0 +1,218 @@
+package net.tofweb.starlite;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A BlockManager for a bounded box of Cells which other threads, such as
+ * sensor threads, may block and unblock while a search runs.
+ *
+ * Blocked Cells are kept one bit per Cell, x varying fastest, in an
+ * AtomicLongArray. A change sets or clears its bits with a compare and swap
+ * per word, so the occupancy view is always current and never locked, then
+ * queues the changed box on a lock free ObstacleUpdateQueue. The searching
+ * thread drains the queue in applyUpdates, which
+ * CellSpace.computeShortestPath calls before it searches, so the search
+ * repairs every Cell a change touched.
+ *
+ * A search which reads a bit before its change is drained only sees the
+ * change early; the drain makes every affected Cell recompute its rhs value
+ * from the current bits. The start and goal Cells are not protected, as the
+ * CellSpace must not be read from other threads.
+ *
+ * @version .9
+ * @since .9
+ */
+public class ConcurrentBlockManager extends BlockManager {
+
+	private final int minX;
+	private final int minY;
+	private final int minZ;
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+	private final AtomicLongArray bits;
+	private final ObstacleUpdateQueue updates = new ObstacleUpdateQueue();
+
+	/**
+	 * Return a ConcurrentBlockManager which manages the specified
+	 * DenseCellSpace, covering the same bounds.
+	 *
+	 * @param space
+	 */
+	public ConcurrentBlockManager(DenseCellSpace space) {
+		this(space, space.getMinX(), space.getMinY(), space.getMinZ(), space.getSizeX(), space.getSizeY(),
+				space.getSizeZ());
+	}
+
+	/**
+	 * Return a ConcurrentBlockManager which manages the specified CellSpace,
+	 * covering the specified number of Cells along each axis, starting at the
+	 * specified minimum coordinates. Cells outside are never blocked.
+	 *
+	 * @param space
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 */
+	public ConcurrentBlockManager(CellSpace space, int minX, int minY, int minZ, int sizeX, int sizeY,
+			int sizeZ) {
+		super(space);
+
+		if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0) {
+			throw new IllegalArgumentException("ConcurrentBlockManager sizes must be positive");
+		}
+
+		long wordCount = ((long) sizeX * sizeY * sizeZ + 63) >>> 6;
+
+		if (wordCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("ConcurrentBlockManager too large: " + wordCount + " words");
+		}
+
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		this.bits = new AtomicLongArray((int) wordCount);
+	}
+
+	/**
+	 * Mark the specified Cell as impassable. May be called from any thread.
+	 *
+	 * @param blockedCell
+	 */
+	public void blockCell(Cell blockedCell) {
+		blockRegion(blockedCell.getX(), blockedCell.getY(), blockedCell.getZ(), blockedCell.getX(),
+				blockedCell.getY(), blockedCell.getZ());
+	}
+
+	/**
+	 * Mark the specified Cell as passable again. May be called from any
+	 * thread.
+	 *
+	 * @param unblockedCell
+	 */
+	public void unblockCell(Cell unblockedCell) {
+		unblockRegion(unblockedCell.getX(), unblockedCell.getY(), unblockedCell.getZ(), unblockedCell.getX(),
+				unblockedCell.getY(), unblockedCell.getZ());
+	}
+
+	/**
+	 * Mark every Cell in the specified box, bounds included, as impassable.
+	 * May be called from any thread.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 */
+	public void blockRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		setRegion(minX, minY, minZ, maxX, maxY, maxZ, true);
+	}
+
+	/**
+	 * Mark every Cell in the specified box, bounds included, as passable. May
+	 * be called from any thread.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 */
+	public void unblockRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		setRegion(minX, minY, minZ, maxX, maxY, maxZ, false);
+	}
+
+	/**
+	 * Tell the CellSpace about every change queued since the last call. Must
+	 * only be called by the thread searching the CellSpace.
+	 *
+	 * @see net.tofweb.starlite.BlockManager#applyUpdates()
+	 */
+	@Override
+	public void applyUpdates() {
+		updates.drainTo(space);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.tofweb.starlite.BlockManager#isBlocked(net.tofweb.starlite.Cell)
+	 */
+	public boolean isBlocked(Cell cell) {
+		if (cell == null) {
+			return false;
+		}
+
+		return isBlocked(cell.getX(), cell.getY(), cell.getZ());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.tofweb.starlite.BlockManager#isBlocked(int, int, int)
+	 */
+	@Override
+	public boolean isBlocked(int x, int y, int z) {
+		if (x < minX || x - minX >= sizeX || y < minY || y - minY >= sizeY || z < minZ || z - minZ >= sizeZ) {
+			return false;
+		}
+
+		long index = index(x, y, z);
+
+		return (bits.get((int) (index >>> 6)) & (1L << index)) != 0;
+	}
+
+	private void setRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, boolean isBlocked) {
+		// Clip to the bounds
+		int fromX = Math.max(minX, this.minX);
+		int fromY = Math.max(minY, this.minY);
+		int fromZ = Math.max(minZ, this.minZ);
+		int toX = (int) Math.min(maxX, this.minX + (long) sizeX - 1);
+		int toY = (int) Math.min(maxY, this.minY + (long) sizeY - 1);
+		int toZ = (int) Math.min(maxZ, this.minZ + (long) sizeZ - 1);
+
+		if (fromX > toX || fromY > toY || fromZ > toZ) {
+			return;
+		}
+
+		for (int z = fromZ; z <= toZ; z++) {
+			for (int y = fromY; y <= toY; y++) {
+				setRange(index(fromX, y, z), index(toX, y, z), isBlocked);
+			}
+		}
+
+		updates.offer(fromX, fromY, fromZ, toX, toY, toZ);
+	}
+
+	private void setRange(long from, long to, boolean isBlocked) {
+		int fromWord = (int) (from >>> 6);
+		int toWord = (int) (to >>> 6);
+
+		for (int word = fromWord; word <= toWord; word++) {
+			int low = word == fromWord ? (int) (from & 63) : 0;
+			int high = word == toWord ? (int) (to & 63) : 63;
+			long mask = (-1L >>> (63 - high)) & (-1L << low);
+
+			long current;
+			long updated;
+			do {
+				current = bits.get(word);
+				updated = isBlocked ? current | mask : current & ~mask;
+			} while (current != updated && !bits.compareAndSet(word, current, updated));
+		}
+	}
+
+	private long index(int x, int y, int z) {
+		return (x - minX) + (long) sizeX * ((y - minY) + (long) sizeY * (z - minZ));
+	}
+
+}
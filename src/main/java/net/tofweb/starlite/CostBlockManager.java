@@ -31,20 +31,43 @@ public class CostBlockManager extends BlockManager {
 		space.updateCellCost(blockedCell, -1);
 	}
 
+	/**
+	 * Mark the specified Cell as passable again, restoring the default cost.
+	 * 
+	 * @param unblockedCell
+	 */
+	public void unblockCell(Cell unblockedCell) {
+		CellSpace space = super.getSpace();
+		space.updateCellCost(unblockedCell, Cell.DEFAULT_COST);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see net.tofweb.starlite.BlockManager#isBlocked(net.tofweb.starlite.Cell)
 	 */
 	public boolean isBlocked(Cell cell) {
+		if (cell == null) {
+			return false;
+		}
+
+		return isBlocked(cell.getX(), cell.getY(), cell.getZ());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.tofweb.starlite.BlockManager#isBlocked(int, int, int)
+	 */
+	@Override
+	public boolean isBlocked(int x, int y, int z) {
 		CellSpace space = super.getSpace();
-		CellInfo info = space.getInfo(cell);
 
-		if (info == null) {
+		if (!space.isInBounds(x, y, z)) {
 			return false;
 		}
 
-		return (info.getCost() < 0);
+		return (space.getCost(space.getId(x, y, z)) < 0);
 	}
 
 }
@@ -1,50 +1,65 @@
 package net.tofweb.starlite;
 
 /**
- * Costs is a tuple of Doubles which represent a Cell cost and its cost plus the
+ * Costs is a tuple of doubles which represent a Cell cost and its cost plus the
  * heuristically calculated cost.
+ * 
+ * Costs are the D* Lite keys of the open list, and are ordered
+ * lexicographically; first by cost plus heuristic, then by cost. Two values
+ * within Cell.BILLIONTH of each other are considered equal, so the ordering is
+ * not consistent with equals.
  *
  * @version .9
  * @since .9
  */
-public class Costs {
+public class Costs implements Comparable<Costs> {
 
-	private Double costPlusHeuristic;
-	private Double cost;
+	private double costPlusHeuristic;
+	private double cost;
 
 	/**
-	 * Return a Costs of the two provided Doubles.
+	 * Return a Costs of the two provided doubles.
 	 * 
 	 * @param costPlusHeuristic
 	 * @param cost
 	 */
-	public Costs(Double costPlusHeuristic, Double cost) {
+	public Costs(double costPlusHeuristic, double cost) {
 		this.costPlusHeuristic = costPlusHeuristic;
 		this.cost = cost;
 	}
 
-	public Double getCostPlusHeuristic() {
+	public double getCostPlusHeuristic() {
 		return costPlusHeuristic;
 	}
 
-	public Double getCost() {
+	public double getCost() {
 		return cost;
 	}
 
-	public void setCostPlusHeuristic(Double object1) {
-		this.costPlusHeuristic = object1;
+	public void setCostPlusHeuristic(double costPlusHeuristic) {
+		this.costPlusHeuristic = costPlusHeuristic;
+	}
+
+	public void setCost(double cost) {
+		this.cost = cost;
 	}
 
-	public void setCost(Double object2) {
-		this.cost = object2;
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	@Override
+	public int compareTo(Costs other) {
+		return compare(costPlusHeuristic, cost, other.costPlusHeuristic, other.cost);
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((costPlusHeuristic == null) ? 0 : costPlusHeuristic.hashCode());
-		result = prime * result + ((cost == null) ? 0 : cost.hashCode());
+		result = prime * result + Double.hashCode(costPlusHeuristic);
+		result = prime * result + Double.hashCode(cost);
 		return result;
 	}
 
@@ -57,15 +72,9 @@ public class Costs {
 		if (getClass() != obj.getClass())
 			return false;
 		Costs other = (Costs) obj;
-		if (costPlusHeuristic == null) {
-			if (other.costPlusHeuristic != null)
-				return false;
-		} else if (!costPlusHeuristic.equals(other.costPlusHeuristic))
+		if (Double.compare(costPlusHeuristic, other.costPlusHeuristic) != 0)
 			return false;
-		if (cost == null) {
-			if (other.cost != null)
-				return false;
-		} else if (!cost.equals(other.cost))
+		if (Double.compare(cost, other.cost) != 0)
 			return false;
 		return true;
 	}
@@ -75,4 +84,30 @@ public class Costs {
 		return "Costs [costPlusHeuristic=" + costPlusHeuristic + ", cost=" + cost + "]";
 	}
 
+	/**
+	 * Compare two keys given as their parts, in the order of compareTo, so the
+	 * open list can order keys it stores as primitives.
+	 * 
+	 * @param costPlusHeuristic
+	 * @param cost
+	 * @param otherCostPlusHeuristic
+	 * @param otherCost
+	 * @return
+	 */
+	static int compare(double costPlusHeuristic, double cost, double otherCostPlusHeuristic, double otherCost) {
+		if (costPlusHeuristic + Cell.BILLIONTH < otherCostPlusHeuristic) {
+			return -1;
+		} else if (costPlusHeuristic - Cell.BILLIONTH > otherCostPlusHeuristic) {
+			return 1;
+		}
+
+		if (cost + Cell.BILLIONTH < otherCost) {
+			return -1;
+		} else if (cost - Cell.BILLIONTH > otherCost) {
+			return 1;
+		}
+
+		return 0;
+	}
+
 }
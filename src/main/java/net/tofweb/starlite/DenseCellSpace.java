@@ -0,0 +1,212 @@
+package net.tofweb.starlite;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A CellSpace for bounded worlds which keeps every Cell's values in flat
+ * primitive arrays rather than a HashMap of Cell and CellInfo objects.
+ *
+ * A Cell's id is the index of its linearized (x, y, z) position in the arrays,
+ * so the search touches no objects to read or write a Cell. Each Cell costs
+ * 20 bytes; a double g, a double rhs and a float cost. Every Cell inside the
+ * bounds exists from the start, and Cells outside the bounds are never
+ * neighbors.
+ *
+ * @version .9
+ * @since .9
+ */
+public class DenseCellSpace extends CellSpace {
+
+	private final int minX;
+	private final int minY;
+	private final int minZ;
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+	private final double[] g;
+	private final double[] rhs;
+	private final float[] cost;
+
+	/**
+	 * Returns a DenseCellSpace covering the specified number of Cells along
+	 * each axis, starting at the origin.
+	 *
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 */
+	public DenseCellSpace(int sizeX, int sizeY, int sizeZ) {
+		this(0, 0, 0, sizeX, sizeY, sizeZ);
+	}
+
+	/**
+	 * Returns a DenseCellSpace covering the specified number of Cells along
+	 * each axis, starting at the specified minimum coordinates.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 */
+	public DenseCellSpace(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+		super();
+
+		if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0) {
+			throw new IllegalArgumentException("DenseCellSpace sizes must be positive");
+		}
+
+		long cellCount = (long) sizeX * sizeY * sizeZ;
+
+		if (cellCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("DenseCellSpace too large: " + cellCount + " cells");
+		}
+
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+
+		this.g = new double[(int) cellCount];
+		this.rhs = new double[(int) cellCount];
+		this.cost = new float[(int) cellCount];
+		Arrays.fill(g, Double.POSITIVE_INFINITY);
+		Arrays.fill(rhs, Double.POSITIVE_INFINITY);
+		Arrays.fill(cost, (float) Cell.DEFAULT_COST);
+	}
+
+	/**
+	 * Returns a copy of the specified Cell's values, or null if the Cell is
+	 * outside the bounds. Changing the returned CellInfo does not change the
+	 * CellSpace; use updateCellCost instead.
+	 *
+	 * @see net.tofweb.starlite.CellSpace#getInfo(net.tofweb.starlite.Cell)
+	 */
+	@Override
+	public CellInfo getInfo(Cell cell) {
+		if (cell == null || !isInBounds(cell.getX(), cell.getY(), cell.getZ())) {
+			return null;
+		}
+
+		int index = (int) getId(cell.getX(), cell.getY(), cell.getZ());
+
+		CellInfo info = new CellInfo();
+		info.setG(g[index]);
+		info.setRhs(rhs[index]);
+		info.setCost(cost[index]);
+
+		return info;
+	}
+
+	public int getMinX() {
+		return minX;
+	}
+
+	public int getMinY() {
+		return minY;
+	}
+
+	public int getMinZ() {
+		return minZ;
+	}
+
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	public int getSizeZ() {
+		return sizeZ;
+	}
+
+	@Override
+	public boolean isInBounds(int x, int y, int z) {
+		return x >= minX && x - minX < sizeX && y >= minY && y - minY < sizeY && z >= minZ && z - minZ < sizeZ;
+	}
+
+	@Override
+	public long getId(int x, int y, int z) {
+		return (x - minX) + (long) sizeX * ((y - minY) + (long) sizeY * (z - minZ));
+	}
+
+	@Override
+	public int getX(long cellId) {
+		return (int) (cellId % sizeX) + minX;
+	}
+
+	@Override
+	public int getY(long cellId) {
+		return (int) ((cellId / sizeX) % sizeY) + minY;
+	}
+
+	@Override
+	public int getZ(long cellId) {
+		return (int) (cellId / ((long) sizeX * sizeY)) + minZ;
+	}
+
+	@Override
+	public long getStoredCellCount() {
+		return g.length;
+	}
+
+	@Override
+	public boolean isMade(long cellId) {
+		return true;
+	}
+
+	@Override
+	protected void make(long cellId) {
+		// Every Cell in the bounds already exists
+	}
+
+	@Override
+	public double getG(long cellId) {
+		return g[(int) cellId];
+	}
+
+	@Override
+	protected void setG(long cellId, double g) {
+		this.g[(int) cellId] = g;
+	}
+
+	@Override
+	public double getRhs(long cellId) {
+		return rhs[(int) cellId];
+	}
+
+	@Override
+	protected void setRhs(long cellId, double rhs) {
+		this.rhs[(int) cellId] = rhs;
+	}
+
+	@Override
+	public double getCost(long cellId) {
+		return cost[(int) cellId];
+	}
+
+	@Override
+	protected void setCost(long cellId, double cost) {
+		this.cost[(int) cellId] = (float) cost;
+	}
+
+	@Override
+	protected void forEachMadeCell(LongConsumer consumer) {
+		for (int index = 0; index < g.length; index++) {
+			consumer.accept(index);
+		}
+	}
+
+	@Override
+	protected void clearSearchValues() {
+		Arrays.fill(g, Double.POSITIVE_INFINITY);
+		Arrays.fill(rhs, Double.POSITIVE_INFINITY);
+	}
+
+}
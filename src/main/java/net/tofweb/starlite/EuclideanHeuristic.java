@@ -0,0 +1,22 @@
+package net.tofweb.starlite;
+
+/**
+ * The straight line distance between two Cells. No move sequence is shorter,
+ * so this Heuristic is consistent for every Neighborhood, but on 6 connected
+ * grids it is the loosest of the lower bounds.
+ *
+ * @version .9
+ * @since .9
+ */
+public class EuclideanHeuristic implements Heuristic {
+
+	@Override
+	public double distance(int dx, int dy, int dz) {
+		double x = dx;
+		double y = dy;
+		double z = dz;
+
+		return Math.sqrt(x * x + y * y + z * z);
+	}
+
+}
@@ -2,7 +2,7 @@ package net.tofweb.starlite;
 
 /**
  * A utility which does the basic Euclidean calculation of distance between two
- * 3D points.
+ * 3D points, and tests the line of sight between two Cells.
  *
  */
 public class Geometry {
@@ -19,10 +19,97 @@ public class Geometry {
 			return null;
 		}
 
-		float x = cellA.getX() - cellB.getX();
-		float y = cellA.getY() - cellB.getY();
-		float z = cellA.getZ() - cellB.getZ();
-		return Math.sqrt(x * x + y * y + z * z);
+		return euclideanDistance(cellA.getX(), cellA.getY(), cellA.getZ(), cellB.getX(), cellB.getY(), cellB.getZ());
+	}
+
+	/**
+	 * Get the Euclidean distance between the two specified points, without
+	 * boxing.
+	 * 
+	 * @param xA
+	 * @param yA
+	 * @param zA
+	 * @param xB
+	 * @param yB
+	 * @param zB
+	 * @return
+	 */
+	public static double euclideanDistance(int xA, int yA, int zA, int xB, int yB, int zB) {
+		return Heuristic.EUCLIDEAN.distance(xA - xB, yA - yB, zA - zB);
+	}
+
+	/**
+	 * True if the straight line between the centers of the two specified
+	 * Cells passes through no blocked Cell.
+	 * 
+	 * The Cells along the line are walked in order, as a 3D DDA does, using
+	 * integer arithmetic only, so the result never depends on rounding. Where
+	 * the line passes exactly through an edge or a corner, every Cell meeting
+	 * there must be free, so a line never squeezes between two blocked Cells.
+	 * 
+	 * @param blockManager
+	 * @param xA
+	 * @param yA
+	 * @param zA
+	 * @param xB
+	 * @param yB
+	 * @param zB
+	 * @return
+	 */
+	public static boolean hasLineOfSight(BlockManager blockManager, int xA, int yA, int zA, int xB, int yB, int zB) {
+		if (blockManager.isBlocked(xA, yA, zA)) {
+			return false;
+		}
+
+		int[] position = { xA, yA, zA };
+		int[] steps = { Integer.signum(xB - xA), Integer.signum(yB - yA), Integer.signum(zB - zA) };
+		long[] lengths = { Math.abs((long) xB - xA), Math.abs((long) yB - yA), Math.abs((long) zB - zA) };
+		long[] crossings = new long[3];
+
+		while (true) {
+			// Along an axis, the line crosses its k-th Cell boundary at
+			// t = (2k + 1) / (2 * length); find the axes crossing soonest
+			int soonest = 0;
+			long numerator = 0;
+			long denominator = 1;
+			for (int axis = 0; axis < 3; axis++) {
+				if (crossings[axis] == lengths[axis]) {
+					continue;
+				}
+
+				long axisNumerator = 2 * crossings[axis] + 1;
+				long axisDenominator = 2 * lengths[axis];
+				long difference = axisNumerator * denominator - numerator * axisDenominator;
+
+				if (soonest == 0 || difference < 0) {
+					soonest = 1 << axis;
+					numerator = axisNumerator;
+					denominator = axisDenominator;
+				} else if (difference == 0) {
+					soonest |= 1 << axis;
+				}
+			}
+
+			if (soonest == 0) {
+				return true;
+			}
+
+			// Every Cell touched where the line crosses, including the next one
+			for (int axes = soonest; axes > 0; axes = (axes - 1) & soonest) {
+				if (blockManager.isBlocked(position[0] + ((axes & 1) == 0 ? 0 : steps[0]),
+						position[1] + ((axes & 2) == 0 ? 0 : steps[1]),
+						position[2] + ((axes & 4) == 0 ? 0 : steps[2]))) {
+					return false;
+				}
+			}
+
+			for (int axis = 0; axis < 3; axis++) {
+				if ((soonest & 1 << axis) != 0) {
+					position[axis] += steps[axis];
+					crossings[axis]++;
+				}
+			}
+		}
 	}
 
 }
@@ -0,0 +1,46 @@
+package net.tofweb.starlite;
+
+/**
+ * Estimates the cost of moving between two Cells from the differences of
+ * their coordinates.
+ *
+ * The search keys every Cell with the estimate from the start Cell, so a
+ * Heuristic works on primitive ints and returns a primitive double. D* Lite
+ * only guarantees optimal paths if the estimate never exceeds the cost of any
+ * move sequence covering the same differences, and never drops by more than
+ * the cost of a move; each implementation documents which Neighborhoods it
+ * meets that for.
+ *
+ * @version .9
+ * @since .9
+ */
+public interface Heuristic {
+
+	/**
+	 * The straight line distance. Suits every Neighborhood.
+	 */
+	Heuristic EUCLIDEAN = new EuclideanHeuristic();
+
+	/**
+	 * The length of the cheapest 26 connected move sequence. Suits the 18 and
+	 * 26 connected Neighborhoods.
+	 */
+	Heuristic OCTILE = new OctileHeuristic();
+
+	/**
+	 * The sum of the absolute differences. Suits the 6 connected Neighborhood
+	 * only.
+	 */
+	Heuristic MANHATTAN = new ManhattanHeuristic();
+
+	/**
+	 * Estimate the cost of moving the specified distance along each axis.
+	 *
+	 * @param dx
+	 * @param dy
+	 * @param dz
+	 * @return
+	 */
+	double distance(int dx, int dy, int dz);
+
+}
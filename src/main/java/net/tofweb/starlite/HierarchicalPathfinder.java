@@ -0,0 +1,913 @@
+package net.tofweb.starlite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds long paths through a bounded box of a CellSpace by planning first
+ * between clusters of Cells, then searching Cell by Cell only inside the
+ * clusters that plan passes through, in the style of HPA*.
+ *
+ * The box is divided into cubic clusters. On the face between two clusters,
+ * every connected patch of Cells which can move straight across becomes
+ * entrances; in each quarter of the face the patch covers, the pair of Cells
+ * nearest the middle of the patch's Cells there.
+ *
+ * A query runs A* over the entrances backwards from the goal, as the D* Lite
+ * search does. The first time it expands an entrance, the costs to it from
+ * the other entrances of its cluster are found by one D* Lite search on a
+ * DenseCellSpace covering only that cluster, which reads blocked Cells from
+ * the CellSpace's BlockManager and copies its Cell costs. Those costs are kept
+ * for later queries. Each step of the route within a cluster is then refined
+ * with the same cluster bounded search.
+ *
+ * The A* search is guided by the CellSpace's Heuristic, so it only stays near
+ * the route when the Heuristic suits the Neighborhood, such as
+ * Heuristic.MANHATTAN for Neighborhood.SIX.
+ *
+ * Clusters are built the first time a query reaches them. The
+ * HierarchicalPathfinder listens to its CellSpace, so Cells blocked or
+ * unblocked through the BlockManager, and costs changed through the
+ * CellSpace, are followed without further calls; only the entrances and costs
+ * of the clusters next to the change are rebuilt, before the next query.
+ * Each query first calls the BlockManager's applyUpdates, so changes a
+ * ConcurrentBlockManager has queued, or a newer SharedObstacleMap version, are
+ * followed too, though no search runs on the CellSpace itself. For
+ * changes the CellSpace is not told about, such as a MappedVoxelBlockManager
+ * whose file was rewritten, call updateRegion or updateCell. Call detach once
+ * the HierarchicalPathfinder is no longer needed.
+ *
+ * The searches of the clusters most recently used are kept, up to
+ * getMaxClusterSearches of them, so a query crossing back and forth between
+ * clusters reuses their search state.
+ *
+ * Paths pass between clusters only at entrances, so they can be somewhat
+ * longer than the paths a Pathfinder finds over the whole CellSpace, in
+ * exchange for searching a few clusters rather than the whole volume.
+ *
+ * @version .9
+ * @since .9
+ */
+public class HierarchicalPathfinder {
+
+	/**
+	 * The default number of Cells along each edge of a cluster.
+	 */
+	public static final int DEFAULT_CLUSTER_EDGE = 16;
+
+	/**
+	 * The default number of cluster searches kept.
+	 */
+	public static final int DEFAULT_MAX_CLUSTER_SEARCHES = 64;
+
+	private final CellSpace space;
+	private final int[] min;
+	private final int[] size;
+	private final int clusterEdge;
+	private final int[] clusterCounts;
+	private final Cluster[] clusters;
+	private final List<Cluster> changedClusters = new ArrayList<Cluster>();
+	private final Map<Cluster, ClusterSearch> clusterSearches = new LinkedHashMap<Cluster, ClusterSearch>(16, 0.75f,
+			true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Cluster, ClusterSearch> eldest) {
+			return size() > maxClusterSearches;
+		}
+	};
+	private final CellChangeListener changeListener = new CellChangeListener() {
+		@Override
+		public void cellsChanged(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+			updateRegion(minX, minY, minZ, maxX, maxY, maxZ);
+		}
+	};
+	private int maxClusterSearches = DEFAULT_MAX_CLUSTER_SEARCHES;
+	private int builtClusterCount = 0;
+	private long query = 0;
+
+	/**
+	 * Returns a HierarchicalPathfinder covering the specified DenseCellSpace,
+	 * with clusters of DEFAULT_CLUSTER_EDGE Cells along each edge.
+	 *
+	 * @param space
+	 */
+	public HierarchicalPathfinder(DenseCellSpace space) {
+		this(space, DEFAULT_CLUSTER_EDGE);
+	}
+
+	/**
+	 * Returns a HierarchicalPathfinder covering the specified DenseCellSpace,
+	 * with clusters of the specified number of Cells along each edge.
+	 *
+	 * @param space
+	 * @param clusterEdge
+	 */
+	public HierarchicalPathfinder(DenseCellSpace space, int clusterEdge) {
+		this(space, space.getMinX(), space.getMinY(), space.getMinZ(), space.getSizeX(), space.getSizeY(),
+				space.getSizeZ(), clusterEdge);
+	}
+
+	/**
+	 * Returns a HierarchicalPathfinder covering the specified number of Cells
+	 * along each axis of the specified CellSpace, starting at the specified
+	 * minimum coordinates, with clusters of the specified number of Cells
+	 * along each edge.
+	 *
+	 * @param space
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 * @param clusterEdge
+	 */
+	public HierarchicalPathfinder(CellSpace space, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ,
+			int clusterEdge) {
+		super();
+
+		if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0 || clusterEdge <= 0) {
+			throw new IllegalArgumentException("HierarchicalPathfinder sizes must be positive");
+		}
+
+		if (!space.isInBounds(minX, minY, minZ)
+				|| !space.isInBounds(minX + sizeX - 1, minY + sizeY - 1, minZ + sizeZ - 1)) {
+			throw new IllegalArgumentException("HierarchicalPathfinder box lies outside the CellSpace");
+		}
+
+		this.space = space;
+		this.min = new int[] { minX, minY, minZ };
+		this.size = new int[] { sizeX, sizeY, sizeZ };
+		this.clusterEdge = clusterEdge;
+		this.clusterCounts = new int[3];
+
+		long clusterCount = 1;
+		for (int axis = 0; axis < 3; axis++) {
+			clusterCounts[axis] = (size[axis] + clusterEdge - 1) / clusterEdge;
+			clusterCount *= clusterCounts[axis];
+		}
+
+		if (clusterCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many clusters: " + clusterCount);
+		}
+
+		this.clusters = new Cluster[(int) clusterCount];
+		space.addCellChangeListener(changeListener);
+	}
+
+	/**
+	 * Find a path from the CellSpace's start Cell to its goal Cell.
+	 *
+	 * @return Path The discovered Path
+	 */
+	public Path findPath() {
+		if (space.getGoalCell() == null) {
+			throw new RuntimeException("Goal cell not set");
+		}
+
+		if (space.getStartCell() == null) {
+			throw new RuntimeException("Start cell not set");
+		}
+
+		return findPath(space.getStartCell(), space.getGoalCell());
+	}
+
+	/**
+	 * Find a path from the specified start Cell to the specified goal Cell.
+	 * The CellSpace's own start and goal Cells and search state are not used,
+	 * though obstacle changes the BlockManager has held back are applied to
+	 * the CellSpace first.
+	 *
+	 * The returned path may not be complete, meaning that it was not able to
+	 * find a path to the goal. The Path should be checked for completion.
+	 *
+	 * @param start
+	 * @param goal
+	 * @return Path The discovered Path
+	 */
+	public Path findPath(Cell start, Cell goal) {
+		if (!isInside(start.getX(), start.getY(), start.getZ()) || !isInside(goal.getX(), goal.getY(), goal.getZ())) {
+			throw new IllegalArgumentException("Cells outside the HierarchicalPathfinder: " + start + ", " + goal);
+		}
+
+		// Held back changes reach the clusters through the CellSpace
+		if (space.getBlockManager() != null) {
+			space.getBlockManager().applyUpdates();
+		}
+
+		applyChanges();
+		query++;
+
+		Cluster startCluster = build(clusterOf(start.getX(), start.getY(), start.getZ()));
+		Cluster goalCluster = build(clusterOf(goal.getX(), goal.getY(), goal.getZ()));
+		Node startNode = new Node(start.getX(), start.getY(), start.getZ(), startCluster, -1);
+		Node goalNode = new Node(goal.getX(), goal.getY(), goal.getZ(), goalCluster, -1);
+
+		Path path = new Path();
+		List<Node> route = search(startNode, goalNode);
+
+		if (route != null) {
+			refine(route, path);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Stop following changes to the CellSpace, so the CellSpace no longer
+	 * holds on to this HierarchicalPathfinder.
+	 */
+	public void detach() {
+		space.removeCellChangeListener(changeListener);
+	}
+
+	/**
+	 * Tell the HierarchicalPathfinder that the Cell at the specified
+	 * coordinates was blocked, unblocked or changed cost. Only needed for
+	 * changes the CellSpace was not told about.
+	 *
+	 * @param cell
+	 */
+	public void updateCell(Cell cell) {
+		updateRegion(cell.getX(), cell.getY(), cell.getZ(), cell.getX(), cell.getY(), cell.getZ());
+	}
+
+	/**
+	 * Tell the HierarchicalPathfinder that the Cells in the specified box,
+	 * bounds included, were blocked, unblocked or changed cost. The clusters
+	 * next to the box are rebuilt before the next query. Only needed for
+	 * changes the CellSpace was not told about.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 */
+	public void updateRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		// A changed Cell also changes the moves into it from the next cluster
+		int[] from = { minX - 1, minY - 1, minZ - 1 };
+		int[] to = { maxX + 1, maxY + 1, maxZ + 1 };
+
+		for (int axis = 0; axis < 3; axis++) {
+			from[axis] = Math.max(from[axis], min[axis]);
+			to[axis] = (int) Math.min(to[axis], min[axis] + (long) size[axis] - 1);
+
+			if (from[axis] > to[axis]) {
+				return;
+			}
+
+			from[axis] = (from[axis] - min[axis]) / clusterEdge;
+			to[axis] = (to[axis] - min[axis]) / clusterEdge;
+		}
+
+		for (int cz = from[2]; cz <= to[2]; cz++) {
+			for (int cy = from[1]; cy <= to[1]; cy++) {
+				for (int cx = from[0]; cx <= to[0]; cx++) {
+					Cluster cluster = clusters[clusterIndex(cx, cy, cz)];
+
+					// No entrance has been found in a cluster never made
+					if (cluster != null) {
+						invalidate(cluster);
+
+						// Cell costs are copied into cluster searches
+						clusterSearches.remove(cluster);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of Cells along each edge of a cluster.
+	 *
+	 * @return
+	 */
+	public int getClusterEdge() {
+		return clusterEdge;
+	}
+
+	/**
+	 * Get the number of clusters covering the box.
+	 *
+	 * @return
+	 */
+	public int getClusterCount() {
+		return clusters.length;
+	}
+
+	/**
+	 * Get the number of clusters queries have reached, and so built, so far.
+	 *
+	 * @return
+	 */
+	public int getBuiltClusterCount() {
+		return builtClusterCount;
+	}
+
+	/**
+	 * Get the number of cluster searches kept for reuse.
+	 *
+	 * @return
+	 */
+	public int getClusterSearchCount() {
+		return clusterSearches.size();
+	}
+
+	/**
+	 * Get the most cluster searches kept for reuse.
+	 *
+	 * @return
+	 */
+	public int getMaxClusterSearches() {
+		return maxClusterSearches;
+	}
+
+	/**
+	 * Set the most cluster searches kept for reuse. Each holds a
+	 * DenseCellSpace the size of a cluster. The searches used least recently
+	 * are dropped first.
+	 *
+	 * @param maxClusterSearches
+	 *            at least 1
+	 */
+	public void setMaxClusterSearches(int maxClusterSearches) {
+		if (maxClusterSearches < 1) {
+			throw new IllegalArgumentException("At least one cluster search must be kept, not " + maxClusterSearches);
+		}
+
+		this.maxClusterSearches = maxClusterSearches;
+
+		Iterator<Cluster> eldest = clusterSearches.keySet().iterator();
+		while (clusterSearches.size() > maxClusterSearches) {
+			eldest.next();
+			eldest.remove();
+		}
+	}
+
+	private boolean isInside(int x, int y, int z) {
+		return x >= min[0] && x - min[0] < size[0] && y >= min[1] && y - min[1] < size[1] && z >= min[2]
+				&& z - min[2] < size[2];
+	}
+
+	private int clusterIndex(int cx, int cy, int cz) {
+		return cx + clusterCounts[0] * (cy + clusterCounts[1] * cz);
+	}
+
+	private Cluster clusterOf(int x, int y, int z) {
+		return cluster((x - min[0]) / clusterEdge, (y - min[1]) / clusterEdge, (z - min[2]) / clusterEdge);
+	}
+
+	private Cluster cluster(int cx, int cy, int cz) {
+		if (cx < 0 || cx >= clusterCounts[0] || cy < 0 || cy >= clusterCounts[1] || cz < 0
+				|| cz >= clusterCounts[2]) {
+			return null;
+		}
+
+		int index = clusterIndex(cx, cy, cz);
+
+		if (clusters[index] == null) {
+			int[] clusterMin = new int[3];
+			int[] clusterMax = new int[3];
+			int[] position = { cx, cy, cz };
+
+			for (int axis = 0; axis < 3; axis++) {
+				clusterMin[axis] = min[axis] + position[axis] * clusterEdge;
+				clusterMax[axis] = (int) Math.min(clusterMin[axis] + (long) clusterEdge - 1,
+						min[axis] + (long) size[axis] - 1);
+			}
+
+			clusters[index] = new Cluster(position, clusterMin, clusterMax);
+		}
+
+		return clusters[index];
+	}
+
+	private Cluster neighbor(Cluster cluster, int axis, int direction) {
+		int[] position = cluster.position.clone();
+		position[axis] += direction;
+
+		return cluster(position[0], position[1], position[2]);
+	}
+
+	/**
+	 * Make sure the specified cluster's entrances are current.
+	 *
+	 * Building a cluster only adds entrances to clusters which have not been
+	 * built, as a built cluster has already found the entrances on all of its
+	 * faces. So a query can build clusters as its search reaches them.
+	 */
+	private Cluster build(Cluster cluster) {
+		for (int axis = 0; axis < 3; axis++) {
+			buildFace(cluster, axis);
+
+			Cluster lower = neighbor(cluster, axis, -1);
+			if (lower != null) {
+				buildFace(lower, axis);
+			}
+		}
+
+		if (!cluster.isBuilt) {
+			cluster.isBuilt = true;
+			builtClusterCount++;
+		}
+
+		return cluster;
+	}
+
+	private void invalidate(Cluster cluster) {
+		for (int axis = 0; axis < 3; axis++) {
+			cluster.isFaceBuilt[axis] = false;
+
+			int[] position = cluster.position.clone();
+			position[axis]--;
+
+			if (position[axis] >= 0) {
+				Cluster lower = clusters[clusterIndex(position[0], position[1], position[2])];
+
+				if (lower != null) {
+					lower.isFaceBuilt[axis] = false;
+				}
+			}
+		}
+
+		if (!cluster.isChanged) {
+			cluster.isChanged = true;
+			changedClusters.add(cluster);
+		}
+	}
+
+	private void applyChanges() {
+		for (Cluster cluster : changedClusters) {
+			cluster.isChanged = false;
+			forgetEdges(cluster);
+
+			for (int axis = 0; axis < 3; axis++) {
+				buildFace(cluster, axis);
+
+				Cluster lower = neighbor(cluster, axis, -1);
+				if (lower != null) {
+					buildFace(lower, axis);
+				}
+			}
+		}
+
+		changedClusters.clear();
+	}
+
+	/**
+	 * Find the entrances on the face between the specified cluster and the
+	 * next cluster along the specified axis.
+	 */
+	private void buildFace(Cluster lower, int axis) {
+		if (lower.isFaceBuilt[axis]) {
+			return;
+		}
+
+		lower.isFaceBuilt[axis] = true;
+		Cluster upper = neighbor(lower, axis, 1);
+
+		if (upper == null) {
+			return;
+		}
+
+		removeFaceNodes(lower, axis);
+		removeFaceNodes(upper, axis + 3);
+		forgetEdges(lower);
+		forgetEdges(upper);
+
+		int uAxis = (axis + 1) % 3;
+		int vAxis = (axis + 2) % 3;
+		int width = lower.max[uAxis] - lower.min[uAxis] + 1;
+		int height = lower.max[vAxis] - lower.min[vAxis] + 1;
+		int[] low = new int[3];
+		int[] high = new int[3];
+		low[axis] = lower.max[axis];
+		high[axis] = upper.min[axis];
+
+		boolean[] isOpen = new boolean[width * height];
+		for (int v = 0; v < height; v++) {
+			for (int u = 0; u < width; u++) {
+				low[uAxis] = high[uAxis] = lower.min[uAxis] + u;
+				low[vAxis] = high[vAxis] = lower.min[vAxis] + v;
+				isOpen[u + width * v] = crossingCost(low, high) != Double.POSITIVE_INFINITY
+						&& crossingCost(high, low) != Double.POSITIVE_INFINITY;
+			}
+		}
+
+		// Each connected patch of open Cells gets an entrance in every
+		// quarter of the face it covers, so paths across open faces bend little
+		int tile = Math.max(1, (clusterEdge + 1) / 2);
+		int tilesU = (width + tile - 1) / tile;
+		int tileCount = tilesU * ((height + tile - 1) / tile);
+		int[] tileCounts = new int[tileCount];
+		long[] tileSumsU = new long[tileCount];
+		long[] tileSumsV = new long[tileCount];
+		long[] tileNearest = new long[tileCount];
+		int[] tileMiddles = new int[tileCount];
+		int[] patch = new int[width * height];
+
+		for (int seed = 0; seed < isOpen.length; seed++) {
+			if (!isOpen[seed]) {
+				continue;
+			}
+
+			int count = 0;
+			patch[count++] = seed;
+			isOpen[seed] = false;
+
+			for (int next = 0; next < count; next++) {
+				int u = patch[next] % width;
+				int v = patch[next] / width;
+
+				if (u > 0 && isOpen[patch[next] - 1]) {
+					isOpen[patch[next] - 1] = false;
+					patch[count++] = patch[next] - 1;
+				}
+				if (u < width - 1 && isOpen[patch[next] + 1]) {
+					isOpen[patch[next] + 1] = false;
+					patch[count++] = patch[next] + 1;
+				}
+				if (v > 0 && isOpen[patch[next] - width]) {
+					isOpen[patch[next] - width] = false;
+					patch[count++] = patch[next] - width;
+				}
+				if (v < height - 1 && isOpen[patch[next] + width]) {
+					isOpen[patch[next] + width] = false;
+					patch[count++] = patch[next] + width;
+				}
+			}
+
+			for (int i = 0; i < tileCount; i++) {
+				tileCounts[i] = 0;
+				tileSumsU[i] = 0;
+				tileSumsV[i] = 0;
+				tileNearest[i] = Long.MAX_VALUE;
+			}
+
+			for (int i = 0; i < count; i++) {
+				int u = patch[i] % width;
+				int v = patch[i] / width;
+				int t = u / tile + tilesU * (v / tile);
+				tileCounts[t]++;
+				tileSumsU[t] += u;
+				tileSumsV[t] += v;
+			}
+
+			// In each tile, the patch Cell nearest the centroid of the
+			// patch's Cells there, compared in whole numbers by scaling by
+			// the count
+			for (int i = 0; i < count; i++) {
+				int u = patch[i] % width;
+				int v = patch[i] / width;
+				int t = u / tile + tilesU * (v / tile);
+				long du = (long) u * tileCounts[t] - tileSumsU[t];
+				long dv = (long) v * tileCounts[t] - tileSumsV[t];
+				long distance = du * du + dv * dv;
+
+				if (distance < tileNearest[t]) {
+					tileNearest[t] = distance;
+					tileMiddles[t] = patch[i];
+				}
+			}
+
+			for (int t = 0; t < tileCount; t++) {
+				if (tileCounts[t] == 0) {
+					continue;
+				}
+
+				low[uAxis] = high[uAxis] = lower.min[uAxis] + tileMiddles[t] % width;
+				low[vAxis] = high[vAxis] = lower.min[vAxis] + tileMiddles[t] / width;
+
+				Node lowNode = new Node(low[0], low[1], low[2], lower, axis);
+				Node highNode = new Node(high[0], high[1], high[2], upper, axis + 3);
+				lowNode.peer = highNode;
+				lowNode.peerCost = crossingCost(low, high);
+				highNode.peer = lowNode;
+				highNode.peerCost = crossingCost(high, low);
+				lower.nodes.add(lowNode);
+				upper.nodes.add(highNode);
+			}
+		}
+	}
+
+	private double crossingCost(int[] from, int[] to) {
+		return space.cost(space.getId(from[0], from[1], from[2]), space.getId(to[0], to[1], to[2]));
+	}
+
+	private void removeFaceNodes(Cluster cluster, int face) {
+		Iterator<Node> nodes = cluster.nodes.iterator();
+
+		while (nodes.hasNext()) {
+			if (nodes.next().face == face) {
+				nodes.remove();
+			}
+		}
+	}
+
+	private void forgetEdges(Cluster cluster) {
+		for (Node node : cluster.nodes) {
+			node.isEdgesValid = false;
+		}
+	}
+
+	/**
+	 * Find the costs to the specified entrance from the other entrances of
+	 * its cluster, staying inside the cluster, unless they are already known.
+	 */
+	private void findEdges(Node node) {
+		if (node.isEdgesValid) {
+			return;
+		}
+
+		node.isEdgesValid = true;
+		node.edgeCount = 0;
+
+		ClusterSearch search = clusterSearch(node.cluster);
+		for (Node source : node.cluster.nodes) {
+			if (source != node) {
+				double cost = search.cost(source, node);
+
+				if (cost != Double.POSITIVE_INFINITY) {
+					if (node.edgeCount == node.edgeSources.length) {
+						node.edgeSources = Arrays.copyOf(node.edgeSources, node.edgeCount * 2);
+						node.edgeCosts = Arrays.copyOf(node.edgeCosts, node.edgeCount * 2);
+					}
+
+					node.edgeSources[node.edgeCount] = source;
+					node.edgeCosts[node.edgeCount++] = cost;
+				}
+			}
+		}
+	}
+
+	private ClusterSearch clusterSearch(Cluster cluster) {
+		ClusterSearch search = clusterSearches.get(cluster);
+
+		if (search == null) {
+			search = new ClusterSearch(cluster);
+			clusterSearches.put(cluster, search);
+		}
+
+		return search;
+	}
+
+	/**
+	 * A* from the goal node back to the start node over the entrances,
+	 * building clusters as it reaches them. Returns the route from the start
+	 * node, or null.
+	 */
+	private List<Node> search(Node startNode, Node goalNode) {
+		OpenList openList = new OpenList();
+		List<Node> reached = new ArrayList<Node>();
+		reach(openList, reached, goalNode, 0.0, null, startNode);
+
+		while (!openList.isEmpty()) {
+			Node node = reached.get((int) openList.pop());
+
+			if (node == startNode) {
+				List<Node> route = new ArrayList<Node>();
+				for (Node step = startNode; step != null; step = step.parent) {
+					route.add(step);
+				}
+
+				return route;
+			}
+
+			Cluster cluster = build(node.cluster);
+
+			if (node == goalNode) {
+				ClusterSearch search = clusterSearch(cluster);
+				for (Node source : cluster.nodes) {
+					reach(openList, reached, source, node.g + search.cost(source, node), node, startNode);
+				}
+			} else {
+				findEdges(node);
+				for (int i = 0; i < node.edgeCount; i++) {
+					reach(openList, reached, node.edgeSources[i], node.g + node.edgeCosts[i], node, startNode);
+				}
+
+				if (node.peer != null) {
+					reach(openList, reached, node.peer, node.g + node.peer.peerCost, node, startNode);
+				}
+			}
+
+			if (cluster == startNode.cluster) {
+				double cost = clusterSearch(cluster).cost(startNode, node);
+				reach(openList, reached, startNode, node.g + cost, node, startNode);
+			}
+		}
+
+		return null;
+	}
+
+	private void reach(OpenList openList, List<Node> reached, Node node, double g, Node parent, Node target) {
+		if (g == Double.POSITIVE_INFINITY) {
+			return;
+		}
+
+		if (node.query != query) {
+			node.query = query;
+			node.g = Double.POSITIVE_INFINITY;
+			node.parent = null;
+			node.index = reached.size();
+			reached.add(node);
+		}
+
+		if (g < node.g) {
+			node.g = g;
+			node.parent = parent;
+
+			double estimate = space.getHeuristic().distance(node.x - target.x, node.y - target.y,
+					node.z - target.z);
+			// Among equal estimates, expand the node furthest along first
+			openList.insert(node.index, g + estimate, -g);
+		}
+	}
+
+	/**
+	 * Turn the route over entrances into Cells, searching inside each cluster
+	 * the route crosses.
+	 */
+	private void refine(List<Node> route, Path path) {
+		Node first = route.get(0);
+		path.add(toCell(first.x, first.y, first.z));
+
+		for (int i = 1; i < route.size(); i++) {
+			Node from = route.get(i - 1);
+			Node to = route.get(i);
+
+			if (from.peer == to) {
+				path.add(toCell(to.x, to.y, to.z));
+				continue;
+			}
+
+			Path segment = clusterSearch(from.cluster).path(from, to);
+
+			if (!segment.isComplete()) {
+				return;
+			}
+
+			// The segment starts where the last one ended
+			segment.removeFirst();
+			path.addAll(segment);
+		}
+
+		path.setComplete(true);
+	}
+
+	private Cell toCell(int x, int y, int z) {
+		Cell cell = new Cell();
+		cell.setX(x);
+		cell.setY(y);
+		cell.setZ(z);
+
+		return cell;
+	}
+
+	/**
+	 * A cube of Cells and its entrances.
+	 */
+	private static final class Cluster {
+
+		private final int[] position;
+		private final int[] min;
+		private final int[] max;
+		private final List<Node> nodes = new ArrayList<Node>();
+		private final boolean[] isFaceBuilt = new boolean[3];
+		private boolean isBuilt = false;
+		private boolean isChanged = false;
+
+		private Cluster(int[] position, int[] min, int[] max) {
+			this.position = position;
+			this.min = min;
+			this.max = max;
+		}
+	}
+
+	/**
+	 * One side of an entrance, or a query's start or goal.
+	 */
+	private static final class Node {
+
+		private final int x;
+		private final int y;
+		private final int z;
+		private final Cluster cluster;
+		// 0 to 2 for the upper x, y or z face, 3 to 5 for the lower, -1 for a
+		// query's start or goal
+		private final int face;
+		private Node peer;
+		private double peerCost;
+		// The entrances which can reach this one within the cluster
+		private Node[] edgeSources = new Node[4];
+		private double[] edgeCosts = new double[4];
+		private int edgeCount = 0;
+		private boolean isEdgesValid = false;
+		private double g;
+		private Node parent;
+		private int index;
+		private long query = 0;
+
+		private Node(int x, int y, int z, Cluster cluster, int face) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.cluster = cluster;
+			this.face = face;
+		}
+	}
+
+	/**
+	 * The D* Lite search over a DenseCellSpace covering one cluster. Searches
+	 * to the same goal reuse each other's work.
+	 */
+	private class ClusterSearch {
+
+		private final DenseCellSpace clusterSpace;
+		private final Pathfinder pathfinder;
+
+		private ClusterSearch(Cluster cluster) {
+			this.clusterSpace = new DenseCellSpace(cluster.min[0], cluster.min[1], cluster.min[2],
+					cluster.max[0] - cluster.min[0] + 1, cluster.max[1] - cluster.min[1] + 1,
+					cluster.max[2] - cluster.min[2] + 1);
+			clusterSpace.setNeighborhood(space.getNeighborhood());
+			clusterSpace.setHeuristic(space.getHeuristic());
+
+			// The cluster is bounded, so the search always ends
+			clusterSpace.setMaxSteps(Integer.MAX_VALUE);
+
+			for (int z = cluster.min[2]; z <= cluster.max[2]; z++) {
+				for (int y = cluster.min[1]; y <= cluster.max[1]; y++) {
+					for (int x = cluster.min[0]; x <= cluster.max[0]; x++) {
+						double cost = space.getCost(space.getId(x, y, z));
+
+						if (cost != Cell.DEFAULT_COST) {
+							clusterSpace.setCost(clusterSpace.getId(x, y, z), cost);
+						}
+					}
+				}
+			}
+
+			this.pathfinder = new Pathfinder(new ClusterBlockManager(clusterSpace, space.getBlockManager()));
+		}
+
+		private double cost(Node from, Node to) {
+			aim(from, to);
+			clusterSpace.computeShortestPath();
+
+			return clusterSpace.getG(clusterSpace.getId(from.x, from.y, from.z));
+		}
+
+		private Path path(Node from, Node to) {
+			aim(from, to);
+
+			return pathfinder.findPath();
+		}
+
+		private void aim(Node from, Node to) {
+			Cell goal = clusterSpace.getGoalCell();
+
+			if (goal == null || goal.getX() != to.x || goal.getY() != to.y || goal.getZ() != to.z) {
+				clusterSpace.setGoalCell(to.x, to.y, to.z);
+			}
+
+			clusterSpace.setStartCell(from.x, from.y, from.z);
+		}
+	}
+
+	/**
+	 * Reads a cluster's blocked Cells from the whole CellSpace's BlockManager.
+	 */
+	private static final class ClusterBlockManager extends BlockManager {
+
+		private final BlockManager blockManager;
+
+		private ClusterBlockManager(CellSpace clusterSpace, BlockManager blockManager) {
+			super(clusterSpace);
+			this.blockManager = blockManager;
+		}
+
+		@Override
+		public boolean isBlocked(Cell cell) {
+			return cell != null && isBlocked(cell.getX(), cell.getY(), cell.getZ());
+		}
+
+		@Override
+		public boolean isBlocked(int x, int y, int z) {
+			return blockManager != null && blockManager.isBlocked(x, y, z);
+		}
+
+		@Override
+		public double getCost(int x, int y, int z) {
+			return blockManager == null ? Cell.DEFAULT_COST : blockManager.getCost(x, y, z);
+		}
+	}
+
+}
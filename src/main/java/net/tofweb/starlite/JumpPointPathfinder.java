@@ -0,0 +1,449 @@
+package net.tofweb.starlite;
+
+import java.util.Arrays;
+
+/**
+ * Finds paths through a bounded box of a CellSpace whose free Cells all cost
+ * the same, by Jump Point Search over the face connected Neighborhood.SIX.
+ *
+ * In open space a great many shortest paths are equally good, and a plain
+ * search expands the Cells of all of them. Jump Point Search only follows
+ * paths which take their moves in a canonical order: x moves first, then y,
+ * then z. It jumps along straight lines with BlockManager.isBlocked alone, and
+ * only stops, and so only puts a Cell in its open list, at the goal, where an
+ * obstacle forces a turn the canonical order would not take, or where a
+ * straight scan along a later axis leads to such a Cell. The paths found are
+ * as short as those a Pathfinder finds, while far fewer Cells are expanded.
+ *
+ * Jumping from a Cell scans along a line and, at every step, along the later
+ * axes. Within one search the result of every scan is kept for each Cell it
+ * passed, so no Cell is scanned twice in one direction, and getScanCount
+ * reports the Cells the scans stepped through.
+ *
+ * No D* Lite search state is built, so the CellSpace is left untouched, and a
+ * Pathfinder later used on the same CellSpace searches from scratch. A
+ * JumpPointPathfinder suits one-off plans through open, uniform space; to
+ * replan incrementally as the start moves and obstacles change, plan with a
+ * Pathfinder instead. Cell costs are not read; on maps whose Cells differ in
+ * cost, use a Pathfinder.
+ *
+ * @version .9
+ * @since .9
+ */
+public class JumpPointPathfinder {
+
+	private static final long NO_CELL = Long.MIN_VALUE;
+
+	// Two directions per axis, in the canonical order of the axes
+	private static final int[] DX = { -1, 1, 0, 0, 0, 0 };
+	private static final int[] DY = { 0, 0, -1, 1, 0, 0 };
+	private static final int[] DZ = { 0, 0, 0, 0, -1, 1 };
+
+	private final BlockManager blockManager;
+	private final CellSpace space;
+	private final int minX;
+	private final int minY;
+	private final int minZ;
+	private final int maxX;
+	private final int maxY;
+	private final int maxZ;
+	private long expansionCount = 0;
+	private long scanCount = 0;
+
+	// Where jumping from a Cell in each direction leads, by Cell id, as an
+	// index into jumpResults
+	private final LongIntHashMap[] jumps = new LongIntHashMap[6];
+	private long[] jumpResults = new long[64];
+	private int jumpResultCount = 0;
+
+	// The search's nodes, by index in the order they were reached
+	private final LongIntHashMap indexes = new LongIntHashMap();
+	private int[] nodeX = new int[64];
+	private int[] nodeY = new int[64];
+	private int[] nodeZ = new int[64];
+	private int[] nodeG = new int[64];
+	private int[] parents = new int[64];
+	private int[] directions = new int[64];
+	private int nodeCount = 0;
+	private int goalX;
+	private int goalY;
+	private int goalZ;
+
+	/**
+	 * Returns a JumpPointPathfinder covering the whole DenseCellSpace of the
+	 * specified BlockManager.
+	 *
+	 * @param blockManager
+	 */
+	public JumpPointPathfinder(BlockManager blockManager) {
+		this(blockManager, dense(blockManager));
+	}
+
+	private JumpPointPathfinder(BlockManager blockManager, DenseCellSpace space) {
+		this(blockManager, space.getMinX(), space.getMinY(), space.getMinZ(), space.getSizeX(), space.getSizeY(),
+				space.getSizeZ());
+	}
+
+	/**
+	 * Returns a JumpPointPathfinder covering the specified number of Cells
+	 * along each axis of the CellSpace of the specified BlockManager, starting
+	 * at the specified minimum coordinates. Jumps never leave the box.
+	 *
+	 * @param blockManager
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 */
+	public JumpPointPathfinder(BlockManager blockManager, int minX, int minY, int minZ, int sizeX, int sizeY,
+			int sizeZ) {
+		super();
+
+		if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0) {
+			throw new IllegalArgumentException("JumpPointPathfinder sizes must be positive");
+		}
+
+		this.blockManager = blockManager;
+		this.space = blockManager.getSpace();
+
+		if (!space.isInBounds(minX, minY, minZ)
+				|| !space.isInBounds(minX + sizeX - 1, minY + sizeY - 1, minZ + sizeZ - 1)) {
+			throw new IllegalArgumentException("JumpPointPathfinder box lies outside the CellSpace");
+		}
+
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = minX + sizeX - 1;
+		this.maxY = minY + sizeY - 1;
+		this.maxZ = minZ + sizeZ - 1;
+
+		for (int direction = 0; direction < 6; direction++) {
+			jumps[direction] = new LongIntHashMap();
+		}
+	}
+
+	/**
+	 * Find a path from the CellSpace's start Cell to its goal Cell.
+	 *
+	 * @return Path The discovered Path
+	 */
+	public Path findPath() {
+		if (space.getGoalCell() == null) {
+			throw new RuntimeException("Goal cell not set");
+		}
+
+		if (space.getStartCell() == null) {
+			throw new RuntimeException("Start cell not set");
+		}
+
+		return findPath(space.getStartCell(), space.getGoalCell());
+	}
+
+	/**
+	 * Find a path from the specified start Cell to the specified goal Cell.
+	 *
+	 * The returned path may not be complete, meaning that it was not able to
+	 * find a path to the goal. The Path should be checked for completion.
+	 *
+	 * @param start
+	 * @param goal
+	 * @return Path The discovered Path
+	 */
+	public Path findPath(Cell start, Cell goal) {
+		if (space.getNeighborhood().getMaxAxes() != 1) {
+			throw new RuntimeException("Jump Point Search needs the face connected Neighborhood.SIX");
+		}
+
+		if (!isInside(start.getX(), start.getY(), start.getZ()) || !isInside(goal.getX(), goal.getY(), goal.getZ())) {
+			throw new IllegalArgumentException("Cells outside the JumpPointPathfinder: " + start + ", " + goal);
+		}
+
+		expansionCount = 0;
+		scanCount = 0;
+		indexes.clear();
+		jumpResultCount = 0;
+		for (int direction = 0; direction < 6; direction++) {
+			jumps[direction].clear();
+		}
+
+		nodeCount = 0;
+		goalX = goal.getX();
+		goalY = goal.getY();
+		goalZ = goal.getZ();
+
+		Path path = new Path();
+		if (!isFree(start.getX(), start.getY(), start.getZ()) || !isFree(goalX, goalY, goalZ)) {
+			return path;
+		}
+
+		int goalIndex = search(start.getX(), start.getY(), start.getZ());
+
+		if (goalIndex >= 0) {
+			addCells(goalIndex, path);
+			path.setComplete(true);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Get the number of jump points the last findPath expanded.
+	 *
+	 * @return
+	 */
+	public long getExpansionCount() {
+		return expansionCount;
+	}
+
+	/**
+	 * Get the number of Cells the jumps of the last findPath stepped through,
+	 * lateral scans included.
+	 *
+	 * @return
+	 */
+	public long getScanCount() {
+		return scanCount;
+	}
+
+	/**
+	 * A* from the start over jump points. Returns the index of the goal node,
+	 * or -1.
+	 */
+	private int search(int startX, int startY, int startZ) {
+		OpenList openList = new OpenList();
+		reach(openList, startX, startY, startZ, 0, -1, -1);
+
+		while (!openList.isEmpty()) {
+			int index = (int) openList.pop();
+			int x = nodeX[index];
+			int y = nodeY[index];
+			int z = nodeZ[index];
+
+			if (x == goalX && y == goalY && z == goalZ) {
+				return index;
+			}
+
+			expansionCount++;
+			int arrival = directions[index];
+
+			for (int direction = 0; direction < 6; direction++) {
+				if (!isSuccessor(x, y, z, arrival, direction)) {
+					continue;
+				}
+
+				long jumpPoint = jump(x, y, z, direction);
+
+				if (jumpPoint != NO_CELL) {
+					int jumpX = space.getX(jumpPoint);
+					int jumpY = space.getY(jumpPoint);
+					int jumpZ = space.getZ(jumpPoint);
+					int g = nodeG[index] + Math.abs(jumpX - x) + Math.abs(jumpY - y) + Math.abs(jumpZ - z);
+					reach(openList, jumpX, jumpY, jumpZ, g, index, direction);
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	private void reach(OpenList openList, int x, int y, int z, int g, int parent, int direction) {
+		long cellId = space.getId(x, y, z);
+		int index = indexes.get(cellId);
+
+		if (index == LongIntHashMap.NO_VALUE) {
+			index = nodeCount++;
+
+			if (index == nodeX.length) {
+				int capacity = index * 2;
+				nodeX = Arrays.copyOf(nodeX, capacity);
+				nodeY = Arrays.copyOf(nodeY, capacity);
+				nodeZ = Arrays.copyOf(nodeZ, capacity);
+				nodeG = Arrays.copyOf(nodeG, capacity);
+				parents = Arrays.copyOf(parents, capacity);
+				directions = Arrays.copyOf(directions, capacity);
+			}
+
+			indexes.put(cellId, index);
+			nodeX[index] = x;
+			nodeY[index] = y;
+			nodeZ[index] = z;
+		} else if (g >= nodeG[index]) {
+			return;
+		}
+
+		nodeG[index] = g;
+		parents[index] = parent;
+		directions[index] = direction;
+
+		double estimate = Math.abs(goalX - x) + Math.abs(goalY - y) + Math.abs(goalZ - z);
+		// Among equal estimates, expand the node furthest along first
+		openList.insert(index, g + estimate, -g);
+	}
+
+	/**
+	 * True if a node reached moving in the arrival direction must try moving
+	 * in the specified direction. Moves along the same or a later axis are
+	 * natural; moves along an earlier axis are only needed when the Cell
+	 * beside the node's parent is blocked, since the canonical path would
+	 * otherwise have made them first.
+	 */
+	private boolean isSuccessor(int x, int y, int z, int arrival, int direction) {
+		if (arrival < 0) {
+			return true;
+		}
+
+		if (direction == (arrival ^ 1)) {
+			return false;
+		}
+
+		if (direction >> 1 >= arrival >> 1) {
+			return true;
+		}
+
+		return isForced(x, y, z, arrival, direction);
+	}
+
+	private boolean isForced(int x, int y, int z, int arrival, int direction) {
+		return isFree(x + DX[direction], y + DY[direction], z + DZ[direction])
+				&& !isFree(x - DX[arrival] + DX[direction], y - DY[arrival] + DY[direction],
+						z - DZ[arrival] + DZ[direction]);
+	}
+
+	/**
+	 * Move from the specified Cell in the specified direction until reaching
+	 * a jump point, returning its id, or an obstacle, returning NO_CELL.
+	 */
+	private long jump(int x, int y, int z, int direction) {
+		int known = jumps[direction].get(space.getId(x, y, z));
+
+		if (known != LongIntHashMap.NO_VALUE) {
+			return jumpResults[known];
+		}
+
+		long jumpPoint = scan(x, y, z, direction);
+
+		// Every Cell passed on the way leads to the same jump point
+		if (jumpResultCount == jumpResults.length) {
+			jumpResults = Arrays.copyOf(jumpResults, jumpResultCount * 2);
+		}
+
+		int result = jumpResultCount++;
+		jumpResults[result] = jumpPoint;
+
+		while (true) {
+			long cellId = space.getId(x, y, z);
+
+			if (cellId == jumpPoint) {
+				return jumpPoint;
+			}
+
+			jumps[direction].put(cellId, result);
+			x += DX[direction];
+			y += DY[direction];
+			z += DZ[direction];
+
+			if (!isFree(x, y, z)) {
+				return jumpPoint;
+			}
+		}
+	}
+
+	private long scan(int x, int y, int z, int direction) {
+		int axis = direction >> 1;
+
+		while (true) {
+			x += DX[direction];
+			y += DY[direction];
+			z += DZ[direction];
+			scanCount++;
+
+			if (!isFree(x, y, z)) {
+				return NO_CELL;
+			}
+
+			if ((x == goalX && y == goalY && z == goalZ) || hasForcedNeighbor(x, y, z, direction)) {
+				return space.getId(x, y, z);
+			}
+
+			// A turn onto a later axis leading to a jump point makes this one
+			for (int lateral = (axis + 1) * 2; lateral < 6; lateral++) {
+				if (jump(x, y, z, lateral) != NO_CELL) {
+					return space.getId(x, y, z);
+				}
+			}
+		}
+	}
+
+	private boolean hasForcedNeighbor(int x, int y, int z, int arrival) {
+		for (int direction = 0; direction < (arrival >> 1) * 2; direction++) {
+			if (isForced(x, y, z, arrival, direction)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean isFree(int x, int y, int z) {
+		return isInside(x, y, z) && !blockManager.isBlocked(x, y, z);
+	}
+
+	private boolean isInside(int x, int y, int z) {
+		return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+	}
+
+	/**
+	 * Fill in the straight lines between the jump points leading to the
+	 * specified node.
+	 */
+	private void addCells(int index, Path path) {
+		int jumpPoints = 0;
+		int[] route = new int[16];
+		for (int node = index; node >= 0; node = parents[node]) {
+			if (jumpPoints == route.length) {
+				route = Arrays.copyOf(route, jumpPoints * 2);
+			}
+
+			route[jumpPoints++] = node;
+		}
+
+		int node = route[jumpPoints - 1];
+		int x = nodeX[node];
+		int y = nodeY[node];
+		int z = nodeZ[node];
+		path.add(toCell(x, y, z));
+
+		for (int i = jumpPoints - 2; i >= 0; i--) {
+			node = route[i];
+			int direction = directions[node];
+
+			while (x != nodeX[node] || y != nodeY[node] || z != nodeZ[node]) {
+				x += DX[direction];
+				y += DY[direction];
+				z += DZ[direction];
+				path.add(toCell(x, y, z));
+			}
+		}
+	}
+
+	private Cell toCell(int x, int y, int z) {
+		Cell cell = new Cell();
+		cell.setX(x);
+		cell.setY(y);
+		cell.setZ(z);
+
+		return cell;
+	}
+
+	private static DenseCellSpace dense(BlockManager blockManager) {
+		if (!(blockManager.getSpace() instanceof DenseCellSpace)) {
+			throw new IllegalArgumentException("A JumpPointPathfinder over a CellSpace needs a box to search");
+		}
+
+		return (DenseCellSpace) blockManager.getSpace();
+	}
+
+}
@@ -0,0 +1,217 @@
+package net.tofweb.starlite;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive longs to primitive ints. Used to
+ * index Cell ids without boxing them into Longs.
+ *
+ * Keys are linearly probed and removal shifts the following entries back, so
+ * no tombstones accumulate.
+ *
+ * @version .9
+ * @since .9
+ */
+class LongIntHashMap {
+
+	/**
+	 * The value returned by get when a key is not present.
+	 */
+	static final int NO_VALUE = -1;
+
+	private static final long FREE = Long.MIN_VALUE;
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size = 0;
+	private boolean hasFreeKey = false;
+	private int freeKeyValue;
+
+	/**
+	 * Returns an empty LongIntHashMap.
+	 */
+	LongIntHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Returns an empty LongIntHashMap sized to hold the specified number of
+	 * keys without growing.
+	 *
+	 * @param expectedSize
+	 */
+	LongIntHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) << 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * Returns a LongIntHashMap holding the same entries as the specified one.
+	 *
+	 * @param other
+	 */
+	LongIntHashMap(LongIntHashMap other) {
+		this.keys = other.keys.clone();
+		this.values = other.values.clone();
+		this.mask = other.mask;
+		this.size = other.size;
+		this.hasFreeKey = other.hasFreeKey;
+		this.freeKeyValue = other.freeKeyValue;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean containsKey(long key) {
+		if (key == FREE) {
+			return hasFreeKey;
+		}
+
+		return keys[slot(key)] != FREE;
+	}
+
+	/**
+	 * Get the value of the specified key, or NO_VALUE if it is not present.
+	 *
+	 * @param key
+	 * @return
+	 */
+	int get(long key) {
+		if (key == FREE) {
+			return hasFreeKey ? freeKeyValue : NO_VALUE;
+		}
+
+		int slot = slot(key);
+		return keys[slot] == FREE ? NO_VALUE : values[slot];
+	}
+
+	/**
+	 * Associate the specified value with the specified key.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	void put(long key, int value) {
+		if (key == FREE) {
+			if (!hasFreeKey) {
+				size++;
+			}
+
+			hasFreeKey = true;
+			freeKeyValue = value;
+			return;
+		}
+
+		int slot = slot(key);
+
+		if (keys[slot] == FREE) {
+			keys[slot] = key;
+			size++;
+		}
+
+		values[slot] = value;
+
+		if (size > (keys.length >> 1) + (keys.length >> 2)) {
+			rehash(keys.length << 1);
+		}
+	}
+
+	/**
+	 * Remove the specified key.
+	 *
+	 * @param key
+	 * @return the removed value, or NO_VALUE if the key was not present
+	 */
+	int remove(long key) {
+		if (key == FREE) {
+			if (!hasFreeKey) {
+				return NO_VALUE;
+			}
+
+			hasFreeKey = false;
+			size--;
+			return freeKeyValue;
+		}
+
+		int slot = slot(key);
+
+		if (keys[slot] == FREE) {
+			return NO_VALUE;
+		}
+
+		int value = values[slot];
+		size--;
+
+		// Shift back any entry which probed past the freed slot
+		int free = slot;
+		int next = (slot + 1) & mask;
+		while (keys[next] != FREE) {
+			int home = mix(keys[next]) & mask;
+
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				free = next;
+			}
+
+			next = (next + 1) & mask;
+		}
+
+		keys[free] = FREE;
+		return value;
+	}
+
+	void clear() {
+		if (size == 0) {
+			return;
+		}
+
+		Arrays.fill(keys, FREE);
+		hasFreeKey = false;
+		size = 0;
+	}
+
+	private int slot(long key) {
+		int slot = mix(key) & mask;
+
+		while (keys[slot] != FREE && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE);
+		mask = capacity - 1;
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
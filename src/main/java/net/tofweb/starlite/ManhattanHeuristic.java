@@ -0,0 +1,18 @@
+package net.tofweb.starlite;
+
+/**
+ * The sum of the absolute coordinate differences between two Cells. This is
+ * exact on an unobstructed 6 connected grid, but overestimates as soon as
+ * diagonal moves are allowed.
+ *
+ * @version .9
+ * @since .9
+ */
+public class ManhattanHeuristic implements Heuristic {
+
+	@Override
+	public double distance(int dx, int dy, int dz) {
+		return Math.abs(dx) + Math.abs(dy) + Math.abs(dz);
+	}
+
+}
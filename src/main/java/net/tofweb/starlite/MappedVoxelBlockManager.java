@@ -0,0 +1,361 @@
+package net.tofweb.starlite;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A BlockManager which reads blocked Cells straight from a memory mapped voxel
+ * file, so loading an obstacle volume costs one mapping rather than an object
+ * per voxel.
+ *
+ * A voxel file starts with a header of nine big endian ints; the magic number
+ * MAGIC, the format VERSION, the encoding, then the minimum x, y and z and the
+ * number of voxels along x, y and z. The voxels follow, x varying fastest and
+ * z slowest, in one of two encodings:
+ *
+ * BITS packs one voxel per bit, lowest bit first, with 1 meaning blocked.
+ *
+ * BYTES stores one unsigned byte per voxel; 0 means blocked and any other
+ * value is the voxel's cost. The search multiplies the CellSpace's cost for
+ * a Cell by its voxel's cost, through getCost.
+ *
+ * Voxels outside the file's box are never blocked. Files larger than 2GB are
+ * mapped in several pieces. write exports any BlockManager's view of a box
+ * as a BITS file.
+ *
+ * @version .9
+ * @since .9
+ */
+public class MappedVoxelBlockManager extends BlockManager {
+
+	/**
+	 * The first four bytes of every voxel file; "SLVX".
+	 */
+	public static final int MAGIC = 0x534C5658;
+
+	/**
+	 * The voxel file format version written and read by this class.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * One bit per voxel.
+	 */
+	public static final int BITS = 1;
+
+	/**
+	 * One byte per voxel.
+	 */
+	public static final int BYTES = 8;
+
+	/**
+	 * The length of the header, in bytes.
+	 */
+	public static final int HEADER_BYTES = 36;
+
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	private final MappedByteBuffer[] segments;
+	private final int encoding;
+	private final int minX;
+	private final int minY;
+	private final int minZ;
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+
+	/**
+	 * Return a MappedVoxelBlockManager which manages the specified CellSpace
+	 * using the voxels in the specified file.
+	 *
+	 * @param space
+	 * @param file
+	 * @throws IOException
+	 *             if the file cannot be read or is not a voxel file
+	 */
+	public MappedVoxelBlockManager(CellSpace space, File file) throws IOException {
+		// The file is checked before the CellSpace is handed this manager
+		this(space, Mapping.open(file));
+	}
+
+	private MappedVoxelBlockManager(CellSpace space, Mapping mapping) {
+		super(space);
+		this.segments = mapping.segments;
+		this.encoding = mapping.encoding;
+		this.minX = mapping.minX;
+		this.minY = mapping.minY;
+		this.minZ = mapping.minZ;
+		this.sizeX = mapping.sizeX;
+		this.sizeY = mapping.sizeY;
+		this.sizeZ = mapping.sizeZ;
+	}
+
+	/**
+	 * Write the specified BlockManager's view of the specified box to the
+	 * specified file as a BITS voxel file.
+	 *
+	 * @param file
+	 * @param blockManager
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 * @throws IOException
+	 */
+	public static void write(File file, BlockManager blockManager, int minX, int minY, int minZ, int sizeX,
+			int sizeY, int sizeZ) throws IOException {
+		if (sizeX < 0 || sizeY < 0 || sizeZ < 0) {
+			throw new IllegalArgumentException("Voxel counts must not be negative");
+		}
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long dataBytes = dataBytes(BITS, sizeX, sizeY, sizeZ);
+			randomAccessFile.setLength(HEADER_BYTES + dataBytes);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putInt(BITS);
+			header.putInt(minX).putInt(minY).putInt(minZ);
+			header.putInt(sizeX).putInt(sizeY).putInt(sizeZ);
+			header.flip();
+			channel.write(header, 0);
+
+			ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+			long position = HEADER_BYTES;
+			long index = 0;
+			int bits = 0;
+
+			for (int z = minZ; z < minZ + sizeZ; z++) {
+				for (int y = minY; y < minY + sizeY; y++) {
+					for (int x = minX; x < minX + sizeX; x++, index++) {
+						if (blockManager.isBlocked(x, y, z)) {
+							bits |= 1 << (index & 7);
+						}
+
+						if ((index & 7) == 7) {
+							position = put(channel, buffer, position, bits);
+							bits = 0;
+						}
+					}
+				}
+			}
+
+			if ((index & 7) != 0) {
+				position = put(channel, buffer, position, bits);
+			}
+
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Get the encoding of the mapped file; BITS or BYTES.
+	 *
+	 * @return
+	 */
+	public int getEncoding() {
+		return encoding;
+	}
+
+	public int getMinX() {
+		return minX;
+	}
+
+	public int getMinY() {
+		return minY;
+	}
+
+	public int getMinZ() {
+		return minZ;
+	}
+
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	public int getSizeZ() {
+		return sizeZ;
+	}
+
+	/**
+	 * Get the cost the file gives the voxel at the specified coordinates; -1
+	 * if it is blocked, and Cell.DEFAULT_COST for BITS files and voxels
+	 * outside the file's box.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	@Override
+	public double getCost(int x, int y, int z) {
+		if (!isInside(x, y, z)) {
+			return Cell.DEFAULT_COST;
+		}
+
+		long index = index(x, y, z);
+
+		if (encoding == BITS) {
+			return isBitSet(index) ? -1 : Cell.DEFAULT_COST;
+		}
+
+		int value = read(index) & 0xFF;
+
+		return value == 0 ? -1 : value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.tofweb.starlite.BlockManager#isBlocked(net.tofweb.starlite.Cell)
+	 */
+	public boolean isBlocked(Cell cell) {
+		if (cell == null) {
+			return false;
+		}
+
+		return isBlocked(cell.getX(), cell.getY(), cell.getZ());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.tofweb.starlite.BlockManager#isBlocked(int, int, int)
+	 */
+	@Override
+	public boolean isBlocked(int x, int y, int z) {
+		if (!isInside(x, y, z)) {
+			return false;
+		}
+
+		long index = index(x, y, z);
+
+		if (encoding == BITS) {
+			return isBitSet(index);
+		}
+
+		return read(index) == 0;
+	}
+
+	private boolean isInside(int x, int y, int z) {
+		return x >= minX && x - minX < sizeX && y >= minY && y - minY < sizeY && z >= minZ && z - minZ < sizeZ;
+	}
+
+	private long index(int x, int y, int z) {
+		return (x - minX) + (long) sizeX * ((y - minY) + (long) sizeY * (z - minZ));
+	}
+
+	private boolean isBitSet(long index) {
+		return (read(index >>> 3) & (1 << (index & 7))) != 0;
+	}
+
+	private byte read(long position) {
+		return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+	}
+
+	private static long dataBytes(int encoding, int sizeX, int sizeY, int sizeZ) {
+		long voxels = (long) sizeX * sizeY * sizeZ;
+
+		return encoding == BITS ? (voxels + 7) >>> 3 : voxels;
+	}
+
+	/**
+	 * A voxel file's header and mapped voxels, read and checked.
+	 */
+	private static final class Mapping {
+
+		private MappedByteBuffer[] segments;
+		private int encoding;
+		private int minX;
+		private int minY;
+		private int minZ;
+		private int sizeX;
+		private int sizeY;
+		private int sizeZ;
+
+		private static Mapping open(File file) throws IOException {
+			Mapping mapping = new Mapping();
+
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = randomAccessFile.getChannel();
+
+				ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+				if (header.getInt() != MAGIC) {
+					throw new IOException(file + " is not a voxel file");
+				}
+
+				int version = header.getInt();
+				if (version != VERSION) {
+					throw new IOException(file + " has unsupported voxel file version " + version);
+				}
+
+				mapping.encoding = header.getInt();
+				if (mapping.encoding != BITS && mapping.encoding != BYTES) {
+					throw new IOException(file + " has unknown voxel encoding " + mapping.encoding);
+				}
+
+				mapping.minX = header.getInt();
+				mapping.minY = header.getInt();
+				mapping.minZ = header.getInt();
+				mapping.sizeX = header.getInt();
+				mapping.sizeY = header.getInt();
+				mapping.sizeZ = header.getInt();
+
+				if (mapping.sizeX < 0 || mapping.sizeY < 0 || mapping.sizeZ < 0) {
+					throw new IOException(file + " has negative voxel counts");
+				}
+
+				long dataBytes = dataBytes(mapping.encoding, mapping.sizeX, mapping.sizeY, mapping.sizeZ);
+				if (channel.size() < HEADER_BYTES + dataBytes) {
+					throw new IOException(file + " is truncated; expected " + (HEADER_BYTES + dataBytes) + " bytes");
+				}
+
+				int segmentCount = (int) ((dataBytes + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+				mapping.segments = new MappedByteBuffer[segmentCount];
+				for (int i = 0; i < segmentCount; i++) {
+					long offset = (long) i << SEGMENT_SHIFT;
+					long length = Math.min(SEGMENT_MASK + 1, dataBytes - offset);
+					mapping.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + offset, length);
+				}
+			} finally {
+				// Mappings stay valid after the channel is closed
+				randomAccessFile.close();
+			}
+
+			return mapping;
+		}
+	}
+
+	private static long put(FileChannel channel, ByteBuffer buffer, long position, int bits) throws IOException {
+		if (!buffer.hasRemaining()) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			buffer.clear();
+		}
+
+		buffer.put((byte) bits);
+
+		return position;
+	}
+
+}
@@ -0,0 +1,19 @@
+package net.tofweb.starlite;
+
+/**
+ * Receives the ids of a Cell's neighbors from CellSpace.forEachSuccessor and
+ * CellSpace.forEachPredecessor.
+ *
+ * @version .9
+ * @since .9
+ */
+public interface NeighborConsumer {
+
+	/**
+	 * Accept the id of one neighboring Cell.
+	 *
+	 * @param neighborId
+	 */
+	void accept(long neighborId);
+
+}
@@ -0,0 +1,223 @@
+package net.tofweb.starlite;
+
+/**
+ * A Neighborhood defines which Cells a Cell can move to, and what each move
+ * costs before Cell costs are applied.
+ *
+ * Moves change one, two or three coordinates by one, giving the 6 face, 18
+ * face and edge, or 26 face, edge and corner connected neighborhoods. A move
+ * along n axes costs the square root of n. Offsets and step costs are
+ * precomputed, so the search only indexes into tables.
+ *
+ * Unless corner cutting is allowed, a diagonal move is only possible when
+ * every Cell it passes the corner of is free. Moving from (0, 0, 0) to (1, 1,
+ * 0) needs (1, 0, 0) and (0, 1, 0) to be free, for example.
+ *
+ * @version .9
+ * @since .9
+ */
+public class Neighborhood {
+
+	// The face moves come first, in the order Cells have always reported them
+	private static final int[][] FACES = { { 0, 0, -1 }, { 0, 0, 1 }, { 0, -1, 0 }, { -1, 0, 0 }, { 0, 1, 0 },
+			{ 1, 0, 0 } };
+
+	/**
+	 * Face connected; moves along one axis only.
+	 */
+	public static final Neighborhood SIX = new Neighborhood(1, false);
+
+	/**
+	 * Face and edge connected; moves along one or two axes, without corner
+	 * cutting.
+	 */
+	public static final Neighborhood EIGHTEEN = new Neighborhood(2, false);
+
+	/**
+	 * Face, edge and corner connected; moves along any number of axes, without
+	 * corner cutting.
+	 */
+	public static final Neighborhood TWENTY_SIX = new Neighborhood(3, false);
+
+	/**
+	 * The most moves any Neighborhood has.
+	 */
+	public static final int MAX_SIZE = 26;
+
+	private final int maxAxes;
+	private final boolean isCornerCuttingAllowed;
+	private final int size;
+	private final int[] offsetX;
+	private final int[] offsetY;
+	private final int[] offsetZ;
+	private final double[] stepCosts;
+	private final int[] indexByOffset = new int[27];
+
+	/**
+	 * Returns a Neighborhood whose moves change at most the specified number of
+	 * coordinates.
+	 *
+	 * @param maxAxes
+	 *            1, 2 or 3
+	 * @param isCornerCuttingAllowed
+	 */
+	public Neighborhood(int maxAxes, boolean isCornerCuttingAllowed) {
+		super();
+
+		if (maxAxes < 1 || maxAxes > 3) {
+			throw new IllegalArgumentException("A Neighborhood moves along 1, 2 or 3 axes, not " + maxAxes);
+		}
+
+		this.maxAxes = maxAxes;
+		this.isCornerCuttingAllowed = isCornerCuttingAllowed;
+
+		int[] sizes = { 0, 6, 18, 26 };
+		this.size = sizes[maxAxes];
+		this.offsetX = new int[size];
+		this.offsetY = new int[size];
+		this.offsetZ = new int[size];
+		this.stepCosts = new double[size];
+
+		for (int i = 0; i < indexByOffset.length; i++) {
+			indexByOffset[i] = -1;
+		}
+
+		int index = 0;
+		for (int[] face : FACES) {
+			index = addMove(index, face[0], face[1], face[2]);
+		}
+
+		for (int axes = 2; axes <= maxAxes; axes++) {
+			for (int x = -1; x <= 1; x++) {
+				for (int y = -1; y <= 1; y++) {
+					for (int z = -1; z <= 1; z++) {
+						if (Math.abs(x) + Math.abs(y) + Math.abs(z) == axes) {
+							index = addMove(index, x, y, z);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of this Neighborhood which does, or does not, allow corner
+	 * cutting.
+	 *
+	 * @param isCornerCuttingAllowed
+	 * @return
+	 */
+	public Neighborhood withCornerCutting(boolean isCornerCuttingAllowed) {
+		return new Neighborhood(maxAxes, isCornerCuttingAllowed);
+	}
+
+	public boolean isCornerCuttingAllowed() {
+		return isCornerCuttingAllowed;
+	}
+
+	/**
+	 * Get the most coordinates a single move changes.
+	 *
+	 * @return
+	 */
+	public int getMaxAxes() {
+		return maxAxes;
+	}
+
+	/**
+	 * Get the number of moves in this Neighborhood.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getOffsetX(int move) {
+		return offsetX[move];
+	}
+
+	public int getOffsetY(int move) {
+		return offsetY[move];
+	}
+
+	public int getOffsetZ(int move) {
+		return offsetZ[move];
+	}
+
+	/**
+	 * Get the length of the specified move; 1, the square root of 2 or the
+	 * square root of 3.
+	 *
+	 * @param move
+	 * @return
+	 */
+	public double getStepCost(int move) {
+		return stepCosts[move];
+	}
+
+	/**
+	 * Get the index of the move with the specified offsets, or -1 if this
+	 * Neighborhood has no such move.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public int indexOf(int x, int y, int z) {
+		if (x < -1 || x > 1 || y < -1 || y > 1 || z < -1 || z > 1) {
+			return -1;
+		}
+
+		return indexByOffset[(x + 1) * 9 + (y + 1) * 3 + (z + 1)];
+	}
+
+	/**
+	 * True if the specified move from the specified Cell passes the corner of
+	 * a blocked Cell, and corner cutting is not allowed.
+	 *
+	 * @param blockManager
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param move
+	 * @return
+	 */
+	public boolean isCornerCut(BlockManager blockManager, int x, int y, int z, int move) {
+		if (isCornerCuttingAllowed || blockManager == null || move < FACES.length) {
+			return false;
+		}
+
+		int moveX = offsetX[move];
+		int moveY = offsetY[move];
+		int moveZ = offsetZ[move];
+
+		// Every Cell reached by a strict part of the move must be free
+		for (int partX = Math.min(moveX, 0); partX <= Math.max(moveX, 0); partX++) {
+			for (int partY = Math.min(moveY, 0); partY <= Math.max(moveY, 0); partY++) {
+				for (int partZ = Math.min(moveZ, 0); partZ <= Math.max(moveZ, 0); partZ++) {
+					boolean isStart = partX == 0 && partY == 0 && partZ == 0;
+					boolean isEnd = partX == moveX && partY == moveY && partZ == moveZ;
+
+					if (!isStart && !isEnd && blockManager.isBlocked(x + partX, y + partY, z + partZ)) {
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private int addMove(int index, int x, int y, int z) {
+		offsetX[index] = x;
+		offsetY[index] = y;
+		offsetZ[index] = z;
+		stepCosts[index] = Math.sqrt(Math.abs(x) + Math.abs(y) + Math.abs(z));
+		indexByOffset[(x + 1) * 9 + (y + 1) * 3 + (z + 1)] = index;
+
+		return index + 1;
+	}
+
+}
@@ -0,0 +1,201 @@
+package net.tofweb.starlite;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of blocked Cells which any number of threads can read at
+ * once.
+ *
+ * Like BitsetBlockManager, blocked Cells are kept one bit per Cell in chunks
+ * of 16 x 16 x 16 Cells. Changing an ObstacleMap returns a new version which
+ * shares every chunk the change did not touch, so a change costs a copy of
+ * the touched chunks and of the chunk table, and readers of older versions
+ * are never disturbed.
+ *
+ * @see SharedObstacleMap
+ * @version .9
+ * @since .9
+ */
+public final class ObstacleMap {
+
+	/**
+	 * The number of Cells along each edge of a chunk.
+	 */
+	public static final int CHUNK_EDGE = 16;
+
+	private static final int CHUNK_SHIFT = 4;
+	private static final int CHUNK_MASK = CHUNK_EDGE - 1;
+	private static final int WORDS_PER_CHUNK = CHUNK_EDGE * CHUNK_EDGE * CHUNK_EDGE / 64;
+
+	private final LongIntHashMap chunkIndex;
+	private final long[][] chunks;
+	private final long version;
+	private final long blockedCount;
+
+	/**
+	 * Returns an empty ObstacleMap, version 0.
+	 */
+	public ObstacleMap() {
+		this(new LongIntHashMap(), new long[0][], 0, 0);
+	}
+
+	private ObstacleMap(LongIntHashMap chunkIndex, long[][] chunks, long version, long blockedCount) {
+		super();
+		this.chunkIndex = chunkIndex;
+		this.chunks = chunks;
+		this.version = version;
+		this.blockedCount = blockedCount;
+	}
+
+	/**
+	 * Get this ObstacleMap's version. Every change returns an ObstacleMap
+	 * whose version is one higher.
+	 *
+	 * @return
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get the number of blocked Cells.
+	 *
+	 * @return
+	 */
+	public long getBlockedCount() {
+		return blockedCount;
+	}
+
+	/**
+	 * True if the Cell at the specified coordinates is blocked.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public boolean isBlocked(int x, int y, int z) {
+		if (!CellId.isPackable(x, y, z)) {
+			return false;
+		}
+
+		int chunk = findChunk(chunkKey(x, y, z));
+
+		return chunk != LongIntHashMap.NO_VALUE && isSet(chunk, x, y, z);
+	}
+
+	/**
+	 * Returns a new version of this ObstacleMap in which every Cell in the
+	 * specified box, bounds included, is blocked.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @return
+	 */
+	public ObstacleMap withBlockedRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		return withRegion(minX, minY, minZ, maxX, maxY, maxZ, true);
+	}
+
+	/**
+	 * Returns a new version of this ObstacleMap in which every Cell in the
+	 * specified box, bounds included, is free.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @return
+	 */
+	public ObstacleMap withUnblockedRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		return withRegion(minX, minY, minZ, maxX, maxY, maxZ, false);
+	}
+
+	int findChunk(long chunkKey) {
+		return chunkIndex.get(chunkKey);
+	}
+
+	boolean isSet(int chunk, int x, int y, int z) {
+		int cell = cellIndex(x, y, z);
+
+		return (chunks[chunk][cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	static long chunkKey(int x, int y, int z) {
+		return CellId.pack(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, z >> CHUNK_SHIFT);
+	}
+
+	private ObstacleMap withRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, boolean isBlocked) {
+		if (!CellId.isPackable(minX, minY, minZ) || !CellId.isPackable(maxX, maxY, maxZ)) {
+			throw new IllegalArgumentException("Region out of bounds: (" + minX + ", " + minY + ", " + minZ
+					+ ") to (" + maxX + ", " + maxY + ", " + maxZ + ")");
+		}
+
+		LongIntHashMap newIndex = chunkIndex;
+		long[][] newChunks = Arrays.copyOf(chunks, chunks.length);
+		int chunkCount = chunks.length;
+		boolean[] isCopied = new boolean[chunkCount];
+		long newBlockedCount = blockedCount;
+
+		for (int z = minZ; z <= maxZ; z++) {
+			for (int y = minY; y <= maxY; y++) {
+				// A row of a chunk lies within one word
+				int x = minX;
+				while (x <= maxX) {
+					int rowEnd = Math.min(maxX, x | CHUNK_MASK);
+					long chunkKey = chunkKey(x, y, z);
+					int chunk = newIndex.get(chunkKey);
+
+					if (chunk == LongIntHashMap.NO_VALUE && isBlocked) {
+						if (newIndex == chunkIndex) {
+							newIndex = new LongIntHashMap(chunkIndex);
+						}
+
+						chunk = chunkCount++;
+						if (chunk == newChunks.length) {
+							newChunks = Arrays.copyOf(newChunks, Math.max(16, chunk * 2));
+							isCopied = Arrays.copyOf(isCopied, newChunks.length);
+						}
+
+						newChunks[chunk] = new long[WORDS_PER_CHUNK];
+						isCopied[chunk] = true;
+						newIndex.put(chunkKey, chunk);
+					}
+
+					if (chunk != LongIntHashMap.NO_VALUE) {
+						if (!isCopied[chunk]) {
+							newChunks[chunk] = newChunks[chunk].clone();
+							isCopied[chunk] = true;
+						}
+
+						long[] words = newChunks[chunk];
+						int cell = cellIndex(x, y, z);
+						long mask = ((1L << (rowEnd - x + 1)) - 1) << (cell & 63);
+
+						if (isBlocked) {
+							newBlockedCount += Long.bitCount(mask & ~words[cell >>> 6]);
+							words[cell >>> 6] |= mask;
+						} else {
+							newBlockedCount -= Long.bitCount(mask & words[cell >>> 6]);
+							words[cell >>> 6] &= ~mask;
+						}
+					}
+
+					x = rowEnd + 1;
+				}
+			}
+		}
+
+		return new ObstacleMap(newIndex, Arrays.copyOf(newChunks, chunkCount), version + 1, newBlockedCount);
+	}
+
+	private static int cellIndex(int x, int y, int z) {
+		return (x & CHUNK_MASK) | ((y & CHUNK_MASK) << CHUNK_SHIFT) | ((z & CHUNK_MASK) << (CHUNK_SHIFT * 2));
+	}
+
+}
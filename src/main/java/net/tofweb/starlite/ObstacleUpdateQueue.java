@@ -0,0 +1,105 @@
+package net.tofweb.starlite;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock free queue of obstacle changes, written by any number of threads and
+ * read by the one thread which runs the search.
+ *
+ * Each change is a box of Cells whose obstacles changed. Writers append
+ * with a single atomic swap of the tail and never wait for each other or for
+ * the reader. The reader drains the queue at a safe point between searches
+ * and tells the CellSpace which boxes changed. A change whose writer is
+ * still between its swap and its link is picked up by the next drain.
+ *
+ * @version .9
+ * @since .9
+ */
+public class ObstacleUpdateQueue {
+
+	private final AtomicReference<Change> tail;
+	private Change head;
+
+	/**
+	 * Returns an empty ObstacleUpdateQueue.
+	 */
+	public ObstacleUpdateQueue() {
+		super();
+
+		Change stub = new Change(0, 0, 0, 0, 0, 0);
+		this.head = stub;
+		this.tail = new AtomicReference<Change>(stub);
+	}
+
+	/**
+	 * Queue a change to the Cells in the specified box, bounds included. May
+	 * be called from any thread.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 */
+	public void offer(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		Change change = new Change(minX, minY, minZ, maxX, maxY, maxZ);
+		Change previous = tail.getAndSet(change);
+		previous.next = change;
+	}
+
+	/**
+	 * True if no linked changes are waiting. Must only be called by the
+	 * reading thread.
+	 *
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return head.next == null;
+	}
+
+	/**
+	 * Remove every waiting change, telling the specified CellSpace about
+	 * each changed box. Must only be called by the reading thread.
+	 *
+	 * @param space
+	 * @return the number of changes drained
+	 */
+	public int drainTo(CellSpace space) {
+		int count = 0;
+		Change next = head.next;
+
+		while (next != null) {
+			space.updateRegion(next.minX, next.minY, next.minZ, next.maxX, next.maxY, next.maxZ);
+			head = next;
+			next = next.next;
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * One queued change.
+	 */
+	private static class Change {
+
+		private final int minX;
+		private final int minY;
+		private final int minZ;
+		private final int maxX;
+		private final int maxY;
+		private final int maxZ;
+		private volatile Change next;
+
+		private Change(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+			this.minX = minX;
+			this.minY = minY;
+			this.minZ = minZ;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			this.maxZ = maxZ;
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+package net.tofweb.starlite;
+
+/**
+ * The 3D octile distance; the length of the cheapest sequence of face, edge
+ * and corner moves between two Cells. It moves diagonally across all three
+ * axes until the smallest difference is used up, then across two, then along
+ * one.
+ *
+ * This is exact on an unobstructed 26 connected grid and a lower bound on an
+ * 18 connected one, where it prunes far more than the Euclidean distance. It
+ * overestimates on 6 connected grids.
+ *
+ * @version .9
+ * @since .9
+ */
+public class OctileHeuristic implements Heuristic {
+
+	private static final double SQRT_2 = Math.sqrt(2);
+	private static final double SQRT_3 = Math.sqrt(3);
+
+	@Override
+	public double distance(int dx, int dy, int dz) {
+		int a = Math.abs(dx);
+		int b = Math.abs(dy);
+		int c = Math.abs(dz);
+
+		// Sort so that a >= b >= c
+		if (a < b) {
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+
+		if (b < c) {
+			int swap = b;
+			b = c;
+			c = swap;
+		}
+
+		if (a < b) {
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+
+		return SQRT_3 * c + SQRT_2 * (b - c) + (a - b);
+	}
+
+}
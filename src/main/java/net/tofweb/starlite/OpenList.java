@@ -0,0 +1,305 @@
+package net.tofweb.starlite;
+
+import java.util.Arrays;
+
+/**
+ * The D* Lite open list. An indexed binary heap of Cell ids ordered by their
+ * keys. The index allows the key of a queued Cell to be changed, or the Cell
+ * to be removed, in O(log n).
+ *
+ * Each key is the pair of doubles a Costs holds, stored inline in two
+ * primitive arrays beside the Cell ids, so the heap never allocates a key or
+ * unboxes one to compare it. Keys are ordered as Costs orders them.
+ *
+ * The open list counts the Cells added and removed and the most it has held,
+ * which CellSpace reads to measure a search.
+ *
+ * @version .9
+ * @since .9
+ */
+class OpenList {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private long[] cells = new long[DEFAULT_CAPACITY];
+	private double[] primaryKeys = new double[DEFAULT_CAPACITY];
+	private double[] secondaryKeys = new double[DEFAULT_CAPACITY];
+	private LongIntHashMap positions = new LongIntHashMap();
+	private int size = 0;
+	private long pushCount = 0;
+	private long popCount = 0;
+	private int peakSize = 0;
+
+	/**
+	 * Returns an empty OpenList.
+	 */
+	OpenList() {
+		super();
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Get the number of Cells added so far; replacing a queued Cell's key does
+	 * not count.
+	 *
+	 * @return
+	 */
+	long getPushCount() {
+		return pushCount;
+	}
+
+	/**
+	 * Get the number of Cells removed so far, other than by clear.
+	 *
+	 * @return
+	 */
+	long getPopCount() {
+		return popCount;
+	}
+
+	/**
+	 * Get the most Cells held since resetPeakSize was last called.
+	 *
+	 * @return
+	 */
+	int getPeakSize() {
+		return peakSize;
+	}
+
+	void resetPeakSize() {
+		peakSize = size;
+	}
+
+	/**
+	 * Get the Cell id at the specified position in the heap, for visiting
+	 * every queued Cell.
+	 *
+	 * @param index
+	 * @return
+	 */
+	long get(int index) {
+		return cells[index];
+	}
+
+	boolean contains(long cell) {
+		return positions.containsKey(cell);
+	}
+
+	/**
+	 * Get the Cell id with the smallest key without removing it. The open list
+	 * must not be empty.
+	 *
+	 * @return
+	 */
+	long peek() {
+		return cells[0];
+	}
+
+	/**
+	 * Get the smallest key in the open list, or null if it is empty. Builds a
+	 * Costs; the search reads the key's parts with topPrimaryKey and
+	 * topSecondaryKey instead.
+	 *
+	 * @return
+	 */
+	Costs topKey() {
+		if (size == 0) {
+			return null;
+		}
+
+		return new Costs(primaryKeys[0], secondaryKeys[0]);
+	}
+
+	/**
+	 * Get the cost plus heuristic part of the smallest key. The open list must
+	 * not be empty.
+	 *
+	 * @return
+	 */
+	double topPrimaryKey() {
+		return primaryKeys[0];
+	}
+
+	/**
+	 * Get the cost part of the smallest key. The open list must not be empty.
+	 *
+	 * @return
+	 */
+	double topSecondaryKey() {
+		return secondaryKeys[0];
+	}
+
+	/**
+	 * Remove and return the Cell id with the smallest key. The open list must
+	 * not be empty.
+	 *
+	 * @return
+	 */
+	long pop() {
+		long top = cells[0];
+		removeAt(0);
+		return top;
+	}
+
+	/**
+	 * Queue the specified Cell with the specified key. If the Cell is already
+	 * queued its key is replaced.
+	 *
+	 * @param cell
+	 * @param key
+	 */
+	void insert(long cell, Costs key) {
+		insert(cell, key.getCostPlusHeuristic(), key.getCost());
+	}
+
+	/**
+	 * Queue the specified Cell with the key of the specified cost plus
+	 * heuristic and cost. If the Cell is already queued its key is replaced.
+	 *
+	 * @param cell
+	 * @param primaryKey
+	 * @param secondaryKey
+	 */
+	void insert(long cell, double primaryKey, double secondaryKey) {
+		int index = positions.get(cell);
+
+		if (index != LongIntHashMap.NO_VALUE) {
+			boolean isLower = Costs.compare(primaryKey, secondaryKey, primaryKeys[index], secondaryKeys[index]) < 0;
+			primaryKeys[index] = primaryKey;
+			secondaryKeys[index] = secondaryKey;
+
+			if (isLower) {
+				siftUp(index);
+			} else {
+				siftDown(index);
+			}
+
+			return;
+		}
+
+		if (size == cells.length) {
+			grow();
+		}
+
+		cells[size] = cell;
+		primaryKeys[size] = primaryKey;
+		secondaryKeys[size] = secondaryKey;
+		positions.put(cell, size);
+		siftUp(size++);
+		pushCount++;
+
+		if (size > peakSize) {
+			peakSize = size;
+		}
+	}
+
+	/**
+	 * Remove the specified Cell if it is queued.
+	 *
+	 * @param cell
+	 * @return true if the Cell was queued
+	 */
+	boolean remove(long cell) {
+		int index = positions.get(cell);
+
+		if (index == LongIntHashMap.NO_VALUE) {
+			return false;
+		}
+
+		removeAt(index);
+		return true;
+	}
+
+	/**
+	 * Remove every queued Cell.
+	 */
+	void clear() {
+		positions.clear();
+		size = 0;
+	}
+
+	private void removeAt(int index) {
+		positions.remove(cells[index]);
+		int last = --size;
+		popCount++;
+
+		if (index != last) {
+			boolean isLower = Costs.compare(primaryKeys[last], secondaryKeys[last], primaryKeys[index],
+					secondaryKeys[index]) < 0;
+			place(index, cells[last], primaryKeys[last], secondaryKeys[last]);
+
+			if (isLower) {
+				siftUp(index);
+			} else {
+				siftDown(index);
+			}
+		}
+	}
+
+	private void siftUp(int index) {
+		long cell = cells[index];
+		double primaryKey = primaryKeys[index];
+		double secondaryKey = secondaryKeys[index];
+
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+
+			if (Costs.compare(primaryKey, secondaryKey, primaryKeys[parent], secondaryKeys[parent]) >= 0) {
+				break;
+			}
+
+			place(index, cells[parent], primaryKeys[parent], secondaryKeys[parent]);
+			index = parent;
+		}
+
+		place(index, cell, primaryKey, secondaryKey);
+	}
+
+	private void siftDown(int index) {
+		long cell = cells[index];
+		double primaryKey = primaryKeys[index];
+		double secondaryKey = secondaryKeys[index];
+		int half = size >>> 1;
+
+		while (index < half) {
+			int child = (index << 1) + 1;
+			int right = child + 1;
+
+			if (right < size && Costs.compare(primaryKeys[right], secondaryKeys[right], primaryKeys[child],
+					secondaryKeys[child]) < 0) {
+				child = right;
+			}
+
+			if (Costs.compare(primaryKey, secondaryKey, primaryKeys[child], secondaryKeys[child]) <= 0) {
+				break;
+			}
+
+			place(index, cells[child], primaryKeys[child], secondaryKeys[child]);
+			index = child;
+		}
+
+		place(index, cell, primaryKey, secondaryKey);
+	}
+
+	private void place(int index, long cell, double primaryKey, double secondaryKey) {
+		cells[index] = cell;
+		primaryKeys[index] = primaryKey;
+		secondaryKeys[index] = secondaryKey;
+		positions.put(cell, index);
+	}
+
+	private void grow() {
+		int capacity = cells.length << 1;
+		cells = Arrays.copyOf(cells, capacity);
+		primaryKeys = Arrays.copyOf(primaryKeys, capacity);
+		secondaryKeys = Arrays.copyOf(secondaryKeys, capacity);
+	}
+
+}
@@ -26,4 +26,17 @@ public class Path extends LinkedList<Cell> {
 		this.isComplete = isComplete;
 	}
 
+	/**
+	 * Returns a new Path of only the waypoints of this one, dropping every
+	 * Cell a straight line from the waypoint before can skip without passing
+	 * through a Cell the specified BlockManager blocks.
+	 * 
+	 * @see PathSmoother
+	 * @param blockManager
+	 * @return
+	 */
+	public Path smooth(BlockManager blockManager) {
+		return new PathSmoother(blockManager).smooth(this);
+	}
+
 }
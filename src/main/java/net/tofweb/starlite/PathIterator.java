@@ -0,0 +1,220 @@
+package net.tofweb.starlite;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Walks the path from the start Cell to the goal Cell one Cell at a time,
+ * finding each step only when it is asked for, by moving to the successor
+ * with the lowest cost to move plus g value.
+ *
+ * A controller which only needs the next few moves before planning again
+ * reads just those, rather than having the whole Path extracted. The search
+ * state must not change while a PathIterator is in use.
+ *
+ * The walk always ends. Every step must lead to a Cell not visited before,
+ * whose g value is no higher than the last one's; if the g values are stale,
+ * for example because Cells were blocked since the search ran, the search is
+ * repaired once with computeShortestPath and the walk carries on from the
+ * repaired g values. A second failure, or passing the Pathfinder's limits on
+ * path length and extraction time, ends the path short of the goal.
+ *
+ * @see Pathfinder#iteratePath()
+ * @version .9
+ * @since .9
+ */
+public class PathIterator implements Iterator<Cell> {
+
+	private final CellSpace space;
+	private final BlockManager blockManager;
+	private final long[] potentialNextCells = new long[CellSpace.MAX_NEIGHBORS];
+	private final LongIntHashMap visited = new LongIntHashMap();
+	private final long startCell;
+	private final long goalCell;
+	private final int maxCells;
+	private final boolean hasDeadline;
+	private final long deadlineNanos;
+	private long currentCell;
+	private long nextCell;
+	private int cellCount = 0;
+	private boolean isRepaired = false;
+	private boolean hasNext;
+	private boolean isComplete = false;
+
+	PathIterator(CellSpace space, BlockManager blockManager, int maxCells, long timeoutNanos) {
+		super();
+		this.space = space;
+		this.blockManager = blockManager;
+		this.startCell = space.getId(space.getStartCell());
+		this.goalCell = space.getId(space.getGoalCell());
+		this.maxCells = maxCells;
+		this.hasDeadline = timeoutNanos != Long.MAX_VALUE;
+		this.deadlineNanos = hasDeadline ? System.nanoTime() + timeoutNanos : 0;
+		this.currentCell = startCell;
+		this.hasNext = space.getG(startCell) != Double.POSITIVE_INFINITY;
+		visited.put(startCell, 0);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return hasNext;
+	}
+
+	@Override
+	public Cell next() {
+		return space.toCell(nextCellId());
+	}
+
+	/**
+	 * Get the id of the next Cell of the path, without building a Cell.
+	 *
+	 * @return
+	 */
+	public long nextCellId() {
+		if (!hasNext) {
+			throw new NoSuchElementException();
+		}
+
+		long cell = currentCell;
+		cellCount++;
+
+		if (cell == goalCell) {
+			hasNext = false;
+			isComplete = true;
+		} else if (cellCount >= maxCells || isPastDeadline()) {
+			hasNext = false;
+		} else {
+			hasNext = step();
+		}
+
+		return cell;
+	}
+
+	/**
+	 * Return true once the goal Cell has been returned; false while it has
+	 * not been reached yet, or if the path stopped short of it.
+	 *
+	 * @return
+	 */
+	public boolean isComplete() {
+		return isComplete;
+	}
+
+	/**
+	 * Returns a Spliterator over the Cells this PathIterator has yet to
+	 * return, for streaming the path.
+	 *
+	 * @return
+	 */
+	public Spliterator<Cell> spliterator() {
+		return Spliterators.spliteratorUnknownSize(this,
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("A PathIterator reads the search state");
+	}
+
+	/**
+	 * Move to the next Cell, repairing the search once if the g values lead
+	 * back to a visited Cell or uphill. Returns false if the path ends here.
+	 */
+	private boolean step() {
+		if (!findNextCell()) {
+			return false;
+		}
+
+		if (!isDescent(nextCell)) {
+			if (isRepaired) {
+				return false;
+			}
+
+			// Bounded by the CellSpace's maximum steps
+			isRepaired = true;
+			space.computeShortestPath();
+
+			if (!findNextCell() || !isDescent(nextCell)) {
+				return false;
+			}
+		}
+
+		currentCell = nextCell;
+		visited.put(currentCell, cellCount);
+
+		return true;
+	}
+
+	private boolean isDescent(long cell) {
+		if (visited.containsKey(cell)) {
+			return false;
+		}
+
+		double g = space.getG(cell);
+		double currentG = space.getG(currentCell);
+
+		return g <= currentG || space.isClose(g, currentG);
+	}
+
+	private boolean isPastDeadline() {
+		// The clock is read once every 64 Cells
+		return hasDeadline && (cellCount & 63) == 0 && System.nanoTime() - deadlineNanos >= 0;
+	}
+
+	/**
+	 * Find the successor with the lowest cost to move plus g value, returning
+	 * false if every successor is blocked or unreached.
+	 */
+	private boolean findNextCell() {
+		int count = space.getSuccessors(currentCell, potentialNextCells);
+
+		boolean isTrapped = true;
+		double minimumCost = Double.POSITIVE_INFINITY;
+		double minimumDistance = Double.POSITIVE_INFINITY;
+		long minimumCell = currentCell;
+
+		for (int i = 0; i < count; i++) {
+			long potentialNextCell = potentialNextCells[i];
+
+			if (blockManager.isBlocked(space.getX(potentialNextCell), space.getY(potentialNextCell),
+					space.getZ(potentialNextCell))) {
+				continue;
+			}
+
+			double costToMove = space.cost(currentCell, potentialNextCell) + space.getG(potentialNextCell);
+
+			if (costToMove == Double.POSITIVE_INFINITY) {
+				continue;
+			} else {
+				isTrapped = false;
+			}
+
+			double euclideanDistance = distance(potentialNextCell, goalCell) + distance(startCell, potentialNextCell);
+
+			// If the costs are essentially equal, prefer the straighter line
+			if (space.isClose(costToMove, minimumCost)) {
+				if (euclideanDistance < minimumDistance) {
+					minimumCost = costToMove;
+					minimumDistance = euclideanDistance;
+					minimumCell = potentialNextCell;
+				}
+			} else if (costToMove < minimumCost) {
+				minimumCost = costToMove;
+				minimumDistance = euclideanDistance;
+				minimumCell = potentialNextCell;
+			}
+		}
+
+		nextCell = minimumCell;
+
+		return !isTrapped;
+	}
+
+	private double distance(long cellA, long cellB) {
+		return Heuristic.EUCLIDEAN.distance(space.getX(cellA) - space.getX(cellB),
+				space.getY(cellA) - space.getY(cellB), space.getZ(cellA) - space.getZ(cellB));
+	}
+
+}
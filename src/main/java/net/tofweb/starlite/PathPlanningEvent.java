@@ -0,0 +1,67 @@
+package net.tofweb.starlite;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event emitted by every Pathfinder.findPath and replan
+ * call, and every AnytimePathfinder.findPath and replan call, while the event
+ * is enabled in a recording, so slow plans can be lined up with garbage
+ * collections and allocation in the same recording. The event's duration
+ * covers both the search and the Path extraction.
+ *
+ * Enable it with a recording setting such as
+ * net.tofweb.starlite.PathPlanning#enabled=true, and give it a threshold to
+ * record only slow plans.
+ *
+ * @version .9
+ * @since .9
+ */
+@Name("net.tofweb.starlite.PathPlanning")
+@Label("Path Planning")
+@Category("Starlite")
+@Description("A D* Lite search and Path extraction")
+public final class PathPlanningEvent extends Event {
+
+	@Label("Start X")
+	int startX;
+
+	@Label("Start Y")
+	int startY;
+
+	@Label("Start Z")
+	int startZ;
+
+	@Label("Goal X")
+	int goalX;
+
+	@Label("Goal Y")
+	int goalY;
+
+	@Label("Goal Z")
+	int goalZ;
+
+	@Label("Path Length")
+	@Description("The number of Cells in the Path")
+	int pathLength;
+
+	@Label("Expansions")
+	@Description("The number of Cells the search expanded")
+	long expansions;
+
+	@Label("Touched Cells")
+	@Description("The number of Cells the search added to the open list")
+	long touchedCells;
+
+	@Label("Replan")
+	@Description("True if the search repaired an earlier search rather than starting over")
+	boolean replan;
+
+	@Label("Complete")
+	@Description("True if the Path reaches the goal")
+	boolean complete;
+
+}
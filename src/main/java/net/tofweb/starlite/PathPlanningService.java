@@ -0,0 +1,253 @@
+package net.tofweb.starlite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Plans Paths for many agents at once against one SharedObstacleMap.
+ *
+ * Requests run on a work stealing ForkJoinPool by default, one task per
+ * request. Each task borrows a search from a pool, so the CellSpaces, their
+ * open lists and their value storage are reused rather than allocated per
+ * request, and returns it when done. At most one search exists per request
+ * running at once, so with the default pool there are about as many searches
+ * as cores.
+ *
+ * Idle searches whose goal matches the request are borrowed first. Such a
+ * search keeps its search state and only moves its start Cell, so agents
+ * heading to the same goal repair one another's searches rather than start
+ * over. A search borrowed for a different goal resets its CellSpace and
+ * keeps it, so its value storage is reused. A CellSpace which stores Cells as
+ * they are made, such as the default HashMap backed one, keeps them across
+ * resets, so once it holds more than getMaxSpaceGrowth Cells beyond what it
+ * held when made, it is dropped for a new one from the factory instead.
+ *
+ * @version .9
+ * @since .9
+ */
+public class PathPlanningService {
+
+	/**
+	 * The number of Cells a pooled CellSpace may add before it is dropped
+	 * when none is specified.
+	 */
+	public static final long DEFAULT_MAX_SPACE_GROWTH = 1 << 20;
+
+	private final SharedObstacleMap obstacles;
+	private final Supplier<? extends CellSpace> spaceFactory;
+	private final Executor executor;
+	private final boolean isOwnExecutor;
+	private final ConcurrentLinkedQueue<Search> searches = new ConcurrentLinkedQueue<Search>();
+	private final AtomicInteger searchCount = new AtomicInteger();
+	private volatile long maxSpaceGrowth = DEFAULT_MAX_SPACE_GROWTH;
+
+	/**
+	 * Returns a PathPlanningService planning with CellSpaces against the
+	 * specified SharedObstacleMap on a ForkJoinPool with one thread per core.
+	 *
+	 * @param obstacles
+	 */
+	public PathPlanningService(SharedObstacleMap obstacles) {
+		this(obstacles, new Supplier<CellSpace>() {
+			@Override
+			public CellSpace get() {
+				return new CellSpace();
+			}
+		});
+	}
+
+	/**
+	 * Returns a PathPlanningService planning with CellSpaces made by the
+	 * specified factory, such as bounded DenseCellSpaces with a particular
+	 * Neighborhood, on a ForkJoinPool with one thread per core.
+	 *
+	 * @param obstacles
+	 * @param spaceFactory
+	 */
+	public PathPlanningService(SharedObstacleMap obstacles, Supplier<? extends CellSpace> spaceFactory) {
+		this(obstacles, spaceFactory, new ForkJoinPool(Runtime.getRuntime().availableProcessors()), true);
+	}
+
+	/**
+	 * Returns a PathPlanningService planning with CellSpaces made by the
+	 * specified factory on the specified Executor. The Executor is not shut
+	 * down by shutdown.
+	 *
+	 * @param obstacles
+	 * @param spaceFactory
+	 * @param executor
+	 */
+	public PathPlanningService(SharedObstacleMap obstacles, Supplier<? extends CellSpace> spaceFactory,
+			Executor executor) {
+		this(obstacles, spaceFactory, executor, false);
+	}
+
+	private PathPlanningService(SharedObstacleMap obstacles, Supplier<? extends CellSpace> spaceFactory,
+			Executor executor, boolean isOwnExecutor) {
+		super();
+		this.obstacles = obstacles;
+		this.spaceFactory = spaceFactory;
+		this.executor = executor;
+		this.isOwnExecutor = isOwnExecutor;
+	}
+
+	/**
+	 * Plan a Path for the specified request. The returned future completes
+	 * with the Path, which may not be complete, or exceptionally if the
+	 * request could not be planned.
+	 *
+	 * @param request
+	 * @return
+	 */
+	public CompletableFuture<Path> submit(final PathRequest request) {
+		return CompletableFuture.supplyAsync(new Supplier<Path>() {
+			@Override
+			public Path get() {
+				return plan(request);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Plan a Path for each of the specified requests. The returned futures
+	 * are in the same order as the requests.
+	 *
+	 * @param requests
+	 * @return
+	 */
+	public List<CompletableFuture<Path>> submitAll(List<PathRequest> requests) {
+		List<CompletableFuture<Path>> futures = new ArrayList<CompletableFuture<Path>>(requests.size());
+
+		for (PathRequest request : requests) {
+			futures.add(submit(request));
+		}
+
+		return futures;
+	}
+
+	/**
+	 * Get the number of searches made so far. Searches are pooled, so this
+	 * stays near the number of requests planned at once.
+	 *
+	 * @return
+	 */
+	public int getSearchCount() {
+		return searchCount.get();
+	}
+
+	/**
+	 * Get the number of Cells a pooled CellSpace may add before it is dropped
+	 * on a change of goal.
+	 *
+	 * @return
+	 */
+	public long getMaxSpaceGrowth() {
+		return maxSpaceGrowth;
+	}
+
+	/**
+	 * Set the number of Cells a pooled CellSpace may add before it is dropped
+	 * on a change of goal, rather than reset.
+	 *
+	 * @param maxSpaceGrowth
+	 *            at least 0
+	 */
+	public void setMaxSpaceGrowth(long maxSpaceGrowth) {
+		if (maxSpaceGrowth < 0) {
+			throw new IllegalArgumentException("Space growth must be at least 0, not " + maxSpaceGrowth);
+		}
+
+		this.maxSpaceGrowth = maxSpaceGrowth;
+	}
+
+	/**
+	 * Stop accepting requests, if the PathPlanningService made its own
+	 * executor. Requests already submitted still complete.
+	 */
+	public void shutdown() {
+		if (isOwnExecutor) {
+			((ExecutorService) executor).shutdown();
+		}
+	}
+
+	private Path plan(PathRequest request) {
+		Search search = borrow(request.getGoal());
+
+		if (search == null) {
+			search = new Search(spaceFactory.get());
+			searchCount.incrementAndGet();
+		}
+
+		try {
+			return search.plan(request);
+		} finally {
+			searches.offer(search);
+		}
+	}
+
+	/**
+	 * Take an idle search, preferring one already heading to the specified
+	 * goal. There are about as many idle searches as cores, so looking through
+	 * them is cheap.
+	 */
+	private Search borrow(Cell goal) {
+		for (Search search : searches) {
+			if (goal.equals(search.space.getGoalCell()) && searches.remove(search)) {
+				return search;
+			}
+		}
+
+		return searches.poll();
+	}
+
+	/**
+	 * One reusable search; a CellSpace and the BlockManager and Pathfinder
+	 * working on it.
+	 */
+	private class Search {
+
+		private CellSpace space;
+		private SharedObstacleBlockManager blockManager;
+		private Pathfinder pathfinder;
+		private long madeCells;
+
+		private Search(CellSpace space) {
+			use(space);
+		}
+
+		private void use(CellSpace space) {
+			this.space = space;
+			this.blockManager = new SharedObstacleBlockManager(space, obstacles);
+			this.pathfinder = new Pathfinder(blockManager);
+			this.madeCells = space.getStoredCellCount();
+		}
+
+		private Path plan(PathRequest request) {
+			Cell start = request.getStart();
+			Cell goal = request.getGoal();
+
+			if (space.getGoalCell() != null && !goal.equals(space.getGoalCell())
+					&& space.getStoredCellCount() - madeCells > maxSpaceGrowth) {
+				use(spaceFactory.get());
+			}
+
+			blockManager.sync();
+
+			if (!goal.equals(space.getGoalCell())) {
+				space.setGoalCell(goal.getX(), goal.getY(), goal.getZ());
+			}
+
+			space.setStartCell(start.getX(), start.getY(), start.getZ());
+
+			return pathfinder.findPath();
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+package net.tofweb.starlite;
+
+/**
+ * A request to the PathPlanningService for a Path from a start Cell to a goal
+ * Cell.
+ *
+ * @version .9
+ * @since .9
+ */
+public class PathRequest {
+
+	private final Cell start;
+	private final Cell goal;
+
+	/**
+	 * Returns a PathRequest from the specified start Cell to the specified
+	 * goal Cell.
+	 *
+	 * @param start
+	 * @param goal
+	 */
+	public PathRequest(Cell start, Cell goal) {
+		super();
+
+		if (start == null || goal == null) {
+			throw new IllegalArgumentException("A PathRequest needs a start and a goal Cell");
+		}
+
+		this.start = start;
+		this.goal = goal;
+	}
+
+	public Cell getStart() {
+		return start;
+	}
+
+	public Cell getGoal() {
+		return goal;
+	}
+
+}
@@ -0,0 +1,83 @@
+package net.tofweb.starlite;
+
+import java.util.Iterator;
+
+/**
+ * Shortens Paths by string pulling: Cells are dropped from a Path for as long
+ * as the straight line from the last kept Cell to the next one stays clear of
+ * blocked Cells, leaving only the waypoints where the Path must turn.
+ *
+ * The waypoints of a smoothed Path are no longer neighbors, so a controller
+ * moves in straight lines between them. Lines are tested with
+ * Geometry.hasLineOfSight against the BlockManager only; Cell costs are not
+ * read, so on maps with costly Cells a smoothed Path may cross Cells the grid
+ * Path went around.
+ *
+ * @version .9
+ * @since .9
+ */
+public class PathSmoother {
+
+	private final BlockManager blockManager;
+
+	/**
+	 * Returns a PathSmoother testing lines against the specified BlockManager.
+	 *
+	 * @param blockManager
+	 */
+	public PathSmoother(BlockManager blockManager) {
+		super();
+		this.blockManager = blockManager;
+	}
+
+	/**
+	 * Returns a new Path of the waypoints of the specified Path, starting and
+	 * ending with the same Cells, and complete if it is.
+	 *
+	 * @param path
+	 * @return
+	 */
+	public Path smooth(Path path) {
+		Path smoothed = new Path();
+		smoothed.setComplete(path.isComplete());
+
+		if (path.size() <= 2) {
+			smoothed.addAll(path);
+			return smoothed;
+		}
+
+		Iterator<Cell> cells = path.iterator();
+		Cell anchor = cells.next();
+		Cell previous = cells.next();
+		smoothed.add(anchor);
+
+		while (cells.hasNext()) {
+			Cell cell = cells.next();
+
+			if (!hasLineOfSight(anchor, cell)) {
+				smoothed.add(previous);
+				anchor = previous;
+			}
+
+			previous = cell;
+		}
+
+		smoothed.add(previous);
+
+		return smoothed;
+	}
+
+	/**
+	 * True if the straight line between the two specified Cells passes
+	 * through no blocked Cell.
+	 *
+	 * @param cellA
+	 * @param cellB
+	 * @return
+	 */
+	public boolean hasLineOfSight(Cell cellA, Cell cellB) {
+		return Geometry.hasLineOfSight(blockManager, cellA.getX(), cellA.getY(), cellA.getZ(), cellB.getX(),
+				cellB.getY(), cellB.getZ());
+	}
+
+}
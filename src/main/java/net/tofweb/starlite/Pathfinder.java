@@ -1,17 +1,36 @@
 package net.tofweb.starlite;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Finds a path through the specified BlockManager controlled CellSpace.
  * 
+ * Every call returns a new Path, so Paths returned earlier are never changed.
+ * A Pathfinder keeps no search state of its own; the search state lives in
+ * the CellSpace, which must only be used by one thread at a time.
+ * 
+ * Extraction is bounded: it never visits a Cell twice, stops after
+ * getMaxPathCells Cells and, if set, after the extraction timeout, and
+ * repairs the search once if it finds stale g values. See PathIterator.
+ * 
  * @version .9
  * @since .9
  */
 public class Pathfinder {
 
-	private Path path = new Path();
+	private static final boolean IS_FLIGHT_RECORDER_AVAILABLE = isClassAvailable("jdk.jfr.Event");
+
+	/**
+	 * The most Cells a path is extracted to when no other limit is set.
+	 */
+	public static final int DEFAULT_MAX_PATH_CELLS = 1 << 20;
+
 	private BlockManager blockManager;
+	private int maxPathCells = DEFAULT_MAX_PATH_CELLS;
+	private long extractionTimeoutNanos = Long.MAX_VALUE;
 
 	/**
 	 * Creates a Pathfinder with the specified BlockManager.
@@ -23,76 +42,305 @@ public class Pathfinder {
 		this.blockManager = blockManager;
 	}
 
+	/**
+	 * Get the most Cells a path is extracted to before it ends, incomplete.
+	 * 
+	 * @return
+	 */
+	public int getMaxPathCells() {
+		return maxPathCells;
+	}
+
+	/**
+	 * Set the most Cells a path is extracted to before it ends, incomplete.
+	 * 
+	 * @param maxPathCells
+	 *            at least 1
+	 */
+	public void setMaxPathCells(int maxPathCells) {
+		if (maxPathCells < 1) {
+			throw new IllegalArgumentException("A path needs at least 1 Cell, not " + maxPathCells);
+		}
+
+		this.maxPathCells = maxPathCells;
+	}
+
+	/**
+	 * Get the time an extraction may take before the path ends, incomplete,
+	 * in nanoseconds. Long.MAX_VALUE, the default, means no limit.
+	 * 
+	 * @return
+	 */
+	public long getExtractionTimeoutNanos() {
+		return extractionTimeoutNanos;
+	}
+
+	/**
+	 * Set the time an extraction may take before the path ends, incomplete,
+	 * in nanoseconds. Long.MAX_VALUE means no limit. The search itself is
+	 * bounded by CellSpace.setMaxSteps.
+	 * 
+	 * @param extractionTimeoutNanos
+	 *            at least 0
+	 */
+	public void setExtractionTimeoutNanos(long extractionTimeoutNanos) {
+		if (extractionTimeoutNanos < 0) {
+			throw new IllegalArgumentException("Extraction timeout cannot be negative: " + extractionTimeoutNanos);
+		}
+
+		this.extractionTimeoutNanos = extractionTimeoutNanos;
+	}
+
 	/**
 	 * Find and returns a path to the goal.
 	 * 
+	 * The D* Lite search is run until the start Cell is consistent, then the
+	 * path is extracted by repeatedly moving to the successor with the lowest
+	 * cost to move plus g value.
+	 * 
 	 * The returned path may not be complete, meaning that it was not able to
 	 * find a path to the goal. The Path should be checked for completion.
 	 * 
+	 * If the CellSpace is measured, the extraction is reported to its
+	 * SearchMetrics and SearchListener. While a Flight Recorder recording
+	 * enables it, a PathPlanningEvent is committed for every call.
+	 * 
 	 * @return Path The discovered Path
 	 */
 	public Path findPath() {
-		path.clear();
+		CellSpace space = blockManager.getSpace();
+
+		if (IS_FLIGHT_RECORDER_AVAILABLE) {
+			PathPlanningEvent event = new PathPlanningEvent();
 
+			if (event.isEnabled()) {
+				return findPath(space, event, null);
+			}
+		}
+
+		return plan(space);
+	}
+
+	/**
+	 * Move the start Cell to the specified Cell and find a new path to the
+	 * goal.
+	 * 
+	 * The search state is kept between calls, so after the robot moves, or
+	 * after Cell costs change through CellSpace.updateCosts or a
+	 * BlockManager, only the Cells affected by the change are expanded again.
+	 * 
+	 * @param newStart
+	 * @return Path The discovered Path
+	 */
+	public Path replan(Cell newStart) {
 		CellSpace space = blockManager.getSpace();
-		LinkedList<Cell> potentialNextCells = new LinkedList<Cell>();
-		Cell currentCell = space.getStartCell();
+		space.setStartCell(newStart.getX(), newStart.getY(), newStart.getZ());
 
-		if (space.getG(space.getStartCell()) == Double.POSITIVE_INFINITY) {
-			return path;
+		return findPath();
+	}
+
+	/**
+	 * Find and return a path to the goal as a CompactPath, which stores its
+	 * Cells as packed coordinates rather than Cell objects.
+	 * 
+	 * The search and extraction are the same as findPath's. If the CellSpace
+	 * is measured, the extraction is reported to its SearchMetrics and
+	 * SearchListener.
+	 * 
+	 * @return CompactPath The discovered path
+	 */
+	public CompactPath findCompactPath() {
+		CellSpace space = blockManager.getSpace();
+		space.computeShortestPath();
+
+		if (!space.isMeasured()) {
+			return extractCompactPath(space);
 		}
 
-		boolean isTrapped = false;
-		while (!currentCell.equals(space.getGoalCell()) && !isTrapped) {
-			isTrapped = true;
-			path.add(currentCell);
-			potentialNextCells = space.getSuccessors(currentCell);
+		long startNanos = System.nanoTime();
+		CompactPath path = extractCompactPath(space);
+		space.recordExtraction(path.size(), System.nanoTime() - startNanos);
 
-			if (potentialNextCells.isEmpty()) {
-				return path;
-			}
+		return path;
+	}
 
-			double minimumCost = Double.POSITIVE_INFINITY;
-			Cell minimumCell = new Cell();
-
-			for (Cell potentialNextCell : potentialNextCells) {
-
-				if (blockManager.isBlocked(potentialNextCell)) {
-					continue;
-				} else {
-					isTrapped = false;
-				}
-
-				double costToMove = Geometry.euclideanDistance(currentCell, potentialNextCell);
-				double euclideanDistance = Geometry.euclideanDistance(potentialNextCell, space.getGoalCell())
-						+ Geometry.euclideanDistance(space.getStartCell(), potentialNextCell);
-				costToMove += space.getG(potentialNextCell);
-
-				// If the cost to move is essentially zero ...
-				if (space.isClose(costToMove, minimumCost)) {
-					if (0 > euclideanDistance) {
-						minimumCost = costToMove;
-						minimumCell = potentialNextCell;
-					}
-				} else if (costToMove < minimumCost) {
-					minimumCost = costToMove;
-					minimumCell = potentialNextCell;
-				}
+	/**
+	 * Run the search and return a PathIterator, which finds each step of the
+	 * path only when it is read. A controller which acts on the next few
+	 * moves and then plans again pays only for those moves.
+	 * 
+	 * The search state must not change while the PathIterator is read. Lazy
+	 * extraction is not reported to a SearchMetrics or SearchListener.
+	 * 
+	 * @return PathIterator The steps of the discovered path
+	 */
+	public PathIterator iteratePath() {
+		CellSpace space = blockManager.getSpace();
+		space.computeShortestPath();
+
+		return iterator(space);
+	}
+
+	/**
+	 * Find a path to the goal from each of the specified start Cells, in the
+	 * same order.
+	 * 
+	 * Since the search runs backwards from the goal, its g values are
+	 * distances to the goal whichever Cell is the start. The start Cell is
+	 * moved to each requested start in turn, nearest the goal first, and the
+	 * search only expands further until that start is consistent, so Cells
+	 * settled for one start are never searched again for the next. The
+	 * CellSpace's own start Cell is put back afterwards.
+	 * 
+	 * @param starts
+	 * @return List of Paths The discovered Paths
+	 */
+	public List<Path> findPaths(List<Cell> starts) {
+		CellSpace space = blockManager.getSpace();
+		Cell goal = space.getGoalCell();
+		Cell originalStart = space.getStartCell();
+
+		Integer[] order = new Integer[starts.size()];
+		final double[] distances = new double[starts.size()];
+		for (int i = 0; i < order.length; i++) {
+			Cell start = starts.get(i);
+			order[i] = i;
+			distances[i] = Heuristic.EUCLIDEAN.distance(start.getX() - goal.getX(), start.getY() - goal.getY(),
+					start.getZ() - goal.getZ());
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(distances[a], distances[b]);
 			}
+		});
 
-			if (!isTrapped) {
-				potentialNextCells.clear();
-				currentCell = new Cell(minimumCell);
+		Path[] paths = new Path[order.length];
+		for (int i : order) {
+			paths[i] = replan(starts.get(i));
+		}
+
+		if (originalStart != null) {
+			space.setStartCell(originalStart.getX(), originalStart.getY(), originalStart.getZ());
+		}
+
+		return Arrays.asList(paths);
+	}
+
+	/**
+	 * Run the specified planner, which searches the CellSpace and extracts a
+	 * Path, committing a PathPlanningEvent for it as findPath does.
+	 * 
+	 * @param planner
+	 * @return
+	 */
+	Path findPath(Supplier<Path> planner) {
+		CellSpace space = blockManager.getSpace();
+
+		if (IS_FLIGHT_RECORDER_AVAILABLE) {
+			PathPlanningEvent event = new PathPlanningEvent();
+
+			if (event.isEnabled()) {
+				return findPath(space, event, planner);
 			}
 		}
 
-		if (!isTrapped) {
-			path.add(space.getGoalCell());
+		return planner.get();
+	}
+
+	private Path findPath(CellSpace space, PathPlanningEvent event, Supplier<Path> planner) {
+		event.begin();
+		boolean isReplan = space.isSearchStarted();
+		long startExpansions = space.getExpansionCount();
+		long startPushes = space.getPushCount();
+
+		Path path = planner == null ? plan(space) : planner.get();
+
+		event.end();
+		if (event.shouldCommit()) {
+			Cell start = space.getStartCell();
+			Cell goal = space.getGoalCell();
+			event.startX = start.getX();
+			event.startY = start.getY();
+			event.startZ = start.getZ();
+			event.goalX = goal.getX();
+			event.goalY = goal.getY();
+			event.goalZ = goal.getZ();
+			event.pathLength = path.size();
+			event.expansions = space.getExpansionCount() - startExpansions;
+			event.touchedCells = space.getPushCount() - startPushes;
+			event.replan = isReplan;
+			event.complete = path.isComplete();
+			event.commit();
+		}
+
+		return path;
+	}
+
+	/**
+	 * Extract a path from the current search state, reporting it to the
+	 * CellSpace's SearchMetrics and SearchListener if it is measured.
+	 * 
+	 * @param space
+	 * @return
+	 */
+	Path extract(CellSpace space) {
+		if (!space.isMeasured()) {
+			return extractPath(space);
 		}
 
-		path.setComplete(blockManager.getSpace().getGoalCell().equals(path.getLast()));
+		long startNanos = System.nanoTime();
+		Path path = extractPath(space);
+		space.recordExtraction(path.size(), System.nanoTime() - startNanos);
 
 		return path;
 	}
 
+	private Path plan(CellSpace space) {
+		space.computeShortestPath();
+
+		return extract(space);
+	}
+
+	private Path extractPath(CellSpace space) {
+		Path path = new Path();
+
+		PathIterator cells = iterator(space);
+		while (cells.hasNext()) {
+			path.add(cells.next());
+		}
+
+		path.setComplete(cells.isComplete());
+
+		return path;
+	}
+
+	private CompactPath extractCompactPath(CellSpace space) {
+		CompactPath path = new CompactPath();
+
+		PathIterator cells = iterator(space);
+		while (cells.hasNext()) {
+			long cellId = cells.nextCellId();
+			path.add(space.getX(cellId), space.getY(cellId), space.getZ(cellId));
+		}
+
+		path.setComplete(cells.isComplete());
+
+		return path;
+	}
+
+	private PathIterator iterator(CellSpace space) {
+		return new PathIterator(space, blockManager, maxPathCells, extractionTimeoutNanos);
+	}
+
+	private static boolean isClassAvailable(String className) {
+		try {
+			Class.forName(className, false, Pathfinder.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
 }
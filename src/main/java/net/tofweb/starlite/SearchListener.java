@@ -0,0 +1,29 @@
+package net.tofweb.starlite;
+
+/**
+ * Told about every search a CellSpace runs and every Path extracted from it,
+ * on the searching thread.
+ *
+ * @see CellSpace#setSearchListener(SearchListener)
+ * @version .9
+ * @since .9
+ */
+public interface SearchListener {
+
+	/**
+	 * Called when CellSpace.computeShortestPath returns, with the work done by
+	 * that one call.
+	 *
+	 * @param search
+	 */
+	void searchCompleted(SearchMetrics search);
+
+	/**
+	 * Called when a Pathfinder has extracted a Path, with the work done
+	 * extracting it.
+	 *
+	 * @param extraction
+	 */
+	void pathExtracted(SearchMetrics extraction);
+
+}
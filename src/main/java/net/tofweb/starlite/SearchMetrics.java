@@ -0,0 +1,230 @@
+package net.tofweb.starlite;
+
+/**
+ * Counts the work done by D* Lite searches and Path extractions; Cells
+ * expanded, open list pushes and pops, the largest the open list grew, Cells
+ * made, and the time spent in each phase.
+ *
+ * A CellSpace measures its searches only while a SearchMetrics or a
+ * SearchListener is attached, and then only adds a few primitive counters and
+ * two calls to System.nanoTime per search, so measuring can stay on in
+ * production. One SearchMetrics may total the searches of many CellSpaces on
+ * many threads. It is also an MXBean, so it can be published with
+ * ManagementFactory.getPlatformMBeanServer().registerMBean.
+ *
+ * @see CellSpace#setSearchMetrics(SearchMetrics)
+ * @version .9
+ * @since .9
+ */
+public class SearchMetrics implements SearchMetricsMXBean {
+
+	private long searchCount = 0;
+	private long replanCount = 0;
+	private long incompleteSearchCount = 0;
+	private long expansionCount = 0;
+	private long pushCount = 0;
+	private long popCount = 0;
+	private int peakOpenSize = 0;
+	private long madeCellCount = 0;
+	private long searchNanos = 0;
+	private long extractionCount = 0;
+	private long extractedCellCount = 0;
+	private long extractionNanos = 0;
+
+	/**
+	 * Returns a SearchMetrics with every count zero.
+	 */
+	public SearchMetrics() {
+		super();
+	}
+
+	/**
+	 * Get the number of calls to computeShortestPath.
+	 *
+	 * @return
+	 */
+	public synchronized long getSearchCount() {
+		return searchCount;
+	}
+
+	/**
+	 * Get the number of calls to computeShortestPath which repaired an
+	 * existing search rather than starting a new one.
+	 *
+	 * @return
+	 */
+	public synchronized long getReplanCount() {
+		return replanCount;
+	}
+
+	/**
+	 * Get the number of calls to computeShortestPath which ran out of steps.
+	 *
+	 * @return
+	 */
+	public synchronized long getIncompleteSearchCount() {
+		return incompleteSearchCount;
+	}
+
+	/**
+	 * Get the number of Cells expanded, that is made consistent or
+	 * underconsistent.
+	 *
+	 * @return
+	 */
+	public synchronized long getExpansionCount() {
+		return expansionCount;
+	}
+
+	/**
+	 * Get the number of Cells added to the open list.
+	 *
+	 * @return
+	 */
+	public synchronized long getPushCount() {
+		return pushCount;
+	}
+
+	/**
+	 * Get the number of Cells removed from the open list.
+	 *
+	 * @return
+	 */
+	public synchronized long getPopCount() {
+		return popCount;
+	}
+
+	/**
+	 * Get the largest number of Cells the open list held during a search.
+	 *
+	 * @return
+	 */
+	public synchronized int getPeakOpenSize() {
+		return peakOpenSize;
+	}
+
+	/**
+	 * Get the number of Cells the searches reached for the first time, and so
+	 * made. Always zero for a DenseCellSpace, whose Cells all exist up front.
+	 *
+	 * @return
+	 */
+	public synchronized long getMadeCellCount() {
+		return madeCellCount;
+	}
+
+	/**
+	 * Get the wall time spent in computeShortestPath, in nanoseconds.
+	 *
+	 * @return
+	 */
+	public synchronized long getSearchNanos() {
+		return searchNanos;
+	}
+
+	/**
+	 * Get the number of Paths extracted.
+	 *
+	 * @return
+	 */
+	public synchronized long getExtractionCount() {
+		return extractionCount;
+	}
+
+	/**
+	 * Get the number of Cells in the extracted Paths.
+	 *
+	 * @return
+	 */
+	public synchronized long getExtractedCellCount() {
+		return extractedCellCount;
+	}
+
+	/**
+	 * Get the wall time spent extracting Paths, in nanoseconds.
+	 *
+	 * @return
+	 */
+	public synchronized long getExtractionNanos() {
+		return extractionNanos;
+	}
+
+	/**
+	 * Set every count back to zero.
+	 */
+	public synchronized void reset() {
+		searchCount = 0;
+		replanCount = 0;
+		incompleteSearchCount = 0;
+		expansionCount = 0;
+		pushCount = 0;
+		popCount = 0;
+		peakOpenSize = 0;
+		madeCellCount = 0;
+		searchNanos = 0;
+		extractionCount = 0;
+		extractedCellCount = 0;
+		extractionNanos = 0;
+	}
+
+	/**
+	 * Add the counts of the specified SearchMetrics to this one's.
+	 *
+	 * @param other
+	 */
+	public void add(SearchMetrics other) {
+		// Copied first so the two locks are never held together
+		SearchMetrics copy = new SearchMetrics();
+		synchronized (other) {
+			copy.addUnlocked(other);
+		}
+
+		synchronized (this) {
+			addUnlocked(copy);
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SearchMetrics [searches=" + searchCount + ", replans=" + replanCount + ", incomplete="
+				+ incompleteSearchCount + ", expansions=" + expansionCount + ", pushes=" + pushCount + ", pops="
+				+ popCount + ", peakOpenSize=" + peakOpenSize + ", madeCells=" + madeCellCount + ", searchNanos="
+				+ searchNanos + ", extractions=" + extractionCount + ", extractedCells=" + extractedCellCount
+				+ ", extractionNanos=" + extractionNanos + "]";
+	}
+
+	synchronized void recordSearch(boolean isReplan, boolean isComplete, long expansions, long pushes, long pops,
+			int peakSize, long madeCells, long nanos) {
+		searchCount++;
+		replanCount += isReplan ? 1 : 0;
+		incompleteSearchCount += isComplete ? 0 : 1;
+		expansionCount += expansions;
+		pushCount += pushes;
+		popCount += pops;
+		peakOpenSize = Math.max(peakOpenSize, peakSize);
+		madeCellCount += madeCells;
+		searchNanos += nanos;
+	}
+
+	synchronized void recordExtraction(long cells, long nanos) {
+		extractionCount++;
+		extractedCellCount += cells;
+		extractionNanos += nanos;
+	}
+
+	private void addUnlocked(SearchMetrics other) {
+		searchCount += other.searchCount;
+		replanCount += other.replanCount;
+		incompleteSearchCount += other.incompleteSearchCount;
+		expansionCount += other.expansionCount;
+		pushCount += other.pushCount;
+		popCount += other.popCount;
+		peakOpenSize = Math.max(peakOpenSize, other.peakOpenSize);
+		madeCellCount += other.madeCellCount;
+		searchNanos += other.searchNanos;
+		extractionCount += other.extractionCount;
+		extractedCellCount += other.extractedCellCount;
+		extractionNanos += other.extractionNanos;
+	}
+
+}
@@ -0,0 +1,39 @@
+package net.tofweb.starlite;
+
+/**
+ * The management interface of SearchMetrics, so a SearchMetrics registered
+ * with an MBeanServer can be read through JMX.
+ *
+ * @see SearchMetrics
+ * @version .9
+ * @since .9
+ */
+public interface SearchMetricsMXBean {
+
+	long getSearchCount();
+
+	long getReplanCount();
+
+	long getIncompleteSearchCount();
+
+	long getExpansionCount();
+
+	long getPushCount();
+
+	long getPopCount();
+
+	int getPeakOpenSize();
+
+	long getMadeCellCount();
+
+	long getSearchNanos();
+
+	long getExtractionCount();
+
+	long getExtractedCellCount();
+
+	long getExtractionNanos();
+
+	void reset();
+
+}
@@ -0,0 +1,124 @@
+package net.tofweb.starlite;
+
+/**
+ * A BlockManager which reads blocked Cells from a SharedObstacleMap, so many
+ * searches, each with its own CellSpace, can share one set of obstacles.
+ *
+ * Each SharedObstacleBlockManager holds on to one version of the
+ * ObstacleMap, so a search never sees obstacles change under it. Each search
+ * first moves to the latest version through applyUpdates, or call sync to
+ * move sooner; the CellSpace is told which boxes changed, so the search
+ * repairs rather than starts over.
+ *
+ * A SharedObstacleBlockManager belongs to its CellSpace and, like it, must
+ * only be used by one thread at a time.
+ *
+ * @version .9
+ * @since .9
+ */
+public class SharedObstacleBlockManager extends BlockManager {
+
+	private final SharedObstacleMap sharedMap;
+	private ObstacleMap map;
+	private long lastChunkKey = Long.MIN_VALUE;
+	private int lastChunk = LongIntHashMap.NO_VALUE;
+
+	/**
+	 * Return a SharedObstacleBlockManager which manages the specified
+	 * CellSpace using the latest version of the specified SharedObstacleMap.
+	 *
+	 * @param space
+	 * @param sharedMap
+	 */
+	public SharedObstacleBlockManager(CellSpace space, SharedObstacleMap sharedMap) {
+		super(space);
+		this.sharedMap = sharedMap;
+		this.map = sharedMap.getMap();
+	}
+
+	/**
+	 * Get the version of the ObstacleMap this SharedObstacleBlockManager
+	 * reads.
+	 *
+	 * @return
+	 */
+	public ObstacleMap getMap() {
+		return map;
+	}
+
+	/**
+	 * Move to the latest version of the SharedObstacleMap, telling the
+	 * CellSpace which boxes changed. If the changes are no longer remembered
+	 * the search is reset.
+	 *
+	 * @return true if the version changed
+	 */
+	public boolean sync() {
+		ObstacleMap latest = sharedMap.getMap();
+
+		if (latest == map) {
+			return false;
+		}
+
+		int[] changes = sharedMap.getChangesSince(map.getVersion(), latest.getVersion());
+		this.map = latest;
+		this.lastChunkKey = Long.MIN_VALUE;
+
+		if (changes == null) {
+			space.resetSearch();
+		} else {
+			for (int i = 0; i < changes.length; i += 6) {
+				space.updateRegion(changes[i], changes[i + 1], changes[i + 2], changes[i + 3], changes[i + 4],
+						changes[i + 5]);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Move to the latest version of the SharedObstacleMap; called by
+	 * CellSpace.computeShortestPath before it searches.
+	 *
+	 * @see net.tofweb.starlite.BlockManager#applyUpdates()
+	 */
+	@Override
+	public void applyUpdates() {
+		sync();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.tofweb.starlite.BlockManager#isBlocked(net.tofweb.starlite.Cell)
+	 */
+	public boolean isBlocked(Cell cell) {
+		if (cell == null) {
+			return false;
+		}
+
+		return isBlocked(cell.getX(), cell.getY(), cell.getZ());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.tofweb.starlite.BlockManager#isBlocked(int, int, int)
+	 */
+	@Override
+	public boolean isBlocked(int x, int y, int z) {
+		if (!CellId.isPackable(x, y, z)) {
+			return false;
+		}
+
+		long chunkKey = ObstacleMap.chunkKey(x, y, z);
+
+		if (chunkKey != lastChunkKey) {
+			lastChunkKey = chunkKey;
+			lastChunk = map.findChunk(chunkKey);
+		}
+
+		return lastChunk != LongIntHashMap.NO_VALUE && map.isSet(lastChunk, x, y, z);
+	}
+
+}
@@ -0,0 +1,143 @@
+package net.tofweb.starlite;
+
+/**
+ * Publishes the latest version of an ObstacleMap to any number of searches
+ * running on other threads.
+ *
+ * Readers get the current ObstacleMap without locking and keep using it for
+ * as long as they like. Writers are serialized; each change publishes a new
+ * version and records the changed box, so a reader holding an older version
+ * can ask which boxes changed since and repair its search rather than start
+ * over. Only the most recent changes are remembered.
+ *
+ * @see SharedObstacleBlockManager
+ * @version .9
+ * @since .9
+ */
+public class SharedObstacleMap {
+
+	/**
+	 * The default number of changes remembered.
+	 */
+	public static final int DEFAULT_HISTORY = 1024;
+
+	private volatile ObstacleMap map;
+	private final long baseVersion;
+	private final int history;
+	private final int[] changedBoxes;
+
+	/**
+	 * Returns a SharedObstacleMap with no blocked Cells.
+	 */
+	public SharedObstacleMap() {
+		this(new ObstacleMap(), DEFAULT_HISTORY);
+	}
+
+	/**
+	 * Returns a SharedObstacleMap publishing the specified ObstacleMap and
+	 * remembering the specified number of changes.
+	 *
+	 * @param map
+	 * @param history
+	 */
+	public SharedObstacleMap(ObstacleMap map, int history) {
+		super();
+
+		if (history < 1) {
+			throw new IllegalArgumentException("A SharedObstacleMap must remember at least one change");
+		}
+
+		this.map = map;
+		this.baseVersion = map.getVersion();
+		this.history = history;
+		this.changedBoxes = new int[history * 6];
+	}
+
+	/**
+	 * Get the latest version of the ObstacleMap.
+	 *
+	 * @return
+	 */
+	public ObstacleMap getMap() {
+		return map;
+	}
+
+	/**
+	 * Block every Cell in the specified box, bounds included, and publish the
+	 * result.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @return the published ObstacleMap
+	 */
+	public synchronized ObstacleMap blockRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		return publish(map.withBlockedRegion(minX, minY, minZ, maxX, maxY, maxZ), minX, minY, minZ, maxX, maxY,
+				maxZ);
+	}
+
+	/**
+	 * Free every Cell in the specified box, bounds included, and publish the
+	 * result.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @return the published ObstacleMap
+	 */
+	public synchronized ObstacleMap unblockRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		return publish(map.withUnblockedRegion(minX, minY, minZ, maxX, maxY, maxZ), minX, minY, minZ, maxX, maxY,
+				maxZ);
+	}
+
+	/**
+	 * Get the boxes changed after the first specified version, up to and
+	 * including the second, six ints per box in the order minX, minY, minZ,
+	 * maxX, maxY, maxZ. Returns null if some of those changes are no longer
+	 * remembered.
+	 *
+	 * @param fromVersion
+	 * @param toVersion
+	 * @return
+	 */
+	public synchronized int[] getChangesSince(long fromVersion, long toVersion) {
+		long latestVersion = map.getVersion();
+
+		if (fromVersion < baseVersion || fromVersion < latestVersion - history || toVersion > latestVersion
+				|| toVersion < fromVersion) {
+			return null;
+		}
+
+		int[] changes = new int[(int) (toVersion - fromVersion) * 6];
+		for (long version = fromVersion + 1; version <= toVersion; version++) {
+			System.arraycopy(changedBoxes, slot(version), changes, (int) (version - fromVersion - 1) * 6, 6);
+		}
+
+		return changes;
+	}
+
+	private ObstacleMap publish(ObstacleMap newMap, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		int slot = slot(newMap.getVersion());
+		changedBoxes[slot] = minX;
+		changedBoxes[slot + 1] = minY;
+		changedBoxes[slot + 2] = minZ;
+		changedBoxes[slot + 3] = maxX;
+		changedBoxes[slot + 4] = maxY;
+		changedBoxes[slot + 5] = maxZ;
+
+		this.map = newMap;
+
+		return newMap;
+	}
+
+	private int slot(long version) {
+		return (int) (version % history) * 6;
+	}
+
+}
@@ -0,0 +1,271 @@
+package net.tofweb.starlite;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * A CellSpace for unbounded worlds which keeps Cell values off the heap.
+ *
+ * Space is divided into bricks of 16 x 16 x 16 Cells. A brick is made the
+ * first time any of its Cells is made, and its g, rhs and cost values are
+ * stored column by column in a direct ByteBuffer. Bricks are allocated in
+ * slabs of several bricks to keep the number of direct buffers small, and are
+ * found through a primitive long keyed map, so tens of millions of touched
+ * Cells cost the heap only a few bytes per brick.
+ *
+ * @version .9
+ * @since .9
+ */
+public class SparseCellSpace extends CellSpace {
+
+	/**
+	 * The number of Cells along each edge of a brick.
+	 */
+	public static final int BRICK_EDGE = 16;
+
+	private static final int BRICK_SHIFT = 4;
+	private static final int BRICK_MASK = BRICK_EDGE - 1;
+	private static final int BRICK_CELLS = BRICK_EDGE * BRICK_EDGE * BRICK_EDGE;
+
+	// Column offsets within a brick, in bytes
+	private static final int G_OFFSET = 0;
+	private static final int RHS_OFFSET = G_OFFSET + BRICK_CELLS * 8;
+	private static final int COST_OFFSET = RHS_OFFSET + BRICK_CELLS * 8;
+	private static final int BRICK_BYTES = COST_OFFSET + BRICK_CELLS * 4;
+
+	private static final int BRICKS_PER_SLAB = 64;
+
+	private LongIntHashMap brickIndex = new LongIntHashMap();
+	private long[] brickKeys = new long[BRICKS_PER_SLAB];
+	private ArrayList<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+	private int brickCount = 0;
+	private long lastBrickKey = Long.MIN_VALUE;
+	private int lastBrick = LongIntHashMap.NO_VALUE;
+
+	/**
+	 * Returns an empty SparseCellSpace
+	 */
+	public SparseCellSpace() {
+		super();
+	}
+
+	/**
+	 * Returns a copy of the specified Cell's values, or null if the Cell's
+	 * brick has not been made. Changing the returned CellInfo does not change
+	 * the CellSpace; use updateCellCost instead.
+	 *
+	 * @see net.tofweb.starlite.CellSpace#getInfo(net.tofweb.starlite.Cell)
+	 */
+	@Override
+	public CellInfo getInfo(Cell cell) {
+		if (cell == null || !isInBounds(cell.getX(), cell.getY(), cell.getZ())) {
+			return null;
+		}
+
+		long cellId = getId(cell.getX(), cell.getY(), cell.getZ());
+
+		if (!isMade(cellId)) {
+			return null;
+		}
+
+		CellInfo info = new CellInfo();
+		info.setG(getG(cellId));
+		info.setRhs(getRhs(cellId));
+		info.setCost(getCost(cellId));
+
+		return info;
+	}
+
+	/**
+	 * Get the number of bricks made so far.
+	 *
+	 * @return
+	 */
+	public int getBrickCount() {
+		return brickCount;
+	}
+
+	/**
+	 * Get the number of off heap bytes held by this SparseCellSpace.
+	 *
+	 * @return
+	 */
+	public long getOffHeapBytes() {
+		return (long) slabs.size() * BRICKS_PER_SLAB * BRICK_BYTES;
+	}
+
+	@Override
+	public long getStoredCellCount() {
+		return (long) brickCount * BRICK_CELLS;
+	}
+
+	@Override
+	public boolean isMade(long cellId) {
+		return findBrick(cellId) != LongIntHashMap.NO_VALUE;
+	}
+
+	@Override
+	protected void make(long cellId) {
+		if (findBrick(cellId) == LongIntHashMap.NO_VALUE) {
+			makeBrick(cellId);
+		}
+	}
+
+	@Override
+	public double getG(long cellId) {
+		int brick = findBrick(cellId);
+
+		if (brick == LongIntHashMap.NO_VALUE) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		return slab(brick).getDouble(address(brick, G_OFFSET, 8, cellId));
+	}
+
+	@Override
+	protected void setG(long cellId, double g) {
+		int brick = makeBrick(cellId);
+		slab(brick).putDouble(address(brick, G_OFFSET, 8, cellId), g);
+	}
+
+	@Override
+	public double getRhs(long cellId) {
+		int brick = findBrick(cellId);
+
+		if (brick == LongIntHashMap.NO_VALUE) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		return slab(brick).getDouble(address(brick, RHS_OFFSET, 8, cellId));
+	}
+
+	@Override
+	protected void setRhs(long cellId, double rhs) {
+		int brick = makeBrick(cellId);
+		slab(brick).putDouble(address(brick, RHS_OFFSET, 8, cellId), rhs);
+	}
+
+	@Override
+	public double getCost(long cellId) {
+		int brick = findBrick(cellId);
+
+		if (brick == LongIntHashMap.NO_VALUE) {
+			return Cell.DEFAULT_COST;
+		}
+
+		return slab(brick).getFloat(address(brick, COST_OFFSET, 4, cellId));
+	}
+
+	@Override
+	protected void setCost(long cellId, double cost) {
+		int brick = makeBrick(cellId);
+		slab(brick).putFloat(address(brick, COST_OFFSET, 4, cellId), (float) cost);
+	}
+
+	@Override
+	protected void forEachMadeCell(LongConsumer consumer) {
+		for (int brick = 0; brick < brickCount; brick++) {
+			int brickX = CellId.getX(brickKeys[brick]) << BRICK_SHIFT;
+			int brickY = CellId.getY(brickKeys[brick]) << BRICK_SHIFT;
+			int brickZ = CellId.getZ(brickKeys[brick]) << BRICK_SHIFT;
+
+			for (int z = 0; z < BRICK_EDGE; z++) {
+				for (int y = 0; y < BRICK_EDGE; y++) {
+					for (int x = 0; x < BRICK_EDGE; x++) {
+						consumer.accept(getId(brickX + x, brickY + y, brickZ + z));
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void clearSearchValues() {
+		for (int brick = 0; brick < brickCount; brick++) {
+			fillSearchValues(brick);
+		}
+	}
+
+	private int findBrick(long cellId) {
+		long brickKey = brickKey(cellId);
+
+		if (brickKey == lastBrickKey) {
+			return lastBrick;
+		}
+
+		int brick = brickIndex.get(brickKey);
+
+		if (brick != LongIntHashMap.NO_VALUE) {
+			lastBrickKey = brickKey;
+			lastBrick = brick;
+		}
+
+		return brick;
+	}
+
+	private int makeBrick(long cellId) {
+		int brick = findBrick(cellId);
+
+		if (brick != LongIntHashMap.NO_VALUE) {
+			return brick;
+		}
+
+		brick = brickCount++;
+
+		if (brick / BRICKS_PER_SLAB == slabs.size()) {
+			slabs.add(ByteBuffer.allocateDirect(BRICKS_PER_SLAB * BRICK_BYTES).order(ByteOrder.nativeOrder()));
+		}
+
+		fillSearchValues(brick);
+
+		ByteBuffer slab = slab(brick);
+		int base = (brick % BRICKS_PER_SLAB) * BRICK_BYTES + COST_OFFSET;
+		for (int i = 0; i < BRICK_CELLS; i++) {
+			slab.putFloat(base + i * 4, (float) Cell.DEFAULT_COST);
+		}
+
+		long brickKey = brickKey(cellId);
+		brickIndex.put(brickKey, brick);
+
+		if (brick == brickKeys.length) {
+			long[] grown = new long[brickKeys.length * 2];
+			System.arraycopy(brickKeys, 0, grown, 0, brick);
+			brickKeys = grown;
+		}
+		brickKeys[brick] = brickKey;
+		lastBrickKey = brickKey;
+		lastBrick = brick;
+
+		return brick;
+	}
+
+	private void fillSearchValues(int brick) {
+		ByteBuffer slab = slab(brick);
+		int base = (brick % BRICKS_PER_SLAB) * BRICK_BYTES;
+
+		for (int i = 0; i < BRICK_CELLS; i++) {
+			slab.putDouble(base + G_OFFSET + i * 8, Double.POSITIVE_INFINITY);
+			slab.putDouble(base + RHS_OFFSET + i * 8, Double.POSITIVE_INFINITY);
+		}
+	}
+
+	private ByteBuffer slab(int brick) {
+		return slabs.get(brick / BRICKS_PER_SLAB);
+	}
+
+	private int address(int brick, int columnOffset, int width, long cellId) {
+		int x = getX(cellId) & BRICK_MASK;
+		int y = getY(cellId) & BRICK_MASK;
+		int z = getZ(cellId) & BRICK_MASK;
+		int cell = x | (y << BRICK_SHIFT) | (z << (BRICK_SHIFT * 2));
+
+		return (brick % BRICKS_PER_SLAB) * BRICK_BYTES + columnOffset + cell * width;
+	}
+
+	private long brickKey(long cellId) {
+		return CellId.pack(getX(cellId) >> BRICK_SHIFT, getY(cellId) >> BRICK_SHIFT, getZ(cellId) >> BRICK_SHIFT);
+	}
+
+}
@@ -0,0 +1,52 @@
+package net.tofweb.starlite;
+
+/**
+ * Scales another Heuristic by a constant weight.
+ *
+ * A weight above 1 makes the search greedier, so it expands fewer Cells, but
+ * the Paths found may cost up to weight times the optimal cost.
+ *
+ * @version .9
+ * @since .9
+ */
+public class WeightedHeuristic implements Heuristic {
+
+	private final Heuristic heuristic;
+	private final double weight;
+
+	/**
+	 * Returns a WeightedHeuristic scaling the specified Heuristic.
+	 *
+	 * @param heuristic
+	 * @param weight
+	 *            at least 1
+	 */
+	public WeightedHeuristic(Heuristic heuristic, double weight) {
+		super();
+
+		if (heuristic == null) {
+			throw new IllegalArgumentException("A WeightedHeuristic needs a Heuristic to scale");
+		}
+
+		if (!(weight >= 1.0) || Double.isInfinite(weight)) {
+			throw new IllegalArgumentException("Heuristic weight must be finite and at least 1, not " + weight);
+		}
+
+		this.heuristic = heuristic;
+		this.weight = weight;
+	}
+
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	public double getWeight() {
+		return weight;
+	}
+
+	@Override
+	public double distance(int dx, int dy, int dz) {
+		return weight * heuristic.distance(dx, dy, dz);
+	}
+
+}
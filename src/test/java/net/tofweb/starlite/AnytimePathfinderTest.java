@@ -0,0 +1,150 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AnytimePathfinderTest {
+
+	@Test
+	public void testRefinesToOptimal() {
+		DenseCellSpace space = makeSpace();
+		AnytimePathfinder pathfinder = new AnytimePathfinder(makeBlockManager(space), 3.0, 1.0);
+
+		Path path = pathfinder.findPath(TimeUnit.SECONDS.toNanos(30));
+		assertTrue(path.isComplete());
+		assertTrue(pathfinder.isOptimal());
+		assertEquals(1.0, space.getHeuristicWeight(), 0.0);
+
+		DenseCellSpace fresh = makeSpace();
+		Path optimal = new Pathfinder(makeBlockManager(fresh)).findPath();
+		assertTrue(optimal.isComplete());
+		assertEquals(fresh.getG(fresh.getStartCell()), space.getG(space.getStartCell()), Cell.BILLIONTH);
+	}
+
+	@Test
+	public void testCarriesOnAcrossCalls() {
+		DenseCellSpace space = makeSpace();
+		AnytimePathfinder pathfinder = new AnytimePathfinder(makeBlockManager(space), 3.0, 0.5);
+
+		// No time at all still makes progress on every call
+		Path path = pathfinder.findPath(0);
+		double lastWeight = pathfinder.getWeight();
+		int calls = 1;
+		while (!pathfinder.isOptimal()) {
+			path = pathfinder.findPath(0);
+			assertTrue(pathfinder.getWeight() <= lastWeight || !path.isComplete());
+
+			if (path.isComplete()) {
+				lastWeight = pathfinder.getWeight();
+			}
+
+			assertTrue(++calls < 100000);
+		}
+
+		assertTrue(path.isComplete());
+
+		pathfinder.restart();
+		assertEquals(Double.POSITIVE_INFINITY, pathfinder.getWeight(), 0.0);
+		assertFalse(pathfinder.isOptimal());
+	}
+
+	@Test
+	public void testFirstPathIsBounded() {
+		DenseCellSpace space = makeSpace();
+		AnytimePathfinder pathfinder = new AnytimePathfinder(makeBlockManager(space), 2.0, 1.0);
+		space.setHeuristicWeight(2.0);
+		assertTrue(space.computeShortestPath());
+		double weightedCost = space.getG(space.getStartCell());
+
+		DenseCellSpace fresh = makeSpace();
+		makeBlockManager(fresh);
+		assertTrue(fresh.computeShortestPath());
+		double optimalCost = fresh.getG(fresh.getStartCell());
+
+		assertTrue(weightedCost >= optimalCost - Cell.BILLIONTH);
+		assertTrue(weightedCost <= 2.0 * optimalCost + Cell.BILLIONTH);
+		assertTrue(pathfinder.findPath(TimeUnit.SECONDS.toNanos(30)).isComplete());
+	}
+
+	@Test
+	public void testWeightsMultiplyWithWeightedHeuristic() {
+		DenseCellSpace space = makeSpace();
+		space.setHeuristic(new WeightedHeuristic(Heuristic.EUCLIDEAN, 2.0));
+		AnytimePathfinder pathfinder = new AnytimePathfinder(makeBlockManager(space), 3.0, 1.0);
+
+		// Reported weight is the CellSpace weight times the WeightedHeuristic's
+		while (!pathfinder.findPath(0).isComplete()) {
+			assertFalse(pathfinder.isStepLimitReached());
+		}
+		double weight = pathfinder.getWeight() / 2.0;
+		assertTrue(weight == 3.0 || weight == 2.0);
+
+		// Lowering stops at the WeightedHeuristic's own weight
+		Path path = pathfinder.findPath(TimeUnit.SECONDS.toNanos(30));
+		assertTrue(path.isComplete());
+		assertEquals(1.0, space.getHeuristicWeight(), 0.0);
+		assertEquals(2.0, pathfinder.getWeight(), 0.0);
+		assertFalse(pathfinder.isOptimal());
+
+		DenseCellSpace fresh = makeSpace();
+		makeBlockManager(fresh);
+		assertTrue(fresh.computeShortestPath());
+		double optimalCost = fresh.getG(fresh.getStartCell());
+		assertTrue(space.getG(space.getStartCell()) <= 2.0 * optimalCost + Cell.BILLIONTH);
+	}
+
+	@Test
+	public void testStepLimit() {
+		DenseCellSpace space = makeSpace();
+		space.setMaxSteps(10);
+		AnytimePathfinder pathfinder = new AnytimePathfinder(makeBlockManager(space));
+
+		// Out of steps, not time; said so rather than an unexplained empty Path
+		Path path = pathfinder.findPath(TimeUnit.SECONDS.toNanos(30));
+		assertFalse(path.isComplete());
+		assertTrue(pathfinder.isStepLimitReached());
+		assertEquals(Double.POSITIVE_INFINITY, pathfinder.getWeight(), 0.0);
+
+		space.setMaxSteps(Integer.MAX_VALUE);
+		path = pathfinder.findPath(TimeUnit.SECONDS.toNanos(30));
+		assertTrue(path.isComplete());
+		assertFalse(pathfinder.isStepLimitReached());
+		assertTrue(pathfinder.isOptimal());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWeightBelowOne() {
+		new AnytimePathfinder(makeBlockManager(makeSpace()), 0.5, 0.5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroStep() {
+		new AnytimePathfinder(makeBlockManager(makeSpace()), 2.0, 0.0);
+	}
+
+	private DenseCellSpace makeSpace() {
+		DenseCellSpace space = new DenseCellSpace(24, 24, 24);
+		space.setGoalCell(22, 20, 18);
+		space.setStartCell(1, 2, 3);
+
+		// Costlier ground in the way of the straight line
+		space.updateRegionCost(8, 8, 0, 16, 16, 23, 4.0);
+
+		return space;
+	}
+
+	private BitsetBlockManager makeBlockManager(DenseCellSpace space) {
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+		blockManager.blockRegion(12, 0, 0, 12, 23, 23);
+		blockManager.unblockRegion(12, 2, 2, 12, 4, 4);
+		blockManager.unblockRegion(12, 18, 18, 12, 21, 21);
+
+		return blockManager;
+	}
+
+}
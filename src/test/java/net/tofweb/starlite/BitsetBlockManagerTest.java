@@ -0,0 +1,72 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BitsetBlockManagerTest {
+
+	private CellSpace space;
+	private BitsetBlockManager manager;
+
+	@Before
+	public void setup() {
+		space = new CellSpace();
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(4, 0, 0);
+		manager = new BitsetBlockManager(space);
+	}
+
+	@Test
+	public void testBlockRegion() {
+		// Spans several chunks along each axis
+		manager.blockRegion(-20, -17, 10, 20, 17, 11);
+		assertEquals(41 * 35 * 2, manager.getBlockedCount());
+		assertTrue(manager.isBlocked(-20, -17, 10));
+		assertTrue(manager.isBlocked(20, 17, 11));
+		assertTrue(manager.isBlocked(-1, 0, 11));
+		assertFalse(manager.isBlocked(-21, 0, 10));
+		assertFalse(manager.isBlocked(0, 18, 10));
+		assertFalse(manager.isBlocked(0, 0, 12));
+		assertFalse(manager.isBlocked(CellId.MAX_COORDINATE + 1, 0, 0));
+
+		manager.unblockRegion(-1, -1, 10, 1, 1, 10);
+		assertEquals(41 * 35 * 2 - 9, manager.getBlockedCount());
+		assertFalse(manager.isBlocked(0, 0, 10));
+		assertTrue(manager.isBlocked(0, 0, 11));
+
+		Cell cell = space.makeNewCell(0, 0, 10);
+		manager.blockCell(cell);
+		assertTrue(manager.isBlocked(cell));
+		manager.unblockCell(cell);
+		assertFalse(manager.isBlocked(cell));
+	}
+
+	@Test
+	public void testStartAndGoalStayFree() {
+		manager.blockRegion(-1, -1, -1, 5, 1, 1);
+		assertFalse(manager.isBlocked(space.getStartCell()));
+		assertFalse(manager.isBlocked(space.getGoalCell()));
+		assertEquals(7 * 3 * 3 - 2, manager.getBlockedCount());
+	}
+
+	@Test
+	public void testWall() {
+		space.computeShortestPath();
+		assertEquals(4.0, space.getG(space.getStartCell()), 0.0);
+
+		// The search repairs around the wall, then through the gap
+		manager.blockRegion(2, -1, -1, 2, 1, 1);
+		Path path = new Pathfinder(manager).findPath();
+		assertTrue(path.isComplete());
+		assertEquals(8.0, space.getG(space.getStartCell()), 0.0);
+
+		manager.unblockRegion(2, -1, -1, 2, 1, 1);
+		path = new Pathfinder(manager).findPath();
+		assertTrue(path.isComplete());
+		assertEquals(5, path.size());
+	}
+}
@@ -0,0 +1,34 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CellIdTest {
+
+	@Test
+	public void testPack() {
+		int[] coordinates = { 0, 1, -1, 17, -300, CellId.MIN_COORDINATE, CellId.MAX_COORDINATE };
+
+		for (int x : coordinates) {
+			for (int y : coordinates) {
+				for (int z : coordinates) {
+					long cellId = CellId.pack(x, y, z);
+					assertEquals(x, CellId.getX(cellId));
+					assertEquals(y, CellId.getY(cellId));
+					assertEquals(z, CellId.getZ(cellId));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIsPackable() {
+		assertTrue(CellId.isPackable(0, 0, 0));
+		assertTrue(CellId.isPackable(CellId.MIN_COORDINATE, CellId.MAX_COORDINATE, 0));
+		assertFalse(CellId.isPackable(CellId.MAX_COORDINATE + 1, 0, 0));
+		assertFalse(CellId.isPackable(0, CellId.MIN_COORDINATE - 1, 0));
+	}
+}
@@ -6,6 +6,10 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.LinkedList;
 
 import org.junit.Before;
@@ -17,15 +21,7 @@ public class CellSpaceTest {
 
 	// Test values
 	double costA = 1.0;
-	double gA = 12.12435565298214;
-	double rhsA = 12.12435565298214;
-	double gB = 17.320508075688775;
-	double gC = 8.774964387392123;
-	Double costPlusHeuristicA = 26.302685732130897;
-	double costB = 3.7416573867739413;
-	double gD = 3.7416573867739413;
-	double rhsD = 4.0;
-	double gE = 3.7416573867739413;
+	double unreached = Double.POSITIVE_INFINITY;
 
 	@Before
 	public void setup() {
@@ -41,8 +37,8 @@ public class CellSpaceTest {
 		CellInfo returnedInfo = space.getInfo(cell);
 		assertNotNull(returnedInfo);
 		assertTrue(costA == returnedInfo.getCost());
-		assertTrue(gA == returnedInfo.getG());
-		assertTrue(rhsA == returnedInfo.getRhs());
+		assertTrue(unreached == returnedInfo.getG());
+		assertTrue(unreached == returnedInfo.getRhs());
 
 		// Null condition
 		assertNull(space.getInfo(null));
@@ -86,12 +82,16 @@ public class CellSpaceTest {
 	public void testGetG() {
 		Cell cell = space.makeNewCell(3, 3, 3);
 
-		// Existing state
-		assertTrue(gA == space.getG(cell));
+		// Existing state, not yet reached by the search
+		assertTrue(unreached == space.getG(cell));
+		assertTrue(unreached == space.getG(new Cell()));
 
-		// Null conditions
+		// Searched state, 7 + 7 + 7 moves from the goal
+		space.computeShortestPath();
+		assertTrue(21.0 == space.getG(cell));
+
+		// Null condition
 		assertTrue(0.0 == space.getG(null));
-		assertTrue(0.0 == space.getG(new Cell()));
 
 		Cell illegalCell = new Cell();
 		illegalCell.setX(100);
@@ -107,8 +107,8 @@ public class CellSpaceTest {
 
 		CellInfo info = space.getInfo(cell);
 		assertNotNull(info);
-		assertTrue(gC == info.getG());
-		assertTrue(gC == info.getRhs());
+		assertTrue(unreached == info.getG());
+		assertTrue(unreached == info.getRhs());
 		assertTrue(costA == info.getCost());
 	}
 
@@ -117,13 +117,13 @@ public class CellSpaceTest {
 		Costs k = new Costs(3.14, 21.0);
 		Cell cell = space.makeNewCell(7, 8, 9, k);
 		assertNotNull(cell);
-		assertEquals(costPlusHeuristicA, cell.getKey().getCostPlusHeuristic());
-		assertTrue(costB == cell.getKey().getCost());
+		assertTrue(unreached == cell.getKey().getCostPlusHeuristic());
+		assertTrue(unreached == cell.getKey().getCost());
 
 		CellInfo info = space.getInfo(cell);
 		assertNotNull(info);
-		assertTrue(gD == info.getG());
-		assertTrue(rhsD == info.getRhs());
+		assertTrue(unreached == info.getG());
+		assertTrue(unreached == info.getRhs());
 		assertTrue(costA == info.getCost());
 	}
 
@@ -138,8 +138,8 @@ public class CellSpaceTest {
 
 		CellInfo info = space.getInfo(startCell);
 		assertNotNull(info);
-		assertTrue(gE == info.getG());
-		assertTrue(gE == info.getRhs());
+		assertTrue(unreached == info.getG());
+		assertTrue(unreached == info.getRhs());
 		assertTrue(costA == info.getCost());
 	}
 
@@ -159,6 +159,97 @@ public class CellSpaceTest {
 		assertTrue(costA == info.getCost());
 	}
 
+	@Test
+	public void testComputeShortestPath() {
+		assertTrue(space.computeShortestPath());
+
+		// 15 + 15 + 15 moves from the goal
+		Cell startCell = space.getStartCell();
+		assertTrue(45.0 == space.getG(startCell));
+		assertTrue(45.0 == space.getInfo(startCell).getRhs());
+
+		// Converged, so a second search has nothing to expand
+		assertTrue(space.computeShortestPath());
+		assertTrue(45.0 == space.getG(startCell));
+
+		// The goal is never expanded past zero
+		assertTrue(0.0 == space.getG(space.getGoalCell()));
+	}
+
+	@Test
+	public void testComputeShortestPathMaxSteps() {
+		space.setMaxSteps(10);
+		assertFalse(space.computeShortestPath());
+		assertTrue(unreached == space.getG(space.getStartCell()));
+	}
+
+	@Test
+	public void testUpdateCosts() {
+		space.computeShortestPath();
+		Cell startCell = space.getStartCell();
+		assertTrue(45.0 == space.getG(startCell));
+
+		// Blocking the start's neighbors is noticed by the search
+		new CostBlockManager(space);
+		LinkedList<Cell> neighbors = space.getSuccessors(startCell);
+		space.updateCosts(neighbors, -1);
+		space.computeShortestPath();
+		assertTrue(unreached == space.getG(startCell));
+
+		space.updateCosts(neighbors, Cell.DEFAULT_COST);
+		space.computeShortestPath();
+		assertTrue(45.0 == space.getG(startCell));
+	}
+
+	@Test
+	public void testUpdateRegionCost() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(4, 0, 0);
+		space.computeShortestPath();
+		assertEquals(4.0, space.getG(space.getStartCell()), 0.0);
+
+		// Mud on the straight line makes the detour cheaper
+		space.updateRegionCost(1, 0, 0, 3, 0, 0, 10.0);
+		assertEquals(10.0, space.cost(space.makeNewCell(4, 0, 0), space.makeNewCell(3, 0, 0)), 0.0);
+		space.computeShortestPath();
+		assertEquals(6.0, space.getG(space.getStartCell()), 0.0);
+
+		space.loadCosts(1, 0, 0, 3, 1, 1, new float[] { 1, 1, 1 });
+		space.computeShortestPath();
+		assertEquals(4.0, space.getG(space.getStartCell()), 0.0);
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		new CostBlockManager(space).blockCell(space.makeNewCell(0, 0, 0));
+		space.setMaxSteps(200);
+		space.computeShortestPath();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		space.writeSnapshot(Channels.newChannel(out));
+
+		CellSpace restored = new CellSpace();
+		new CostBlockManager(restored);
+		restored.readSnapshot(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+		assertEquals(space.getStartCell(), restored.getStartCell());
+		assertEquals(space.getGoalCell(), restored.getGoalCell());
+		assertEquals(-1.0, restored.getInfo(restored.makeNewCell(0, 0, 0)).getCost(), 0.0);
+		assertEquals(1.0, restored.getG(restored.makeNewCell(10, 10, 9)), 0.0);
+
+		// Both carry on from where the first search stopped
+		space.setMaxSteps(CellSpace.DEFAULT_MAX_STEPS);
+		restored.setMaxSteps(CellSpace.DEFAULT_MAX_STEPS);
+		assertTrue(space.computeShortestPath());
+		assertTrue(restored.computeShortestPath());
+		assertEquals(space.getG(space.getStartCell()), restored.getG(restored.getStartCell()), 0.0);
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadSnapshotNotASnapshot() throws IOException {
+		space.readSnapshot(Channels.newChannel(new ByteArrayInputStream(new byte[100])));
+	}
+
 	@Test
 	public void testIsClose() {
 		assertTrue(space.isClose(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY));
@@ -196,4 +287,63 @@ public class CellSpaceTest {
 		assertEquals(20, neighbors.getLast().getZ());
 	}
 
+	@Test
+	public void testGetSuccessorIds() {
+		long cellId = space.getId(20, 20, 20);
+		long[] neighbors = new long[CellSpace.MAX_NEIGHBORS];
+		int count = space.getSuccessors(cellId, neighbors);
+		assertEquals(6, count);
+		assertEquals(19, space.getZ(neighbors[0]));
+		assertEquals(21, space.getX(neighbors[5]));
+
+		// Reading neighbors does not make them
+		for (int i = 0; i < count; i++) {
+			assertFalse(space.isMade(neighbors[i]));
+		}
+
+		assertNull(space.getInfo(space.toCell(neighbors[0])));
+	}
+
+	@Test
+	public void testForEachPredecessor() {
+		final long[] sum = new long[2];
+		space.forEachPredecessor(space.getId(1, 2, 3), new NeighborConsumer() {
+			public void accept(long neighborId) {
+				sum[0] += space.getX(neighborId) + space.getY(neighborId) + space.getZ(neighborId);
+				sum[1]++;
+			}
+		});
+
+		assertEquals(6, sum[1]);
+		assertEquals(36, sum[0]);
+	}
+
+	@Test
+	public void testDeadline() {
+		// A deadline already passed stops the search early, without losing its work
+		int calls = 1;
+		while (!space.computeShortestPath(System.nanoTime())) {
+			calls++;
+		}
+
+		assertTrue(calls > 1);
+		assertEquals(45.0, space.getG(space.getStartCell()), Cell.BILLIONTH);
+	}
+
+	@Test
+	public void testLoweringHeuristicWeight() {
+		space.setHeuristicWeight(3.0);
+		assertTrue(space.computeShortestPath());
+		assertTrue(space.getG(space.getStartCell()) < unreached);
+
+		// Carries on from the weighted search to the optimal cost
+		space.setHeuristicWeight(1.0);
+		assertTrue(space.computeShortestPath());
+		assertEquals(45.0, space.getG(space.getStartCell()), Cell.BILLIONTH);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHeuristicWeightBelowOne() {
+		space.setHeuristicWeight(0.5);
+	}
 }
@@ -0,0 +1,39 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class CompactPathTest {
+
+	@Test
+	public void testGrowth() {
+		CompactPath path = new CompactPath(1);
+		for (int i = 0; i < 100; i++) {
+			path.add(i, -i, i * 2);
+		}
+
+		assertEquals(100, path.size());
+		assertEquals(99, path.getX(99));
+		assertEquals(-50, path.getY(50));
+		assertEquals(4, path.getZ(2));
+		assertFalse(path.isComplete());
+
+		Iterator<Cell> cells = path.iterator();
+		Cell first = cells.next();
+		assertEquals(0, first.getX());
+		assertEquals(path.get(1), cells.next());
+		assertEquals(100, path.toPath().size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfRange() {
+		CompactPath path = new CompactPath();
+		path.add(1, 2, 3);
+		path.getX(1);
+	}
+
+}
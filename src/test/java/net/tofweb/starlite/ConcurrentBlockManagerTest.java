@@ -0,0 +1,135 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ConcurrentBlockManagerTest {
+
+	@Test
+	public void testRegions() {
+		DenseCellSpace space = new DenseCellSpace(-5, -5, -5, 11, 11, 11);
+		ConcurrentBlockManager manager = new ConcurrentBlockManager(space);
+
+		// Clipped to the bounds, across several words
+		manager.blockRegion(-10, -1, 0, 10, 1, 0);
+		assertTrue(manager.isBlocked(-5, -1, 0));
+		assertTrue(manager.isBlocked(5, 1, 0));
+		assertFalse(manager.isBlocked(0, 2, 0));
+		assertFalse(manager.isBlocked(6, 0, 0));
+
+		manager.unblockCell(space.makeNewCell(0, 0, 0));
+		assertFalse(manager.isBlocked(0, 0, 0));
+		assertTrue(manager.isBlocked(1, 0, 0));
+	}
+
+	@Test
+	public void testUpdateQueue() throws InterruptedException {
+		final CellSpace space = new CellSpace();
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(1, 0, 0);
+		final ObstacleUpdateQueue queue = new ObstacleUpdateQueue();
+		assertTrue(queue.isEmpty());
+
+		List<Thread> writers = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			writers.add(new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						queue.offer(j, j, j, j, j, j);
+					}
+				}
+			});
+		}
+
+		for (Thread writer : writers) {
+			writer.start();
+		}
+
+		int drained = 0;
+		for (Thread writer : writers) {
+			writer.join();
+			drained += queue.drainTo(space);
+		}
+
+		drained += queue.drainTo(space);
+		assertEquals(4000, drained);
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testUpdatesWhileSearching() throws InterruptedException {
+		final DenseCellSpace space = new DenseCellSpace(0, 0, 0, 30, 30, 6);
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(29, 29, 5);
+		final ConcurrentBlockManager manager = new ConcurrentBlockManager(space);
+		final Pathfinder pathfinder = new Pathfinder(manager);
+
+		List<Thread> sensors = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			final int seed = i;
+			sensors.add(new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					for (int j = 0; j < 2000; j++) {
+						int x = 1 + random.nextInt(27);
+						int y = 1 + random.nextInt(27);
+						int z = random.nextInt(6);
+
+						if (random.nextBoolean()) {
+							manager.blockRegion(x, y, z, x + 1, y, z);
+						} else {
+							manager.unblockRegion(x, y, z, x, y + 1, z);
+						}
+					}
+				}
+			});
+		}
+
+		for (Thread sensor : sensors) {
+			sensor.start();
+		}
+
+		// Plan while the sensors write
+		for (int i = 0; i < 20; i++) {
+			pathfinder.findPath();
+		}
+
+		for (Thread sensor : sensors) {
+			sensor.join();
+		}
+
+		// After the last drain the repaired search matches a fresh one
+		Path path = pathfinder.findPath();
+
+		DenseCellSpace fresh = new DenseCellSpace(0, 0, 0, 30, 30, 6);
+		fresh.setGoalCell(0, 0, 0);
+		fresh.setStartCell(29, 29, 5);
+		BitsetBlockManager copy = new BitsetBlockManager(fresh);
+		for (int z = 0; z < 6; z++) {
+			for (int y = 0; y < 30; y++) {
+				for (int x = 0; x < 30; x++) {
+					if (manager.isBlocked(x, y, z)) {
+						copy.blockRegion(x, y, z, x, y, z);
+					}
+				}
+			}
+		}
+
+		Path freshPath = new Pathfinder(copy).findPath();
+		assertEquals(freshPath.isComplete(), path.isComplete());
+		assertEquals(fresh.getG(fresh.getStartCell()), space.getG(space.getStartCell()), 0.00001);
+
+		for (Cell cell : path) {
+			assertFalse(manager.isBlocked(cell));
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DenseCellSpaceTest {
+
+	private DenseCellSpace space;
+
+	@Before
+	public void setup() {
+		space = new DenseCellSpace(-2, -2, -2, 16, 12, 10);
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+	}
+
+	@Test
+	public void testGetInfo() {
+		Cell cell = space.makeNewCell(3, 3, 3);
+		CellInfo info = space.getInfo(cell);
+		assertNotNull(info);
+		assertTrue(Cell.DEFAULT_COST == info.getCost());
+		assertTrue(Double.POSITIVE_INFINITY == info.getG());
+
+		space.updateCellCost(cell, 2);
+		assertTrue(2.0 == space.getInfo(cell).getCost());
+
+		// Out of bounds
+		assertNull(space.getInfo(null));
+		assertNull(space.getInfo(makeSpacelessCell(14, 0, 0)));
+		assertTrue(Double.POSITIVE_INFINITY == space.getG(makeSpacelessCell(-3, 0, 0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMakeNewCellOutOfBounds() {
+		space.makeNewCell(0, 10, 0);
+	}
+
+	@Test
+	public void testCornerNeighbors() {
+		LinkedList<Cell> neighbors = space.getSuccessors(makeSpacelessCell(-2, -2, -2));
+		assertEquals(3, neighbors.size());
+
+		neighbors = space.getPredecessors(makeSpacelessCell(13, 9, 7));
+		assertEquals(3, neighbors.size());
+	}
+
+	@Test
+	public void testMatchesCellSpace() {
+		CostBlockManager blockManager = new CostBlockManager(space);
+		blockManager.blockCell(space.makeNewCell(6, 6, 3));
+		blockManager.blockCell(space.makeNewCell(6, 5, 4));
+
+		Path path = new Pathfinder(blockManager).findPath();
+		assertTrue(path.isComplete());
+		assertEquals(24, path.size());
+		assertTrue(23.0 == space.getG(space.getStartCell()));
+		assertEquals(space.getGoalCell(), path.getLast());
+	}
+
+	@Test
+	public void testWalledOff() {
+		// A wall across the whole x = 5 plane cuts the start off from the goal
+		CostBlockManager blockManager = new CostBlockManager(space);
+		for (int y = -2; y < 10; y++) {
+			for (int z = -2; z < 8; z++) {
+				blockManager.blockCell(space.makeNewCell(5, y, z));
+			}
+		}
+
+		Path path = new Pathfinder(blockManager).findPath();
+		assertFalse(path.isComplete());
+
+		// The bounded search runs out of Cells rather than steps
+		assertTrue(space.computeShortestPath());
+	}
+
+	private Cell makeSpacelessCell(int x, int y, int z) {
+		Cell cell = new Cell();
+		cell.setX(x);
+		cell.setY(y);
+		cell.setZ(z);
+
+		return cell;
+	}
+}
@@ -1,7 +1,9 @@
 package net.tofweb.starlite;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -25,6 +27,43 @@ public class GeometryTest {
 		assertNull(null, Geometry.euclideanDistance(null, null));
 	}
 
+	@Test
+	public void testLineOfSight() {
+		DenseCellSpace space = new DenseCellSpace(16, 16, 16);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+		blockManager.blockRegion(5, 0, 0, 5, 15, 15);
+		blockManager.unblockRegion(5, 7, 7, 5, 7, 7);
+
+		assertTrue(Geometry.hasLineOfSight(blockManager, 1, 7, 7, 12, 7, 7));
+		assertTrue(Geometry.hasLineOfSight(blockManager, 12, 7, 7, 1, 7, 7));
+		assertTrue(Geometry.hasLineOfSight(blockManager, 3, 6, 6, 7, 8, 8));
+		assertFalse(Geometry.hasLineOfSight(blockManager, 1, 1, 1, 12, 7, 7));
+		assertFalse(Geometry.hasLineOfSight(blockManager, 1, 7, 7, 5, 0, 7));
+		assertTrue(Geometry.hasLineOfSight(blockManager, 2, 2, 2, 2, 2, 2));
+
+		// A blocked end Cell blocks the line
+		assertFalse(Geometry.hasLineOfSight(blockManager, 1, 7, 7, 5, 8, 7));
+	}
+
+	@Test
+	public void testLineOfSightThroughCorners() {
+		DenseCellSpace space = new DenseCellSpace(8, 8, 8);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+
+		// The diagonal passes exactly through the edge between (1, 0, 0) and
+		// (0, 1, 0), so either one blocks it
+		assertTrue(Geometry.hasLineOfSight(blockManager, 0, 0, 0, 2, 2, 0));
+		blockManager.blockRegion(1, 0, 0, 1, 0, 0);
+		assertFalse(Geometry.hasLineOfSight(blockManager, 0, 0, 0, 2, 2, 0));
+
+		// Through a corner, all seven Cells around it must be free
+		assertFalse(Geometry.hasLineOfSight(blockManager, 0, 0, 0, 3, 3, 3));
+		blockManager.unblockRegion(1, 0, 0, 1, 0, 0);
+		assertTrue(Geometry.hasLineOfSight(blockManager, 0, 0, 0, 3, 3, 3));
+		blockManager.blockRegion(0, 1, 1, 0, 1, 1);
+		assertFalse(Geometry.hasLineOfSight(blockManager, 0, 0, 0, 3, 3, 3));
+	}
+
 	private Cell makeSpacelessCell(int x, int y, int z) {
 		Cell cell = new Cell();
 		cell.setX(x);
@@ -0,0 +1,45 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HeuristicTest {
+
+	@Test
+	public void testDistances() {
+		assertEquals(Math.sqrt(29), Heuristic.EUCLIDEAN.distance(-2, 3, -4), 0.0);
+		assertEquals(9.0, Heuristic.MANHATTAN.distance(-2, 3, -4), 0.0);
+		assertEquals(2 * Math.sqrt(3) + Math.sqrt(2) + 1, Heuristic.OCTILE.distance(-2, 3, -4), 0.0000001);
+		assertEquals(Heuristic.OCTILE.distance(4, -2, 3), Heuristic.OCTILE.distance(-2, 3, -4), 0.0);
+		assertEquals(0.0, Heuristic.OCTILE.distance(0, 0, 0), 0.0);
+		assertEquals(13.5, new WeightedHeuristic(Heuristic.MANHATTAN, 1.5).distance(-2, 3, -4), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWeightBelowOne() {
+		new WeightedHeuristic(Heuristic.EUCLIDEAN, 0.5);
+	}
+
+	@Test
+	public void testOctileSearch() {
+		CellSpace euclidean = new CellSpace();
+		euclidean.setNeighborhood(Neighborhood.TWENTY_SIX);
+		euclidean.setGoalCell(1, 1, -1);
+		euclidean.setStartCell(10, 7, 7);
+		Path euclideanPath = new Pathfinder(new CostBlockManager(euclidean)).findPath();
+
+		CellSpace octile = new CellSpace();
+		octile.setNeighborhood(Neighborhood.TWENTY_SIX);
+		octile.setHeuristic(Heuristic.OCTILE);
+		octile.setGoalCell(1, 1, -1);
+		octile.setStartCell(10, 7, 7);
+		Path octilePath = new Pathfinder(new CostBlockManager(octile)).findPath();
+
+		// The tighter estimate finds an equally cheap Path
+		assertTrue(octilePath.isComplete());
+		assertEquals(euclideanPath.size(), octilePath.size());
+		assertEquals(euclidean.getG(euclidean.getStartCell()), octile.getG(octile.getStartCell()), 0.00001);
+	}
+}
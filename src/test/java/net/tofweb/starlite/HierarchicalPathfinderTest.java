@@ -0,0 +1,221 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HierarchicalPathfinderTest {
+
+	@Test
+	public void testPathThroughWall() {
+		DenseCellSpace space = new DenseCellSpace(48, 24, 24);
+		space.setGoalCell(45, 13, 13);
+		space.setStartCell(2, 2, 2);
+
+		// A wall across the whole space with one hole
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+		blockManager.blockRegion(20, 0, 0, 20, 23, 23);
+		blockManager.unblockRegion(20, 10, 10, 20, 10, 10);
+
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(space, 8);
+		Path path = hierarchy.findPath();
+
+		assertTrue(path.isComplete());
+		assertConnected(space, blockManager, path);
+		assertTrue(containsCell(path, 20, 10, 10));
+
+		// Within half again of the cost of the full search
+		Path optimal = new Pathfinder(blockManager).findPath();
+		assertTrue(optimal.isComplete());
+		assertTrue(path.size() <= optimal.size() * 3 / 2);
+	}
+
+	@Test
+	public void testClusterChangesAreApplied() {
+		DenseCellSpace space = new DenseCellSpace(48, 24, 24);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+		blockManager.blockRegion(20, 0, 0, 20, 23, 23);
+		blockManager.unblockRegion(20, 10, 10, 20, 10, 10);
+
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(space, 8);
+		Cell start = space.makeNewCell(2, 2, 2);
+		Cell goal = space.makeNewCell(45, 13, 13);
+		assertTrue(hierarchy.findPath(start, goal).isComplete());
+
+		// Close the hole
+		blockManager.blockRegion(20, 10, 10, 20, 10, 10);
+		hierarchy.updateRegion(20, 10, 10, 20, 10, 10);
+		assertFalse(hierarchy.findPath(start, goal).isComplete());
+
+		// Open another one
+		Cell hole = space.makeNewCell(20, 20, 3);
+		blockManager.unblockCell(hole);
+		hierarchy.updateCell(hole);
+
+		Path path = hierarchy.findPath(start, goal);
+		assertTrue(path.isComplete());
+		assertConnected(space, blockManager, path);
+		assertTrue(containsCell(path, 20, 20, 3));
+	}
+
+	@Test
+	public void testBlockManagerChangesAreFollowed() {
+		DenseCellSpace space = new DenseCellSpace(48, 24, 24);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+		blockManager.blockRegion(20, 0, 0, 20, 23, 23);
+		blockManager.unblockRegion(20, 10, 10, 20, 10, 10);
+
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(space, 8);
+		Cell start = space.makeNewCell(2, 2, 2);
+		Cell goal = space.makeNewCell(45, 13, 13);
+		assertTrue(hierarchy.findPath(start, goal).isComplete());
+
+		// No updateRegion; the CellSpace tells the HierarchicalPathfinder
+		blockManager.blockCell(space.makeNewCell(20, 10, 10));
+		assertFalse(hierarchy.findPath(start, goal).isComplete());
+
+		blockManager.unblockCell(space.makeNewCell(20, 20, 3));
+		Path path = hierarchy.findPath(start, goal);
+		assertTrue(path.isComplete());
+		assertConnected(space, blockManager, path);
+		assertTrue(containsCell(path, 20, 20, 3));
+
+		// Once detached, changes must be passed on by hand
+		hierarchy.detach();
+		blockManager.blockCell(space.makeNewCell(20, 20, 3));
+		hierarchy.updateRegion(20, 20, 3, 20, 20, 3);
+		assertFalse(hierarchy.findPath(start, goal).isComplete());
+	}
+
+	@Test
+	public void testQueuedChangesAreFollowed() throws Exception {
+		DenseCellSpace space = new DenseCellSpace(48, 24, 24);
+		final ConcurrentBlockManager blockManager = new ConcurrentBlockManager(space);
+		blockManager.blockRegion(20, 0, 0, 20, 23, 23);
+		blockManager.unblockRegion(20, 10, 10, 20, 10, 10);
+
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(space, 8);
+		Cell start = space.makeNewCell(2, 2, 2);
+		Cell goal = space.makeNewCell(45, 13, 13);
+		assertTrue(hierarchy.findPath(start, goal).isComplete());
+
+		// Closed from another thread; the change waits in the queue
+		Thread sensor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				blockManager.blockRegion(20, 10, 10, 20, 10, 10);
+			}
+		});
+		sensor.start();
+		sensor.join();
+
+		assertFalse(hierarchy.findPath(start, goal).isComplete());
+
+		blockManager.unblockRegion(20, 20, 3, 20, 20, 3);
+		Path path = hierarchy.findPath(start, goal);
+		assertTrue(path.isComplete());
+		assertConnected(space, blockManager, path);
+		assertTrue(containsCell(path, 20, 20, 3));
+	}
+
+	@Test
+	public void testSharedMapVersionsAreFollowed() {
+		SharedObstacleMap shared = new SharedObstacleMap();
+		shared.blockRegion(20, 0, 0, 20, 23, 23);
+		shared.unblockRegion(20, 10, 10, 20, 10, 10);
+
+		DenseCellSpace space = new DenseCellSpace(48, 24, 24);
+		new SharedObstacleBlockManager(space, shared);
+
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(space, 8);
+		Cell start = space.makeNewCell(2, 2, 2);
+		Cell goal = space.makeNewCell(45, 13, 13);
+		assertTrue(hierarchy.findPath(start, goal).isComplete());
+
+		// No sync; the query moves to the latest version
+		shared.blockRegion(20, 10, 10, 20, 10, 10);
+		assertFalse(hierarchy.findPath(start, goal).isComplete());
+	}
+
+	@Test
+	public void testClusterSearchesAreKept() {
+		DenseCellSpace space = new DenseCellSpace(64, 16, 16);
+		new BitsetBlockManager(space);
+
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(space, 8);
+		Cell start = space.makeNewCell(1, 3, 3);
+		Cell goal = space.makeNewCell(62, 12, 12);
+		assertTrue(hierarchy.findPath(start, goal).isComplete());
+
+		// Every cluster the query searched in keeps its search
+		int kept = hierarchy.getClusterSearchCount();
+		assertTrue(kept > 1);
+		assertTrue(hierarchy.findPath(start, goal).isComplete());
+		assertEquals(kept, hierarchy.getClusterSearchCount());
+
+		hierarchy.setMaxClusterSearches(2);
+		assertEquals(2, hierarchy.getClusterSearchCount());
+		assertTrue(hierarchy.findPath(start, goal).isComplete());
+		assertTrue(hierarchy.getClusterSearchCount() <= 2);
+	}
+
+	@Test
+	public void testOnlyNeededClustersAreBuilt() {
+		DenseCellSpace space = new DenseCellSpace(64, 64, 64);
+		new BitsetBlockManager(space);
+
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(space);
+		assertEquals(64, hierarchy.getClusterCount());
+
+		Path path = hierarchy.findPath(space.makeNewCell(1, 1, 1), space.makeNewCell(30, 2, 2));
+		assertTrue(path.isComplete());
+		assertTrue(path.size() <= 30 * 5 / 4);
+		assertTrue(hierarchy.getBuiltClusterCount() < hierarchy.getClusterCount());
+	}
+
+	@Test
+	public void testStartInsideCluster() {
+		DenseCellSpace space = new DenseCellSpace(16, 16, 16);
+		new BitsetBlockManager(space);
+
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(space, 8);
+		Path path = hierarchy.findPath(space.makeNewCell(1, 1, 1), space.makeNewCell(1, 1, 4));
+
+		assertTrue(path.isComplete());
+		assertEquals(4, path.size());
+
+		path = hierarchy.findPath(space.makeNewCell(3, 3, 3), space.makeNewCell(3, 3, 3));
+		assertTrue(path.isComplete());
+		assertEquals(1, path.size());
+	}
+
+	private void assertConnected(CellSpace space, BlockManager blockManager, Path path) {
+		assertEquals(space.getStartCell() == null ? path.getFirst() : space.getStartCell(), path.getFirst());
+
+		Cell previous = null;
+		for (Cell cell : path) {
+			assertFalse(blockManager.isBlocked(cell));
+
+			if (previous != null) {
+				int steps = Math.abs(cell.getX() - previous.getX()) + Math.abs(cell.getY() - previous.getY())
+						+ Math.abs(cell.getZ() - previous.getZ());
+				assertEquals(1, steps);
+			}
+
+			previous = cell;
+		}
+	}
+
+	private boolean containsCell(Path path, int x, int y, int z) {
+		for (Cell cell : path) {
+			if (cell.getX() == x && cell.getY() == y && cell.getZ() == z) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+}
@@ -0,0 +1,131 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class JumpPointPathfinderTest {
+
+	@Test
+	public void testOpenSpace() {
+		DenseCellSpace space = new DenseCellSpace(48, 48, 48);
+		space.setStartCell(2, 3, 4);
+		space.setGoalCell(40, 30, 20);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+
+		JumpPointPathfinder jumpPoints = new JumpPointPathfinder(blockManager);
+		Path path = jumpPoints.findPath();
+
+		assertTrue(path.isComplete());
+		assertEquals(38 + 27 + 16 + 1, path.size());
+		assertConnected(blockManager, path);
+
+		// Lateral scans are kept, so no line is scanned twice per direction
+		assertTrue(jumpPoints.getScanCount() > 0);
+		assertTrue(jumpPoints.getScanCount() <= 6L * 48 * 48 * 48);
+		assertFalse(space.isSearchStarted());
+
+		// An order of magnitude fewer expansions than a full search
+		SearchMetrics metrics = new SearchMetrics();
+		space.setSearchMetrics(metrics);
+		assertEquals(path.size(), new Pathfinder(blockManager).findPath().size());
+		assertTrue(jumpPoints.getExpansionCount() * 10 < metrics.getExpansionCount());
+	}
+
+	@Test
+	public void testMatchesPathfinder() {
+		Random random = new Random(7);
+
+		for (int map = 0; map < 40; map++) {
+			DenseCellSpace space = new DenseCellSpace(12, 10, 8);
+			BitsetBlockManager blockManager = new BitsetBlockManager(space);
+
+			for (int i = 0; i < 300; i++) {
+				blockManager.blockCell(space.makeNewCell(random.nextInt(12), random.nextInt(10), random.nextInt(8)));
+			}
+
+			Cell start = space.makeNewCell(random.nextInt(12), random.nextInt(10), random.nextInt(8));
+			Cell goal = space.makeNewCell(random.nextInt(12), random.nextInt(10), random.nextInt(8));
+			blockManager.unblockCell(start);
+			blockManager.unblockCell(goal);
+			space.setStartCell(start.getX(), start.getY(), start.getZ());
+			space.setGoalCell(goal.getX(), goal.getY(), goal.getZ());
+
+			Path optimal = new Pathfinder(blockManager).findPath();
+			Path path = new JumpPointPathfinder(blockManager).findPath();
+
+			assertEquals(optimal.isComplete(), path.isComplete());
+			if (path.isComplete()) {
+				assertEquals(optimal.size(), path.size());
+				assertConnected(blockManager, path);
+			}
+		}
+	}
+
+	@Test
+	public void testScansAreBounded() {
+		DenseCellSpace space = new DenseCellSpace(24, 24, 24);
+		space.setStartCell(1, 1, 1);
+		space.setGoalCell(22, 22, 22);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+
+		// A goal nothing reaches, so every Cell is jumped through
+		blockManager.blockRegion(21, 21, 21, 23, 23, 23);
+		blockManager.unblockCell(space.makeNewCell(22, 22, 22));
+
+		Random random = new Random(3);
+		for (int i = 0; i < 24 * 24 * 24 / 50; i++) {
+			blockManager.blockCell(space.makeNewCell(random.nextInt(20), random.nextInt(20), random.nextInt(20)));
+		}
+
+		JumpPointPathfinder jumpPoints = new JumpPointPathfinder(blockManager);
+		assertFalse(jumpPoints.findPath().isComplete());
+
+		// Each Cell is scanned at most once in each direction
+		assertTrue(jumpPoints.getScanCount() <= 6L * 24 * 24 * 24);
+	}
+
+	@Test
+	public void testWalledOff() {
+		DenseCellSpace space = new DenseCellSpace(16, 16, 16);
+		space.setStartCell(1, 1, 1);
+		space.setGoalCell(14, 14, 14);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+		blockManager.blockRegion(8, 0, 0, 8, 15, 15);
+
+		assertFalse(new JumpPointPathfinder(blockManager).findPath().isComplete());
+
+		// The CellSpace's search state is left alone
+		assertFalse(space.isSearchStarted());
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testNeedsSixNeighborhood() {
+		DenseCellSpace space = new DenseCellSpace(16, 16, 16);
+		space.setNeighborhood(Neighborhood.TWENTY_SIX);
+		space.setStartCell(1, 1, 1);
+		space.setGoalCell(14, 14, 14);
+
+		new JumpPointPathfinder(new BitsetBlockManager(space)).findPath();
+	}
+
+	private void assertConnected(BlockManager blockManager, Path path) {
+		Cell previous = null;
+		for (Cell cell : path) {
+			assertFalse(blockManager.isBlocked(cell));
+
+			if (previous != null) {
+				int steps = Math.abs(cell.getX() - previous.getX()) + Math.abs(cell.getY() - previous.getY())
+						+ Math.abs(cell.getZ() - previous.getZ());
+				assertEquals(1, steps);
+			}
+
+			previous = cell;
+		}
+	}
+
+}
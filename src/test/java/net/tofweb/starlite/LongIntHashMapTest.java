@@ -0,0 +1,65 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		LongIntHashMap map = new LongIntHashMap();
+		map.put(5L, 1);
+		map.put(-5L, 2);
+		map.put(Long.MIN_VALUE, 3);
+		assertEquals(3, map.size());
+		assertEquals(1, map.get(5L));
+		assertEquals(2, map.get(-5L));
+		assertEquals(3, map.get(Long.MIN_VALUE));
+		assertEquals(LongIntHashMap.NO_VALUE, map.get(6L));
+
+		map.put(5L, 4);
+		assertEquals(4, map.get(5L));
+		assertEquals(3, map.size());
+
+		assertEquals(4, map.remove(5L));
+		assertEquals(3, map.remove(Long.MIN_VALUE));
+		assertFalse(map.containsKey(5L));
+		assertFalse(map.containsKey(Long.MIN_VALUE));
+		assertEquals(LongIntHashMap.NO_VALUE, map.remove(5L));
+		assertEquals(1, map.size());
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.containsKey(-5L));
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		LongIntHashMap map = new LongIntHashMap(4);
+		HashMap<Long, Integer> expected = new HashMap<Long, Integer>();
+		Random random = new Random(7);
+
+		for (int i = 0; i < 100000; i++) {
+			long key = random.nextInt(5000) * 31L;
+
+			if (random.nextInt(3) == 0) {
+				Integer removed = expected.remove(key);
+				assertEquals(removed == null ? LongIntHashMap.NO_VALUE : removed, map.remove(key));
+			} else {
+				expected.put(key, i);
+				map.put(key, i);
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		for (Long key : expected.keySet()) {
+			assertEquals((int) expected.get(key), map.get(key));
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedVoxelBlockManagerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testBits() throws IOException {
+		CellSpace source = new CellSpace();
+		source.setGoalCell(0, 0, 0);
+		source.setStartCell(4, 0, 0);
+		BitsetBlockManager bitset = new BitsetBlockManager(source);
+		bitset.blockRegion(2, -1, -1, 2, 1, 1);
+		bitset.blockCell(source.makeNewCell(-3, 2, 1));
+
+		File file = folder.newFile("wall.vox");
+		MappedVoxelBlockManager.write(file, bitset, -3, -2, -1, 9, 5, 3);
+		assertEquals(MappedVoxelBlockManager.HEADER_BYTES + (9 * 5 * 3 + 7) / 8, file.length());
+
+		DenseCellSpace space = new DenseCellSpace(-3, -2, -1, 9, 5, 3);
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(4, 0, 0);
+		MappedVoxelBlockManager mapped = new MappedVoxelBlockManager(space, file);
+		assertEquals(MappedVoxelBlockManager.BITS, mapped.getEncoding());
+
+		for (int z = -1; z <= 1; z++) {
+			for (int y = -2; y <= 2; y++) {
+				for (int x = -3; x <= 5; x++) {
+					assertEquals(bitset.isBlocked(x, y, z), mapped.isBlocked(x, y, z));
+				}
+			}
+		}
+
+		assertFalse(mapped.isBlocked(2, 0, 5));
+		assertEquals(-1, mapped.getCost(2, 0, 0), 0.0);
+		assertEquals(Cell.DEFAULT_COST, mapped.getCost(3, 0, 0), 0.0);
+
+		Path path = new Pathfinder(mapped).findPath();
+		assertTrue(path.isComplete());
+		assertEquals(8.0, space.getG(space.getStartCell()), 0.0);
+	}
+
+	@Test
+	public void testBytes() throws IOException {
+		File file = folder.newFile("costs.vox");
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		try {
+			out.writeInt(MappedVoxelBlockManager.MAGIC);
+			out.writeInt(MappedVoxelBlockManager.VERSION);
+			out.writeInt(MappedVoxelBlockManager.BYTES);
+			out.writeInt(10);
+			out.writeInt(20);
+			out.writeInt(30);
+			out.writeInt(2);
+			out.writeInt(2);
+			out.writeInt(1);
+			out.write(new byte[] { 1, 0, (byte) 200, 3 });
+		} finally {
+			out.close();
+		}
+
+		MappedVoxelBlockManager mapped = new MappedVoxelBlockManager(new CellSpace(), file);
+		assertFalse(mapped.isBlocked(10, 20, 30));
+		assertTrue(mapped.isBlocked(11, 20, 30));
+		assertEquals(200, mapped.getCost(10, 21, 30), 0.0);
+		assertEquals(3, mapped.getCost(11, 21, 30), 0.0);
+		assertFalse(mapped.isBlocked(12, 20, 30));
+	}
+
+	@Test
+	public void testByteCostsGuideTheSearch() throws IOException {
+		File file = folder.newFile("detour.vox");
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		try {
+			out.writeInt(MappedVoxelBlockManager.MAGIC);
+			out.writeInt(MappedVoxelBlockManager.VERSION);
+			out.writeInt(MappedVoxelBlockManager.BYTES);
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeInt(5);
+			out.writeInt(3);
+			out.writeInt(1);
+
+			// A costly middle row between a cheap row and a dearer one
+			out.write(new byte[] { 1, 1, 1, 1, 1 });
+			out.write(new byte[] { 1, (byte) 200, (byte) 200, (byte) 200, 1 });
+			out.write(new byte[] { 5, 5, 5, 5, 5 });
+		} finally {
+			out.close();
+		}
+
+		DenseCellSpace space = new DenseCellSpace(0, 0, 0, 5, 3, 1);
+		space.setGoalCell(4, 1, 0);
+		space.setStartCell(0, 1, 0);
+		MappedVoxelBlockManager mapped = new MappedVoxelBlockManager(space, file);
+
+		Path path = new Pathfinder(mapped).findPath();
+		assertTrue(path.isComplete());
+		assertEquals(7, path.size());
+		assertTrue(path.contains(space.makeNewCell(2, 0, 0)));
+		assertEquals(6.0, space.getG(space.getStartCell()), 0.0);
+		assertEquals(200.0, space.cost(space.makeNewCell(1, 1, 0), space.makeNewCell(2, 1, 0)), 0.0);
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAVoxelFile() throws IOException {
+		File file = folder.newFile("empty.vox");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[MappedVoxelBlockManager.HEADER_BYTES]);
+		out.close();
+
+		new MappedVoxelBlockManager(new CellSpace(), file);
+	}
+
+	@Test
+	public void testFailedOpenKeepsBlockManager() throws IOException {
+		File file = folder.newFile("truncated.vox");
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		out.writeInt(MappedVoxelBlockManager.MAGIC);
+		out.writeInt(MappedVoxelBlockManager.VERSION);
+		out.writeInt(MappedVoxelBlockManager.BYTES);
+		out.writeInt(0);
+		out.writeInt(0);
+		out.writeInt(0);
+		out.writeInt(4);
+		out.writeInt(4);
+		out.writeInt(4);
+		out.close();
+
+		CellSpace space = new CellSpace();
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+
+		try {
+			new MappedVoxelBlockManager(space, file);
+			fail("Opened a truncated voxel file");
+		} catch (IOException e) {
+			// The space still searches with its old BlockManager
+			assertSame(blockManager, space.getBlockManager());
+		}
+
+		space.setGoalCell(3, 0, 0);
+		space.setStartCell(0, 0, 0);
+		assertTrue(new Pathfinder(blockManager).findPath().isComplete());
+	}
+}
@@ -0,0 +1,53 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NeighborhoodTest {
+
+	@Test
+	public void testSizes() {
+		assertEquals(6, Neighborhood.SIX.size());
+		assertEquals(18, Neighborhood.EIGHTEEN.size());
+		assertEquals(26, Neighborhood.TWENTY_SIX.size());
+	}
+
+	@Test
+	public void testStepCosts() {
+		Neighborhood neighborhood = Neighborhood.TWENTY_SIX;
+
+		for (int move = 0; move < neighborhood.size(); move++) {
+			int x = neighborhood.getOffsetX(move);
+			int y = neighborhood.getOffsetY(move);
+			int z = neighborhood.getOffsetZ(move);
+			assertEquals(Math.sqrt(x * x + y * y + z * z), neighborhood.getStepCost(move), 0.0);
+			assertEquals(move, neighborhood.indexOf(x, y, z));
+		}
+
+		assertEquals(-1, neighborhood.indexOf(0, 0, 0));
+		assertEquals(-1, neighborhood.indexOf(2, 0, 0));
+		assertEquals(-1, Neighborhood.EIGHTEEN.indexOf(1, 1, 1));
+		assertEquals(-1, Neighborhood.SIX.indexOf(1, 1, 0));
+	}
+
+	@Test
+	public void testCornerCutting() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(10, 10, 10);
+		space.setStartCell(0, 0, 0);
+		CostBlockManager blockManager = new CostBlockManager(space);
+		blockManager.blockCell(space.makeNewCell(1, 0, 0));
+
+		Neighborhood neighborhood = Neighborhood.TWENTY_SIX;
+		assertTrue(neighborhood.isCornerCut(blockManager, 0, 0, 0, neighborhood.indexOf(1, 1, 0)));
+		assertTrue(neighborhood.isCornerCut(blockManager, 0, 0, 0, neighborhood.indexOf(1, 1, 1)));
+		assertFalse(neighborhood.isCornerCut(blockManager, 0, 0, 0, neighborhood.indexOf(-1, 1, 0)));
+		assertFalse(neighborhood.isCornerCut(blockManager, 0, 0, 0, neighborhood.indexOf(0, 1, 1)));
+
+		Neighborhood cutting = neighborhood.withCornerCutting(true);
+		assertFalse(cutting.isCornerCut(blockManager, 0, 0, 0, cutting.indexOf(1, 1, 0)));
+	}
+}
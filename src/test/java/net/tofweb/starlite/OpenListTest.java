@@ -0,0 +1,103 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OpenListTest {
+
+	private OpenList openList;
+
+	@Before
+	public void setup() {
+		openList = new OpenList();
+	}
+
+	@Test
+	public void testOrdering() {
+		openList.insert(CellId.pack(1, 0, 0), new Costs(3.0, 1.0));
+		openList.insert(CellId.pack(2, 0, 0), new Costs(1.0, 1.0));
+		openList.insert(CellId.pack(3, 0, 0), new Costs(2.0, 2.0));
+		openList.insert(CellId.pack(4, 0, 0), new Costs(2.0, 1.0));
+
+		assertEquals(4, openList.size());
+		assertEquals(2, CellId.getX(openList.pop()));
+		assertEquals(4, CellId.getX(openList.pop()));
+		assertEquals(3, CellId.getX(openList.pop()));
+		assertEquals(1, CellId.getX(openList.pop()));
+		assertTrue(openList.isEmpty());
+		assertNull(openList.topKey());
+	}
+
+	@Test
+	public void testUpdateKey() {
+		long cell = CellId.pack(1, 0, 0);
+		openList.insert(cell, new Costs(3.0, 1.0));
+		openList.insert(CellId.pack(2, 0, 0), new Costs(2.0, 1.0));
+
+		// Decrease
+		openList.insert(CellId.pack(1, 0, 0), new Costs(1.0, 1.0));
+		assertEquals(2, openList.size());
+		assertEquals(cell, openList.peek());
+
+		// Increase
+		openList.insert(cell, new Costs(5.0, 1.0));
+		assertEquals(2, CellId.getX(openList.peek()));
+	}
+
+	@Test
+	public void testRemove() {
+		long cell = CellId.pack(1, 0, 0);
+		openList.insert(cell, new Costs(1.0, 1.0));
+		openList.insert(CellId.pack(2, 0, 0), new Costs(2.0, 1.0));
+
+		assertTrue(openList.remove(cell));
+		assertFalse(openList.contains(cell));
+		assertFalse(openList.remove(cell));
+		assertEquals(2, CellId.getX(openList.pop()));
+	}
+
+	@Test
+	public void testRandomized() {
+		Random random = new Random(42);
+
+		for (int i = 0; i < 1000; i++) {
+			openList.insert(CellId.pack(i, 0, 0), new Costs(random.nextDouble(), random.nextDouble()));
+		}
+
+		for (int i = 0; i < 1000; i += 3) {
+			openList.remove(CellId.pack(i, 0, 0));
+		}
+
+		Costs previous = openList.topKey();
+		while (!openList.isEmpty()) {
+			Costs key = openList.topKey();
+			assertTrue(previous.compareTo(key) <= 0);
+			openList.pop();
+			previous = key;
+		}
+	}
+
+	@Test
+	public void testPrimitiveKeys() {
+		openList.insert(CellId.pack(1, 0, 0), 2.0, 5.0);
+		openList.insert(CellId.pack(2, 0, 0), 2.0, 1.0);
+		openList.insert(CellId.pack(3, 0, 0), Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+		assertEquals(2.0, openList.topPrimaryKey(), 0.0);
+		assertEquals(1.0, openList.topSecondaryKey(), 0.0);
+		assertEquals(new Costs(2.0, 1.0), openList.topKey());
+
+		// Within Cell.BILLIONTH the cost decides
+		openList.insert(CellId.pack(1, 0, 0), 2.0 - Cell.BILLIONTH / 2, 0.5);
+		assertEquals(1, CellId.getX(openList.pop()));
+		assertEquals(2, CellId.getX(openList.pop()));
+		assertEquals(Double.POSITIVE_INFINITY, openList.topPrimaryKey(), 0.0);
+	}
+}
@@ -0,0 +1,103 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class PathPlanningEventTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testEventPerPlan() throws Exception {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+		CostBlockManager blockManager = new CostBlockManager(space);
+		Pathfinder pathfinder = new Pathfinder(blockManager);
+
+		File file = folder.newFile("planning.jfr");
+		Recording recording = new Recording();
+		try {
+			recording.enable(PathPlanningEvent.class);
+			recording.start();
+
+			pathfinder.findPath();
+			pathfinder.replan(space.makeNewCell(9, 7, 7));
+
+			recording.stop();
+			recording.dump(file.toPath());
+		} finally {
+			recording.close();
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+		assertEquals(2, events.size());
+
+		RecordedEvent first = events.get(0);
+		assertEquals("net.tofweb.starlite.PathPlanning", first.getEventType().getName());
+		assertEquals(10, first.getInt("startX"));
+		assertEquals(-1, first.getInt("goalZ"));
+		assertEquals(24, first.getInt("pathLength"));
+		assertTrue(first.getLong("expansions") > 0);
+		assertTrue(first.getLong("touchedCells") > 0);
+		assertFalse(first.getBoolean("replan"));
+		assertTrue(first.getBoolean("complete"));
+
+		RecordedEvent second = events.get(1);
+		assertEquals(9, second.getInt("startX"));
+		assertTrue(second.getBoolean("replan"));
+	}
+
+	@Test
+	public void testEventPerAnytimePlan() throws Exception {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+		AnytimePathfinder pathfinder = new AnytimePathfinder(new CostBlockManager(space));
+
+		File file = folder.newFile("anytime.jfr");
+		Recording recording = new Recording();
+		try {
+			recording.enable(PathPlanningEvent.class);
+			recording.start();
+
+			pathfinder.findPath(TimeUnit.SECONDS.toNanos(30));
+
+			recording.stop();
+			recording.dump(file.toPath());
+		} finally {
+			recording.close();
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+		assertEquals(1, events.size());
+		assertEquals(10, events.get(0).getInt("startX"));
+		assertEquals(24, events.get(0).getInt("pathLength"));
+		assertTrue(events.get(0).getBoolean("complete"));
+	}
+
+	@Test
+	public void testNoEventWithoutRecording() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+
+		assertFalse(new PathPlanningEvent().isEnabled());
+		assertTrue(new Pathfinder(new CostBlockManager(space)).findPath().isComplete());
+	}
+
+}
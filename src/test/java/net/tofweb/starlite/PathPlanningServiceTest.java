@@ -0,0 +1,184 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PathPlanningServiceTest {
+
+	private SharedObstacleMap obstacles;
+	private PathPlanningService service;
+
+	@Before
+	public void setup() {
+		obstacles = new SharedObstacleMap();
+		obstacles.blockRegion(5, -12, -12, 5, 12, 12);
+		obstacles.unblockRegion(5, 8, 0, 5, 8, 0);
+
+		service = new PathPlanningService(obstacles, new Supplier<CellSpace>() {
+			@Override
+			public CellSpace get() {
+				return new DenseCellSpace(-2, -12, -12, 14, 25, 25);
+			}
+		});
+	}
+
+	@After
+	public void teardown() {
+		service.shutdown();
+	}
+
+	@Test
+	public void testSubmitAll() throws Exception {
+		List<PathRequest> requests = new ArrayList<PathRequest>();
+		for (int i = 0; i < 64; i++) {
+			requests.add(new PathRequest(makeCell(10, i % 16 - 8, i % 5 - 2), makeCell(0, i % 3, 0)));
+		}
+
+		List<CompletableFuture<Path>> futures = service.submitAll(requests);
+		assertEquals(requests.size(), futures.size());
+
+		for (int i = 0; i < futures.size(); i++) {
+			Path path = futures.get(i).get();
+			assertTrue(path.isComplete());
+			assertEquals(requests.get(i).getStart(), path.getFirst());
+			assertEquals(requests.get(i).getGoal(), path.getLast());
+			assertTrue(path.contains(makeCell(5, 8, 0)));
+		}
+
+		// Searches are pooled rather than made per request
+		assertTrue(service.getSearchCount() <= Runtime.getRuntime().availableProcessors());
+	}
+
+	@Test
+	public void testObstacleChanges() throws Exception {
+		PathRequest request = new PathRequest(makeCell(10, 0, 0), makeCell(0, 0, 0));
+		assertTrue(service.submit(request).get().isComplete());
+
+		obstacles.blockRegion(5, 8, 0, 5, 8, 0);
+		Path path = service.submit(request).get();
+		assertEquals(0, path.size());
+	}
+
+	@Test
+	public void testManyGoalsReuseSpace() throws Exception {
+		final List<CellSpace> spaces = new ArrayList<CellSpace>();
+		PathPlanningService denseService = new PathPlanningService(obstacles, new Supplier<CellSpace>() {
+			@Override
+			public CellSpace get() {
+				CellSpace space = new DenseCellSpace(-2, -12, -12, 14, 25, 25);
+				synchronized (spaces) {
+					spaces.add(space);
+				}
+
+				return space;
+			}
+		});
+
+		try {
+			for (int i = 0; i < 40; i++) {
+				PathRequest request = new PathRequest(makeCell(8, 0, 0), makeCell(2, i % 8 - 4, i / 8 - 2));
+				Path path = denseService.submit(request).get();
+				assertTrue(path.isComplete());
+				assertEquals(request.getGoal(), path.getLast());
+			}
+
+			// Every goal was planned in the one pooled space, reset between
+			assertEquals(1, denseService.getSearchCount());
+			assertEquals(1, spaces.size());
+		} finally {
+			denseService.shutdown();
+		}
+	}
+
+	@Test
+	public void testManyGoalsKeepSpacesBounded() throws Exception {
+		long mostCells = 0;
+		for (int i = 0; i < 40; i++) {
+			// A space which planned only this goal
+			CellSpace alone = new CellSpace();
+			SharedObstacleBlockManager blockManager = new SharedObstacleBlockManager(alone, obstacles);
+			alone.setGoalCell(2, i % 8 - 4, i / 8 - 2);
+			alone.setStartCell(8, 0, 0);
+			new Pathfinder(blockManager).findPath();
+			mostCells = Math.max(mostCells, alone.getStoredCellCount());
+		}
+
+		final List<CellSpace> spaces = new ArrayList<CellSpace>();
+		PathPlanningService hashService = new PathPlanningService(obstacles, new Supplier<CellSpace>() {
+			@Override
+			public CellSpace get() {
+				CellSpace space = new CellSpace();
+				synchronized (spaces) {
+					spaces.add(space);
+				}
+
+				return space;
+			}
+		});
+		hashService.setMaxSpaceGrowth(2 * mostCells);
+
+		try {
+			for (int i = 0; i < 40; i++) {
+				PathRequest request = new PathRequest(makeCell(8, 0, 0), makeCell(2, i % 8 - 4, i / 8 - 2));
+				assertTrue(hashService.submit(request).get().isComplete());
+
+				// The pooled space never grows far past the bound
+				CellSpace pooled = spaces.get(spaces.size() - 1);
+				assertTrue(pooled.getStoredCellCount() <= 3 * mostCells);
+			}
+
+			// Nearby goals share most of their Cells, so the space is reused
+			assertEquals(1, hashService.getSearchCount());
+			assertTrue(spaces.size() < 40);
+
+			// With no growth allowed, each new goal gets a new space
+			hashService.setMaxSpaceGrowth(0);
+			int made = spaces.size();
+			for (int i = 0; i < 8; i++) {
+				PathRequest request = new PathRequest(makeCell(8, 0, 0), makeCell(2, i - 4, 2));
+				assertTrue(hashService.submit(request).get().isComplete());
+				assertTrue(spaces.get(spaces.size() - 1).getStoredCellCount() <= mostCells);
+			}
+
+			assertEquals(made + 8, spaces.size());
+		} finally {
+			hashService.shutdown();
+		}
+	}
+
+	@Test
+	public void testSameGoalKeepsSearch() throws Exception {
+		PathRequest request = new PathRequest(makeCell(10, 0, 0), makeCell(0, 0, 0));
+		assertTrue(service.submit(request).get().isComplete());
+
+		// A nearby start repairs the search rather than starting over
+		Path path = service.submit(new PathRequest(makeCell(10, 1, 0), makeCell(0, 0, 0))).get();
+		assertTrue(path.isComplete());
+		assertEquals(makeCell(10, 1, 0), path.getFirst());
+		assertEquals(1, service.getSearchCount());
+	}
+
+	@Test(expected = ExecutionException.class)
+	public void testOutOfBounds() throws Exception {
+		service.submit(new PathRequest(makeCell(100, 0, 0), makeCell(0, 0, 0))).get();
+	}
+
+	private Cell makeCell(int x, int y, int z) {
+		Cell cell = new Cell();
+		cell.setX(x);
+		cell.setY(y);
+		cell.setZ(z);
+
+		return cell;
+	}
+}
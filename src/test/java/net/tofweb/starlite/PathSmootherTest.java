@@ -0,0 +1,77 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PathSmootherTest {
+
+	@Test
+	public void testOpenSpace() {
+		DenseCellSpace space = new DenseCellSpace(16, 16, 16);
+		space.setStartCell(1, 2, 3);
+		space.setGoalCell(12, 9, 5);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+
+		Path path = new Pathfinder(blockManager).findPath();
+		Path smoothed = path.smooth(blockManager);
+
+		assertTrue(smoothed.isComplete());
+		assertEquals(2, smoothed.size());
+		assertEquals(path.getFirst(), smoothed.getFirst());
+		assertEquals(path.getLast(), smoothed.getLast());
+	}
+
+	@Test
+	public void testAroundWall() {
+		DenseCellSpace space = new DenseCellSpace(24, 24, 24);
+		space.setStartCell(2, 2, 2);
+		space.setGoalCell(20, 3, 4);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+		blockManager.blockRegion(10, 0, 0, 10, 23, 23);
+		blockManager.unblockRegion(10, 15, 15, 10, 16, 16);
+
+		Path path = new Pathfinder(blockManager).findPath();
+		assertTrue(path.isComplete());
+
+		PathSmoother smoother = new PathSmoother(blockManager);
+		Path smoothed = smoother.smooth(path);
+
+		assertTrue(smoothed.isComplete());
+		assertTrue(smoothed.size() < 6);
+		assertEquals(path.getFirst(), smoothed.getFirst());
+		assertEquals(path.getLast(), smoothed.getLast());
+
+		// Every waypoint is on the grid Path, and sees the next one
+		Cell previous = null;
+		for (Cell waypoint : smoothed) {
+			assertTrue(path.contains(waypoint));
+
+			if (previous != null) {
+				assertTrue(smoother.hasLineOfSight(previous, waypoint));
+			}
+
+			previous = waypoint;
+		}
+
+		assertFalse(smoother.hasLineOfSight(smoothed.getFirst(), smoothed.getLast()));
+	}
+
+	@Test
+	public void testShortPaths() {
+		DenseCellSpace space = new DenseCellSpace(4, 4, 4);
+		BitsetBlockManager blockManager = new BitsetBlockManager(space);
+
+		Path empty = new Path();
+		assertEquals(0, empty.smooth(blockManager).size());
+		assertFalse(empty.smooth(blockManager).isComplete());
+
+		space.setStartCell(1, 1, 1);
+		space.setGoalCell(1, 1, 2);
+		Path path = new Pathfinder(blockManager).findPath();
+		assertEquals(2, path.smooth(blockManager).size());
+	}
+
+}
@@ -5,6 +5,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
 import org.junit.Test;
 
 public class PathfinderTest {
@@ -71,4 +76,269 @@ public class PathfinderTest {
 
 		assertFalse(path.isComplete());
 	}
+
+	@Test
+	public void testReplan() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+
+		CostBlockManager blockManager = new CostBlockManager(space);
+		Pathfinder pathfinder = new Pathfinder(blockManager);
+		Path path = pathfinder.findPath();
+		assertTrue(path.isComplete());
+		assertTrue(24 == path.size());
+
+		// Move one step along the path, then wall off the rest of it
+		Cell newStart = path.get(1);
+		Cell blocked = path.get(2);
+		blockManager.blockCell(space.makeNewCell(blocked.getX(), blocked.getY(), blocked.getZ()));
+
+		path = pathfinder.replan(newStart);
+		assertTrue(path.isComplete());
+		assertFalse(path.contains(blocked));
+		assertEquals(newStart, path.getFirst());
+
+		// Same length as a search from scratch
+		CellSpace freshSpace = new CellSpace();
+		freshSpace.setGoalCell(1, 1, -1);
+		freshSpace.setStartCell(newStart.getX(), newStart.getY(), newStart.getZ());
+		CostBlockManager freshBlockManager = new CostBlockManager(freshSpace);
+		freshBlockManager.blockCell(freshSpace.makeNewCell(blocked.getX(), blocked.getY(), blocked.getZ()));
+		Path freshPath = new Pathfinder(freshBlockManager).findPath();
+		assertEquals(freshPath.size(), path.size());
+
+		// Unblocking is repaired the same way
+		blockManager.unblockCell(space.makeNewCell(blocked.getX(), blocked.getY(), blocked.getZ()));
+		path = pathfinder.replan(newStart);
+		assertTrue(path.isComplete());
+		assertTrue(23 == path.size());
+	}
+
+	@Test
+	public void testTwentySixConnected() {
+		CellSpace space = new CellSpace();
+		space.setNeighborhood(Neighborhood.TWENTY_SIX);
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+
+		CostBlockManager blockManager = new CostBlockManager(space);
+		Path path = new Pathfinder(blockManager).findPath();
+
+		// 6 corner moves, 2 edge moves and 1 face move
+		assertTrue(path.isComplete());
+		assertEquals(10, path.size());
+		assertEquals(6 * Math.sqrt(3) + 2 * Math.sqrt(2) + 1, space.getG(space.getStartCell()), 0.00001);
+	}
+
+	@Test
+	public void testNoCornerCutting() {
+		CellSpace space = new CellSpace();
+		space.setNeighborhood(Neighborhood.EIGHTEEN);
+		space.setGoalCell(1, 1, 0);
+		space.setStartCell(0, 0, 0);
+
+		CostBlockManager blockManager = new CostBlockManager(space);
+		blockManager.blockCell(space.makeNewCell(1, 0, 0));
+		Pathfinder pathfinder = new Pathfinder(blockManager);
+
+		// The diagonal passes the blocked corner, so go around it
+		Path path = pathfinder.findPath();
+		assertTrue(path.isComplete());
+		assertEquals(3, path.size());
+		assertEquals(0, path.get(1).getX());
+
+		// With corner cutting the diagonal is taken
+		space.setNeighborhood(Neighborhood.EIGHTEEN.withCornerCutting(true));
+		path = pathfinder.findPath();
+		assertTrue(path.isComplete());
+		assertEquals(2, path.size());
+	}
+
+	@Test
+	public void testFindPaths() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+		CostBlockManager blockManager = new CostBlockManager(space);
+		blockManager.blockCell(space.makeNewCell(6, 6, 3));
+		blockManager.blockCell(space.makeNewCell(6, 5, 4));
+
+		List<Cell> starts = new ArrayList<Cell>();
+		starts.add(space.makeNewCell(10, 7, 7));
+		starts.add(space.makeNewCell(-4, 2, 0));
+		starts.add(space.makeNewCell(3, 3, 3));
+		starts.add(space.makeNewCell(1, 1, -1));
+
+		List<Path> paths = new Pathfinder(blockManager).findPaths(starts);
+		assertEquals(starts.size(), paths.size());
+
+		// Each Path matches a search of its own
+		for (int i = 0; i < starts.size(); i++) {
+			Cell start = starts.get(i);
+			CellSpace single = new CellSpace();
+			single.setGoalCell(1, 1, -1);
+			single.setStartCell(start.getX(), start.getY(), start.getZ());
+			CostBlockManager singleBlockManager = new CostBlockManager(single);
+			singleBlockManager.blockCell(single.makeNewCell(6, 6, 3));
+			singleBlockManager.blockCell(single.makeNewCell(6, 5, 4));
+			Path singlePath = new Pathfinder(singleBlockManager).findPath();
+
+			assertTrue(paths.get(i).isComplete());
+			assertEquals(start, paths.get(i).getFirst());
+			assertEquals(singlePath.size(), paths.get(i).size());
+			assertEquals(single.getG(start), space.getG(start), 0.00001);
+		}
+
+		// The CellSpace's own start is put back
+		assertEquals(starts.get(0), space.getStartCell());
+	}
+
+	@Test
+	public void testCompactPath() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+		CostBlockManager blockManager = new CostBlockManager(space);
+		blockManager.blockCell(space.makeNewCell(6, 6, 3));
+
+		Pathfinder pathfinder = new Pathfinder(blockManager);
+		Path path = pathfinder.findPath();
+		CompactPath compactPath = pathfinder.findCompactPath();
+
+		assertTrue(compactPath.isComplete());
+		assertEquals(path.size(), compactPath.size());
+		assertEquals(path, compactPath.toPath());
+		assertEquals(1, compactPath.getX(compactPath.size() - 1));
+		assertEquals(-1, compactPath.getZ(compactPath.size() - 1));
+	}
+
+	@Test
+	public void testIteratePath() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+		Pathfinder pathfinder = new Pathfinder(new CostBlockManager(space));
+		Path path = pathfinder.findPath();
+
+		// Only the steps read are extracted
+		PathIterator cells = pathfinder.iteratePath();
+		Iterator<Cell> expected = path.iterator();
+		for (int i = 0; i < 10; i++) {
+			assertEquals(expected.next(), cells.next());
+		}
+
+		assertFalse(cells.isComplete());
+		assertEquals(path.size() - 10, StreamSupport.stream(cells.spliterator(), false).count());
+		assertTrue(cells.isComplete());
+		assertFalse(cells.hasNext());
+	}
+
+	@Test
+	public void testIterateUnreachablePath() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+		CostBlockManager blockManager = new CostBlockManager(space);
+		blockManager.blockCell(space.makeNewCell(11, 7, 7));
+		blockManager.blockCell(space.makeNewCell(10, 8, 7));
+		blockManager.blockCell(space.makeNewCell(9, 7, 7));
+		blockManager.blockCell(space.makeNewCell(10, 6, 7));
+		blockManager.blockCell(space.makeNewCell(10, 7, 8));
+		blockManager.blockCell(space.makeNewCell(10, 7, 6));
+
+		PathIterator cells = new Pathfinder(blockManager).iteratePath();
+		assertFalse(cells.hasNext());
+		assertFalse(cells.isComplete());
+		assertFalse(new Pathfinder(blockManager).findCompactPath().isComplete());
+	}
+
+	@Test
+	public void testStaleGValuesEndThePath() {
+		DenseCellSpace space = new DenseCellSpace(20, 3, 1);
+		space.setStartCell(0, 1, 0);
+		space.setGoalCell(19, 1, 0);
+
+		// Blocks a wall without telling the CellSpace
+		final boolean[] isWallBlocked = new boolean[1];
+		BlockManager blockManager = new BlockManager(space) {
+			@Override
+			public boolean isBlocked(Cell cell) {
+				return isWallBlocked[0] && cell.getX() == 10;
+			}
+		};
+
+		Pathfinder pathfinder = new Pathfinder(blockManager);
+		assertTrue(pathfinder.findPath().isComplete());
+
+		// The g values lead into the wall and back; the walk must not cycle
+		isWallBlocked[0] = true;
+		Path path = pathfinder.findPath();
+		assertFalse(path.isComplete());
+		assertTrue(path.size() <= 12);
+	}
+
+	@Test
+	public void testStaleGValuesAreRepaired() {
+		DenseCellSpace space = new DenseCellSpace(20, 3, 1);
+		space.setStartCell(0, 1, 0);
+		space.setGoalCell(19, 1, 0);
+		ConcurrentBlockManager blockManager = new ConcurrentBlockManager(space);
+		Pathfinder pathfinder = new Pathfinder(blockManager);
+
+		PathIterator cells = pathfinder.iteratePath();
+
+		// Blocked after the search ran, before the path is read
+		blockManager.blockRegion(10, 0, 0, 10, 1, 0);
+
+		int count = 0;
+		while (cells.hasNext()) {
+			assertFalse(blockManager.isBlocked(cells.next()));
+			count++;
+		}
+
+		assertTrue(cells.isComplete());
+		assertEquals(22, count);
+	}
+
+	@Test
+	public void testMaxPathCells() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+		Pathfinder pathfinder = new Pathfinder(new CostBlockManager(space));
+		pathfinder.setMaxPathCells(5);
+
+		Path path = pathfinder.findPath();
+		assertEquals(5, path.size());
+		assertFalse(path.isComplete());
+		assertFalse(pathfinder.findCompactPath().isComplete());
+
+		pathfinder.setMaxPathCells(24);
+		assertTrue(pathfinder.findPath().isComplete());
+
+	}
+
+	@Test
+	public void testExtractionTimeout() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(100, 0, 0);
+		Pathfinder pathfinder = new Pathfinder(new CostBlockManager(space));
+
+		Path path = pathfinder.findPath();
+		assertTrue(path.isComplete());
+		assertEquals(101, path.size());
+
+		// Already past the deadline the first time the clock is read, after
+		// 64 Cells
+		pathfinder.setExtractionTimeoutNanos(0);
+		path = pathfinder.findPath();
+		assertFalse(path.isComplete());
+		assertEquals(64, path.size());
+		assertEquals(space.getStartCell(), path.getFirst());
+
+		pathfinder.setExtractionTimeoutNanos(Long.MAX_VALUE);
+		assertTrue(pathfinder.findPath().isComplete());
+	}
 }
@@ -0,0 +1,106 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SearchMetricsTest {
+
+	@Test
+	public void testSearchesAreCounted() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, 1);
+		space.setStartCell(18, 18, 18);
+		CostBlockManager blockManager = new CostBlockManager(space);
+
+		SearchMetrics metrics = new SearchMetrics();
+		space.setSearchMetrics(metrics);
+
+		Pathfinder pathfinder = new Pathfinder(blockManager);
+		Path path = pathfinder.findPath();
+
+		assertTrue(path.isComplete());
+		assertEquals(1, metrics.getSearchCount());
+		assertEquals(0, metrics.getReplanCount());
+		assertEquals(0, metrics.getIncompleteSearchCount());
+		assertTrue(metrics.getExpansionCount() > 0);
+		assertTrue(metrics.getPushCount() >= metrics.getPopCount());
+		assertTrue(metrics.getPeakOpenSize() > 0);
+		assertTrue(metrics.getMadeCellCount() > 0);
+		assertEquals(1, metrics.getExtractionCount());
+		assertEquals(path.size(), metrics.getExtractedCellCount());
+
+		blockManager.blockCell(space.makeNewCell(10, 10, 10));
+		pathfinder.replan(space.makeNewCell(17, 18, 18));
+
+		assertEquals(2, metrics.getSearchCount());
+		assertEquals(1, metrics.getReplanCount());
+		assertEquals(2, metrics.getExtractionCount());
+
+		metrics.reset();
+		assertEquals(0, metrics.getSearchCount());
+		assertEquals(0, metrics.getExpansionCount());
+	}
+
+	@Test
+	public void testListenerSeesEachSearch() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+		CostBlockManager blockManager = new CostBlockManager(space);
+
+		final List<SearchMetrics> searches = new ArrayList<SearchMetrics>();
+		final List<SearchMetrics> extractions = new ArrayList<SearchMetrics>();
+		space.setSearchListener(new SearchListener() {
+			@Override
+			public void searchCompleted(SearchMetrics search) {
+				searches.add(search);
+			}
+
+			@Override
+			public void pathExtracted(SearchMetrics extraction) {
+				extractions.add(extraction);
+			}
+		});
+
+		Pathfinder pathfinder = new Pathfinder(blockManager);
+		pathfinder.findPath();
+
+		// A converged search expands nothing more
+		pathfinder.findPath();
+
+		assertEquals(2, searches.size());
+		assertEquals(2, extractions.size());
+		assertTrue(searches.get(0).getExpansionCount() > 0);
+		assertEquals(0, searches.get(1).getExpansionCount());
+		assertEquals(1, searches.get(1).getReplanCount());
+		assertEquals(24, extractions.get(0).getExtractedCellCount());
+
+		SearchMetrics total = new SearchMetrics();
+		total.add(searches.get(0));
+		total.add(searches.get(1));
+		assertEquals(searches.get(0).getExpansionCount(), total.getExpansionCount());
+		assertEquals(2, total.getSearchCount());
+	}
+
+	@Test
+	public void testUnmeasuredSpaceReportsNothing() {
+		CellSpace space = new CellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+
+		SearchMetrics metrics = new SearchMetrics();
+		space.setSearchMetrics(metrics);
+		space.setSearchMetrics(null);
+
+		new Pathfinder(new CostBlockManager(space)).findPath();
+
+		assertEquals(0, metrics.getSearchCount());
+		assertEquals(0, metrics.getExtractionCount());
+	}
+
+}
@@ -0,0 +1,143 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class SharedObstacleMapTest {
+
+	@Test
+	public void testVersions() {
+		ObstacleMap empty = new ObstacleMap();
+		ObstacleMap wall = empty.withBlockedRegion(2, -20, -1, 2, 20, 1);
+		ObstacleMap gap = wall.withUnblockedRegion(2, 0, 0, 2, 0, 0);
+
+		assertEquals(0, empty.getVersion());
+		assertEquals(2, gap.getVersion());
+		assertEquals(0, empty.getBlockedCount());
+		assertEquals(41 * 3, wall.getBlockedCount());
+		assertEquals(41 * 3 - 1, gap.getBlockedCount());
+
+		// Older versions are never changed
+		assertFalse(empty.isBlocked(2, 0, 0));
+		assertTrue(wall.isBlocked(2, 0, 0));
+		assertFalse(gap.isBlocked(2, 0, 0));
+		assertTrue(gap.isBlocked(2, 1, 0));
+	}
+
+	@Test
+	public void testChangesSince() {
+		SharedObstacleMap shared = new SharedObstacleMap(new ObstacleMap(), 2);
+		shared.blockRegion(1, 2, 3, 4, 5, 6);
+		shared.unblockRegion(1, 1, 1, 1, 1, 1);
+
+		assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 1 }, shared.getChangesSince(1, 2));
+		assertEquals(12, shared.getChangesSince(0, 2).length);
+
+		// Only the last two changes are remembered
+		shared.blockRegion(0, 0, 0, 0, 0, 0);
+		assertNull(shared.getChangesSince(0, 3));
+		assertEquals(12, shared.getChangesSince(1, 3).length);
+	}
+
+	@Test
+	public void testSync() {
+		SharedObstacleMap shared = new SharedObstacleMap();
+		CellSpace space = new CellSpace();
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(4, 0, 0);
+		SharedObstacleBlockManager manager = new SharedObstacleBlockManager(space, shared);
+		Pathfinder pathfinder = new Pathfinder(manager);
+		Path open = pathfinder.findPath();
+		assertEquals(5, open.size());
+
+		// The search only sees the wall once it syncs
+		shared.blockRegion(2, -1, -1, 2, 1, 1);
+		assertFalse(manager.isBlocked(2, 0, 0));
+		assertTrue(manager.sync());
+		assertFalse(manager.sync());
+		assertTrue(manager.isBlocked(2, 0, 0));
+
+		Path detour = pathfinder.findPath();
+		assertTrue(detour.isComplete());
+		assertEquals(8.0, space.getG(space.getStartCell()), 0.0);
+
+		// Earlier Paths are left alone
+		assertEquals(5, open.size());
+	}
+
+	@Test
+	public void testSearchSyncs() {
+		SharedObstacleMap shared = new SharedObstacleMap();
+		CellSpace space = new CellSpace();
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(4, 0, 0);
+		SharedObstacleBlockManager manager = new SharedObstacleBlockManager(space, shared);
+		Pathfinder pathfinder = new Pathfinder(manager);
+		assertEquals(5, pathfinder.findPath().size());
+
+		// No sync; the search moves to the latest version itself
+		shared.blockRegion(2, -1, -1, 2, 1, 1);
+		Path detour = pathfinder.findPath();
+		assertTrue(detour.isComplete());
+		assertFalse(detour.contains(space.makeNewCell(2, 0, 0)));
+		assertEquals(8.0, space.getG(space.getStartCell()), 0.0);
+		assertFalse(manager.sync());
+	}
+
+	@Test
+	public void testConcurrentQueries() throws Exception {
+		final SharedObstacleMap shared = new SharedObstacleMap();
+		shared.blockRegion(5, -12, -12, 5, 12, 12);
+		shared.unblockRegion(5, 8, 0, 5, 8, 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Path>> futures = new ArrayList<Future<Path>>();
+			for (int i = 0; i < 16; i++) {
+				final int startY = i % 8 - 4;
+				futures.add(executor.submit(new Callable<Path>() {
+					@Override
+					public Path call() {
+						DenseCellSpace space = new DenseCellSpace(-2, -12, -12, 14, 25, 25);
+						space.setGoalCell(0, 0, 0);
+						space.setStartCell(10, startY, 0);
+						SharedObstacleBlockManager manager = new SharedObstacleBlockManager(space, shared);
+
+						return new Pathfinder(manager).findPath();
+					}
+				}));
+			}
+
+			for (Future<Path> future : futures) {
+				Path path = future.get();
+				assertTrue(path.isComplete());
+
+				// Every query squeezes through the one gap in the wall
+				assertTrue(path.contains(gapCell()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private Cell gapCell() {
+		Cell cell = new Cell();
+		cell.setX(5);
+		cell.setY(8);
+		cell.setZ(0);
+
+		return cell;
+	}
+}
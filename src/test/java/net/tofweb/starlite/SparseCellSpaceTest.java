@@ -0,0 +1,120 @@
+package net.tofweb.starlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SparseCellSpaceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SparseCellSpace space;
+
+	@Before
+	public void setup() {
+		space = new SparseCellSpace();
+		space.setGoalCell(1, 1, -1);
+		space.setStartCell(10, 7, 7);
+	}
+
+	@Test
+	public void testGetInfo() {
+		// The goal's brick spans x, y in [0, 16) and z in [-16, 0)
+		assertEquals(2, space.getBrickCount());
+		assertNull(space.getInfo(makeSpacelessCell(100, 100, 100)));
+
+		Cell cell = space.makeNewCell(-40, 3, 900);
+		assertEquals(3, space.getBrickCount());
+
+		CellInfo info = space.getInfo(cell);
+		assertNotNull(info);
+		assertTrue(Cell.DEFAULT_COST == info.getCost());
+		assertTrue(Double.POSITIVE_INFINITY == info.getG());
+		assertTrue(Double.POSITIVE_INFINITY == info.getRhs());
+
+		space.updateCellCost(cell, 2.5);
+		assertTrue(2.5 == space.getInfo(cell).getCost());
+
+		CellInfo goalInfo = space.getInfo(space.getGoalCell());
+		assertTrue(0.0 == goalInfo.getG());
+		assertTrue(0.0 == goalInfo.getRhs());
+	}
+
+	@Test
+	public void testMatchesCellSpace() {
+		CostBlockManager blockManager = new CostBlockManager(space);
+		blockManager.blockCell(space.makeNewCell(6, 6, 3));
+		blockManager.blockCell(space.makeNewCell(6, 5, 4));
+
+		Path path = new Pathfinder(blockManager).findPath();
+		assertTrue(path.isComplete());
+		assertEquals(24, path.size());
+		assertTrue(23.0 == space.getG(space.getStartCell()));
+		assertTrue(space.getOffHeapBytes() > 0);
+	}
+
+	@Test
+	public void testBlockedIn() {
+		space.setMaxSteps(5000);
+		CostBlockManager blockManager = new CostBlockManager(space);
+		blockManager.blockCell(space.makeNewCell(11, 7, 7));
+		blockManager.blockCell(space.makeNewCell(10, 8, 7));
+		blockManager.blockCell(space.makeNewCell(9, 7, 7));
+		blockManager.blockCell(space.makeNewCell(10, 6, 7));
+		blockManager.blockCell(space.makeNewCell(10, 7, 8));
+		blockManager.blockCell(space.makeNewCell(10, 7, 6));
+
+		Path path = new Pathfinder(blockManager).findPath();
+		assertFalse(path.isComplete());
+	}
+
+	private Cell makeSpacelessCell(int x, int y, int z) {
+		Cell cell = new Cell();
+		cell.setX(x);
+		cell.setY(y);
+		cell.setZ(z);
+
+		return cell;
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		space.computeShortestPath();
+		space.updateCellCost(space.makeNewCell(-40, 3, 900), 2.5);
+
+		File file = folder.newFile("sparse.snapshot");
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			space.writeSnapshot(out.getChannel());
+		} finally {
+			out.close();
+		}
+
+		// Read through a memory mapping
+		SparseCellSpace restored = new SparseCellSpace();
+		FileInputStream in = new FileInputStream(file);
+		try {
+			restored.readSnapshot(in.getChannel());
+		} finally {
+			in.close();
+		}
+
+		assertEquals(2.5, restored.getCost(restored.getId(-40, 3, 900)), 0.0);
+		assertEquals(space.getG(space.getStartCell()), restored.getG(restored.getStartCell()), 0.0);
+		assertTrue(restored.computeShortestPath());
+		assertEquals(space.getG(space.getStartCell()), restored.getG(restored.getStartCell()), 0.0);
+	}
+}
@@ -0,0 +1,58 @@
+package net.tofweb.starlite.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.tofweb.starlite.Path;
+import net.tofweb.starlite.Pathfinder;
+
+/**
+ * Path extraction from a search which has already converged, so
+ * computeShortestPath returns at once and only the walk down the g values is
+ * measured.
+ *
+ * @version .9
+ * @since .9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionBenchmark {
+
+	@Param({ "32", "64", "128" })
+	public int size;
+
+	@Param({ "0.0", "0.1", "0.3" })
+	public double density;
+
+	private Pathfinder pathfinder;
+
+	@Setup(Level.Trial)
+	public void buildScene() {
+		Scene scene = new Scene(size, density);
+		scene.space.setMaxSteps(Integer.MAX_VALUE);
+		pathfinder = new Pathfinder(scene.blockManager);
+		pathfinder.findPath();
+	}
+
+	@Benchmark
+	public Path findPath() {
+		return pathfinder.findPath();
+	}
+
+}
@@ -0,0 +1,119 @@
+package net.tofweb.starlite.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.tofweb.starlite.CellSpace;
+import net.tofweb.starlite.DenseCellSpace;
+import net.tofweb.starlite.SparseCellSpace;
+
+/**
+ * Bytes used per Cell touched by an unobstructed corner to corner search, for
+ * each CellSpace implementation.
+ *
+ * The search time is the primary result. The counters add up, over each
+ * iteration, the heap bytes the searching thread allocated, the off heap
+ * bytes held and the Cells the search reached; divide the bytes by
+ * touchedCells to compare. The Cells are counted after each invocation,
+ * outside the timed search. Allocated bytes count garbage too, so they are an
+ * upper bound on what a CellSpace holds, but unlike heap use sampled after a
+ * collection they are exact.
+ *
+ * @version .9
+ * @since .9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MemoryBenchmark {
+
+	@Param({ "32", "64" })
+	public int size;
+
+	@Param({ "hash", "dense", "sparse" })
+	public String storage;
+
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint {
+
+		public long heapBytes;
+
+		public long offHeapBytes;
+
+		public long touchedCells;
+
+		// The last search's space, counted once its time is taken
+		private CellSpace space;
+		private int size;
+
+		@TearDown(Level.Invocation)
+		public void countTouchedCells() {
+			for (int z = 0; z < size; z++) {
+				for (int y = 0; y < size; y++) {
+					for (int x = 0; x < size; x++) {
+						if (space.getG(space.getId(x, y, z)) != Double.POSITIVE_INFINITY) {
+							touchedCells++;
+						}
+					}
+				}
+			}
+
+			space = null;
+		}
+
+	}
+
+	@Benchmark
+	public CellSpace search(Footprint footprint) {
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+
+		CellSpace space = newSpace();
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(size - 1, size - 1, size - 1);
+		space.setMaxSteps(Integer.MAX_VALUE);
+		space.computeShortestPath();
+
+		footprint.heapBytes += threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		if (space instanceof SparseCellSpace) {
+			footprint.offHeapBytes += ((SparseCellSpace) space).getOffHeapBytes();
+		}
+
+		footprint.space = space;
+		footprint.size = size;
+
+		return space;
+	}
+
+	private CellSpace newSpace() {
+		if ("dense".equals(storage)) {
+			return new DenseCellSpace(size, size, size);
+		} else if ("sparse".equals(storage)) {
+			return new SparseCellSpace();
+		}
+
+		return new CellSpace();
+	}
+
+}
@@ -0,0 +1,93 @@
+package net.tofweb.starlite.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.tofweb.starlite.CellSpace;
+import net.tofweb.starlite.Neighborhood;
+import net.tofweb.starlite.NeighborConsumer;
+
+/**
+ * Successor enumeration throughput, per Cell, through the buffer and the
+ * consumer interfaces.
+ *
+ * @version .9
+ * @since .9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NeighborBenchmark {
+
+	private static final int CELLS = 4096;
+
+	@Param({ "32", "128" })
+	public int size;
+
+	@Param({ "6", "26" })
+	public int neighbors;
+
+	private Scene scene;
+	private long[] ids = new long[CELLS];
+	private long[] buffer = new long[CellSpace.MAX_NEIGHBORS];
+
+	@Setup(Level.Trial)
+	public void buildScene() {
+		scene = new Scene(size, 0.0);
+		scene.space.setNeighborhood(neighbors == 26 ? Neighborhood.TWENTY_SIX : Neighborhood.SIX);
+
+		Random random = new Random(Scene.SEED);
+		for (int i = 0; i < CELLS; i++) {
+			ids[i] = scene.space.getId(random.nextInt(size), random.nextInt(size), random.nextInt(size));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public long getSuccessors() {
+		long sum = 0;
+
+		for (int i = 0; i < CELLS; i++) {
+			int count = scene.space.getSuccessors(ids[i], buffer);
+			for (int j = 0; j < count; j++) {
+				sum += buffer[j];
+			}
+		}
+
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public void forEachSuccessor(final Blackhole blackhole) {
+		NeighborConsumer consumer = new NeighborConsumer() {
+			@Override
+			public void accept(long neighborId) {
+				blackhole.consume(neighborId);
+			}
+		};
+
+		for (int i = 0; i < CELLS; i++) {
+			scene.space.forEachSuccessor(ids[i], consumer);
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+package net.tofweb.starlite.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.tofweb.starlite.Path;
+import net.tofweb.starlite.Pathfinder;
+
+/**
+ * Replanning after a number of random obstacle changes. Each invocation frees
+ * the Cells the previous invocation blocked and blocks changes random Cells
+ * which are free, so the scene's own obstacles stay put and the scene stays
+ * equally dense, then repairs the search and extracts the path.
+ *
+ * @version .9
+ * @since .9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplanBenchmark {
+
+	@Param({ "32", "64", "128" })
+	public int size;
+
+	@Param({ "0.1" })
+	public double density;
+
+	@Param({ "1", "10", "100" })
+	public int changes;
+
+	private Scene scene;
+	private Pathfinder pathfinder;
+	private Random random;
+	private int[] blocked;
+	private int blockedCount;
+
+	@Setup(Level.Trial)
+	public void buildScene() {
+		scene = new Scene(size, density);
+		scene.space.setMaxSteps(Integer.MAX_VALUE);
+		pathfinder = new Pathfinder(scene.blockManager);
+		pathfinder.findPath();
+		random = new Random(Scene.SEED);
+		blocked = new int[changes * 3];
+		blockedCount = 0;
+	}
+
+	@Benchmark
+	public Path replan() {
+		for (int i = 0; i < blockedCount; i++) {
+			int x = blocked[i * 3];
+			int y = blocked[i * 3 + 1];
+			int z = blocked[i * 3 + 2];
+			scene.blockManager.unblockRegion(x, y, z, x, y, z);
+		}
+
+		for (int i = 0; i < changes; i++) {
+			int x;
+			int y;
+			int z;
+			do {
+				x = 1 + random.nextInt(size - 2);
+				y = 1 + random.nextInt(size - 2);
+				z = 1 + random.nextInt(size - 2);
+			} while (scene.blockManager.isBlocked(x, y, z));
+
+			scene.blockManager.blockRegion(x, y, z, x, y, z);
+			blocked[i * 3] = x;
+			blocked[i * 3 + 1] = y;
+			blocked[i * 3 + 2] = z;
+		}
+		blockedCount = changes;
+
+		return pathfinder.findPath();
+	}
+
+}
@@ -0,0 +1,43 @@
+package net.tofweb.starlite.benchmarks;
+
+import java.util.Random;
+
+import net.tofweb.starlite.BitsetBlockManager;
+import net.tofweb.starlite.DenseCellSpace;
+
+/**
+ * A cube of Cells with randomly blocked Cells, the goal in one corner and the
+ * start in the opposite one. Scenes built with the same arguments are equal,
+ * so runs compare like with like.
+ *
+ * @version .9
+ * @since .9
+ */
+class Scene {
+
+	static final long SEED = 42;
+
+	final int size;
+	final DenseCellSpace space;
+	final BitsetBlockManager blockManager;
+
+	Scene(int size, double density) {
+		this.size = size;
+		this.space = new DenseCellSpace(size, size, size);
+		space.setGoalCell(0, 0, 0);
+		space.setStartCell(size - 1, size - 1, size - 1);
+		this.blockManager = new BitsetBlockManager(space);
+
+		Random random = new Random(SEED);
+		for (int z = 0; z < size; z++) {
+			for (int y = 0; y < size; y++) {
+				for (int x = 0; x < size; x++) {
+					if (random.nextDouble() < density) {
+						blockManager.blockRegion(x, y, z, x, y, z);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,56 @@
+package net.tofweb.starlite.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The initial search from scratch, corner to corner.
+ *
+ * @version .9
+ * @since .9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+	@Param({ "32", "64", "128" })
+	public int size;
+
+	@Param({ "0.0", "0.1", "0.3" })
+	public double density;
+
+	private Scene scene;
+
+	@Setup(Level.Trial)
+	public void buildScene() {
+		scene = new Scene(size, density);
+		scene.space.setMaxSteps(Integer.MAX_VALUE);
+	}
+
+	@Setup(Level.Invocation)
+	public void resetSearch() {
+		scene.space.resetSearch();
+	}
+
+	@Benchmark
+	public boolean initialSearch() {
+		return scene.space.computeShortestPath();
+	}
+
+}